@@ -0,0 +1,111 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Data access for the Students and Mentors account tables.
+ */
+public final class AccountRepository {
+
+    /** Which account table a user lives in. */
+    public enum Role {
+        STUDENT("Students"), MENTOR("Mentors");
+
+        final String table;
+        final String credentialsSql;
+        final String emailsSql;
+        final String replacePasswordSql;
+
+        Role(String table) {
+            this.table = table;
+            this.credentialsSql = "SELECT name, password FROM " + table + " WHERE email = ?";
+            this.emailsSql = "SELECT email FROM " + table;
+            this.replacePasswordSql = "UPDATE " + table + " SET password = ? WHERE email = ? AND password = ?";
+        }
+    }
+
+    /**
+     * Name and stored password (a PasswordHasher hash, or plaintext on rows not yet rehashed) of an account.
+     */
+    public static final class Credentials {
+        public final String name;
+        public final String password;
+
+        Credentials(String name, String password) {
+            this.name = name;
+            this.password = password;
+        }
+    }
+
+    /**
+     * The public part of a mentor's account: what students search and browse.
+     */
+    public static final class MentorProfile {
+        public final String name;
+        public final String email;
+        public final String skills;
+        public final String availability;
+
+        public MentorProfile(String name, String email, String skills, String availability) {
+            this.name = name;
+            this.email = email;
+            this.skills = skills == null ? "" : skills;
+            this.availability = availability == null ? "" : availability;
+        }
+    }
+
+    static final String INSERT_STUDENT_SQL =
+            "INSERT INTO Students (name, email, password, department, year, contact_no) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String INSERT_MENTOR_SQL =
+            "INSERT INTO Mentors (name, email, password, skills, availability, contact_no) VALUES (?, ?, ?, ?, ?, ?)";
+
+    static final String MENTOR_PROFILES_SQL = "SELECT name, email, skills, availability FROM Mentors";
+    static final String UPDATE_AVAILABILITY_SQL = "UPDATE Mentors SET availability = ? WHERE email = ?";
+
+    private static final RowMapper<Credentials> CREDENTIALS = rs -> new Credentials(rs.getString(1), rs.getString(2));
+
+    private AccountRepository() {
+    }
+
+    /** Looks an account up by its unique email; null if there is none. */
+    public static Credentials findCredentials(Connection conn, Role role, String email) throws SQLException {
+        return Jdbc.queryOne(conn, role.credentialsSql, CREDENTIALS, email);
+    }
+
+    /**
+     * Swaps the stored password (hash) for a new one, but only if it still holds {@code expected}.
+     * @return 1 if replaced, 0 if the row changed in the meantime
+     */
+    public static int replacePassword(Connection conn, Role role, String email, String expected, String replacement)
+            throws SQLException {
+        return Jdbc.update(conn, role.replacePasswordSql, replacement, email, expected);
+    }
+
+    /** Every registered email of the role; read from the unique email index. */
+    public static Set<String> emails(Connection conn, Role role) throws SQLException {
+        return new HashSet<>(Jdbc.queryList(conn, role.emailsSql, rs -> rs.getString(1)));
+    }
+
+    /** Every mentor's profile, in no particular order. */
+    public static List<MentorProfile> mentorProfiles(Connection conn) throws SQLException {
+        return Jdbc.queryList(conn, MENTOR_PROFILES_SQL,
+                rs -> new MentorProfile(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+    }
+
+    /** @return 1 if the mentor exists, 0 otherwise */
+    public static int updateAvailability(Connection conn, String email, String availability) throws SQLException {
+        return Jdbc.update(conn, UPDATE_AVAILABILITY_SQL, availability, email);
+    }
+
+    public static void insertStudent(Connection conn, String name, String email, String password,
+                                     String department, String year, String contactNo) throws SQLException {
+        Jdbc.update(conn, INSERT_STUDENT_SQL, name, email, password, department, year, contactNo);
+    }
+
+    public static void insertMentor(Connection conn, String name, String email, String password,
+                                    String skills, String availability, String contactNo) throws SQLException {
+        Jdbc.update(conn, INSERT_MENTOR_SQL, name, email, password, skills, availability, contactNo);
+    }
+}
@@ -0,0 +1,562 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind path for activity inserts, enabled with -Dtimebank.activity.writeBehind=true.
+ *
+ * ActivityService appends each new mentor or student activity to a local journal file and returns
+ * once it is fsynced; the caller never waits for MySQL. Concurrent appends share one fsync: whoever
+ * finds no sync in progress writes and forces everything buffered so far, the rest wait for it.
+ * A background writer drains the journal into MentorActivities/StudentsActivity (with the balance
+ * credits and leaderboard updates ActivityService would have made) in batches of up to
+ * timebank.journal.batch rows, one transaction per batch.
+ *
+ * Every record carries a sequence number and a CRC. The highest sequence written to the database
+ * is stored in JournalCheckpoints in the same transaction as the batch, so replaying the journal
+ * on the next start skips exactly what was already committed; a torn record at the end of the
+ * file (never acknowledged) is dropped. Once everything is written and the file has grown past
+ * timebank.journal.compactBytes it is truncated back to its header.
+ *
+ * Records the database rejects outright (e.g. an unknown email) are moved to activity.rejected
+ * next to the journal rather than blocking the ones behind them. While the database is down the
+ * records simply wait. New activities get their ids when written, so callers see id 0, and
+ * balances and the leaderboard catch up within timebank.journal.drainMs of the write.
+ *
+ * One process owns the journal directory (timebank.journal.dir, default "journal"); another
+ * instance pointed at the same directory falls back to writing straight to the database.
+ */
+public final class ActivityJournal {
+
+    static final boolean ENABLED = Boolean.getBoolean("timebank.activity.writeBehind");
+    private static final Path DIR = Paths.get(System.getProperty("timebank.journal.dir", "journal"));
+    private static final long DRAIN_MS = Long.getLong("timebank.journal.drainMs", 200L);
+    private static final int BATCH = Integer.getInteger("timebank.journal.batch", 500);
+    private static final long COMPACT_BYTES = Long.getLong("timebank.journal.compactBytes", 16L * 1024 * 1024);
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private static final String HEADER = "#timebank-activity-journal v1 ";
+    private static final String CHECKPOINT_SQL =
+            "SELECT applied_seq FROM JournalCheckpoints WHERE journal_key = ?";
+    private static final String ADVANCE_SQL =
+            "INSERT INTO JournalCheckpoints (journal_key, applied_seq) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE applied_seq = GREATEST(applied_seq, VALUES(applied_seq))";
+
+    private static ActivityJournal active;
+    private static boolean opened;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileLock ownership;
+    private final String key;
+    private final long headerBytes;
+
+    // Appenders: sequence numbers and records written but not yet forced
+    private final Object appendLock = new Object();
+    private long lastSeq;
+    private final ByteArrayOutputStream unsynced = new ByteArrayOutputStream();
+    private final List<Record> unsyncedRecords = new ArrayList<>();
+
+    // Group commit: one syncer at a time
+    private final Object syncLock = new Object();
+    private long durableSeq;
+    private boolean syncing;
+    private IOException failure;
+
+    // Durable records not yet in the database, oldest first
+    private final Deque<Record> pending = new ArrayDeque<>();
+
+    private volatile boolean stopped;
+    private final Thread writer;
+    private volatile long applied;
+    private volatile long rejected;
+
+    /**
+     * One journaled activity. Exactly one of mentor/student is set.
+     */
+    private static final class Record {
+        final long seq;
+        final MentorActivity mentor;
+        final String mentorName;
+        final StudentActivity student;
+
+        Record(long seq, MentorActivity mentor, String mentorName, StudentActivity student) {
+            this.seq = seq;
+            this.mentor = mentor;
+            this.mentorName = mentorName;
+            this.student = student;
+        }
+    }
+
+    private ActivityJournal(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.file = dir.resolve("activity.journal");
+        FileChannel lockChannel = FileChannel.open(dir.resolve("activity.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("journal " + dir + " is in use by another process");
+        }
+        this.ownership = lock;
+
+        // Replay: everything after the header up to the first torn or corrupt record
+        String epoch = null;
+        long good = 0;
+        if (Files.exists(file)) {
+            byte[] bytes = Files.readAllBytes(file);
+            int pos = 0;
+            while (pos < bytes.length) {
+                int nl = indexOf(bytes, (byte) '\n', pos);
+                if (nl < 0) break;
+                String line = new String(bytes, pos, nl - pos, StandardCharsets.UTF_8);
+                if (pos == 0) {
+                    if (!line.startsWith(HEADER)) throw new IOException(file + " is not an activity journal");
+                    epoch = line.substring(HEADER.length());
+                } else {
+                    Record r = decode(line);
+                    if (r == null) break;
+                    lastSeq = Math.max(lastSeq, r.seq);
+                    if (r.mentor != null || r.student != null) pending.add(r);
+                }
+                pos = nl + 1;
+                good = pos;
+            }
+        }
+        byte[] header = null;
+        if (epoch == null) {
+            byte[] raw = new byte[8];
+            new SecureRandom().nextBytes(raw);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : raw) hex.append(String.format("%02x", b));
+            epoch = hex.toString();
+            header = (HEADER + epoch + "\n").getBytes(StandardCharsets.UTF_8);
+            good = 0;
+        }
+        this.key = "activity:" + epoch;
+        this.headerBytes = (HEADER + epoch + "\n").getBytes(StandardCharsets.UTF_8).length;
+        this.durableSeq = lastSeq;
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(good);
+        channel.position(good);
+        if (header != null) writeFully(header);
+        channel.force(true);
+
+        this.writer = new Thread(this::drainLoop, "timebank-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        if (!pending.isEmpty()) {
+            System.out.println("Activity journal: replaying " + pending.size() + " unwritten activities");
+        }
+    }
+
+    /**
+     * The journal, opened (and replayed) on first call; null if write-behind is off, the backend
+     * is not MySQL or the journal cannot be opened, in which case activities are written directly.
+     */
+    public static synchronized ActivityJournal active() {
+        if (!ENABLED || !(Storage.current() instanceof MySqlStorage)) return null;
+        if (!opened) {
+            opened = true;
+            try {
+                active = new ActivityJournal(DIR);
+                Runtime.getRuntime().addShutdownHook(new Thread(active::stop, "timebank-journal-shutdown"));
+            } catch (IOException ex) {
+                System.err.println("Activity journal disabled, writing directly to the database: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        }
+        return active;
+    }
+
+    // --- Appending ---
+
+    /** Journals a mentor activity; returns once it is on disk. */
+    public void append(MentorActivity activity, String mentorName) throws SQLException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("kind", "mentor");
+        fields.put("email", activity.mentorEmail);
+        fields.put("mentorName", mentorName);
+        fields.put("name", activity.name);
+        fields.put("type", activity.type);
+        fields.put("date", activity.date.toString());
+        fields.put("hours", activity.hours);
+        fields.put("points", activity.points);
+        append(fields, seq -> new Record(seq, activity, mentorName, null));
+    }
+
+    /** Journals a student activity; returns once it is on disk. */
+    public void append(StudentActivity activity) throws SQLException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("kind", "student");
+        fields.put("email", activity.studentEmail);
+        fields.put("name", activity.name);
+        fields.put("type", activity.type);
+        fields.put("date", activity.date.toString());
+        fields.put("status", activity.status);
+        fields.put("certificate", activity.certificate);
+        fields.put("remarks", activity.remarks);
+        append(fields, seq -> new Record(seq, null, null, activity));
+    }
+
+    private interface RecordFactory {
+        Record create(long seq);
+    }
+
+    private void append(Map<String, Object> fields, RecordFactory factory) throws SQLException {
+        long seq;
+        synchronized (appendLock) {
+            seq = ++lastSeq;
+            byte[] line = encode(seq, Json.write(fields));
+            unsynced.write(line, 0, line.length);
+            unsyncedRecords.add(factory.create(seq));
+        }
+        try {
+            awaitDurable(seq);
+        } catch (IOException ex) {
+            throw new SQLException("Could not write the activity journal: " + ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while writing the activity journal", ex);
+        }
+    }
+
+    /** Waits until {@code seq} is forced to disk, forcing it (and everything buffered with it) if nobody else is. */
+    private void awaitDurable(long seq) throws IOException, InterruptedException {
+        synchronized (syncLock) {
+            while (true) {
+                if (failure != null) throw failure;
+                if (durableSeq >= seq) return;
+                if (!syncing) break;
+                syncLock.wait();
+            }
+            syncing = true;
+        }
+        byte[] bytes;
+        List<Record> records;
+        long upTo;
+        synchronized (appendLock) {
+            bytes = unsynced.toByteArray();
+            unsynced.reset();
+            records = new ArrayList<>(unsyncedRecords);
+            unsyncedRecords.clear();
+            upTo = lastSeq;
+        }
+        IOException error = null;
+        try {
+            writeFully(bytes);
+            channel.force(false);
+        } catch (IOException ex) {
+            error = ex;
+        }
+        if (error == null) {
+            synchronized (pending) {
+                pending.addAll(records);
+                pending.notifyAll();
+            }
+        }
+        synchronized (syncLock) {
+            if (error != null) failure = error; // later records may follow a partial write; stop accepting
+            else durableSeq = upTo;
+            syncing = false;
+            syncLock.notifyAll();
+        }
+        if (error != null) throw error;
+    }
+
+    private void writeFully(byte[] bytes) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+
+    // --- Writing to the database ---
+
+    private void drainLoop() {
+        long backoff = DRAIN_MS;
+        long skipThrough = -1; // committed before this process started
+        boolean reported = false;
+        while (!stopped) {
+            try {
+                if (skipThrough < 0) {
+                    skipThrough = DatabaseManager.withConnection(conn -> Jdbc.queryLong(conn, CHECKPOINT_SQL, key));
+                    synchronized (pending) {
+                        while (!pending.isEmpty() && pending.peekFirst().seq <= skipThrough) pending.pollFirst();
+                    }
+                }
+                List<Record> batch = new ArrayList<>();
+                synchronized (pending) {
+                    if (pending.isEmpty()) pending.wait(DRAIN_MS);
+                    for (Record r : pending) {
+                        if (batch.size() == BATCH) break;
+                        batch.add(r);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    compactIfIdle();
+                    continue;
+                }
+                write(batch);
+                backoff = DRAIN_MS;
+                reported = false;
+            } catch (SQLException ex) {
+                // Database unreachable or contended: the records stay journaled until it is back
+                if (!reported) {
+                    System.err.println("Activity journal: database write failed, retrying: " + ex.getMessage());
+                    reported = true;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            } catch (InterruptedException ex) {
+                return;
+            } catch (IOException | RuntimeException ex) {
+                ex.printStackTrace();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void write(List<Record> batch) throws SQLException, IOException {
+        try {
+            commit(batch);
+        } catch (SQLException ex) {
+            if (!isDataError(ex)) throw ex; // unreachable or contended: retry the whole batch later
+            if (batch.size() == 1) {
+                reject(batch.get(0), ex);
+                return;
+            }
+            // One bad record in the batch: write them one by one to find it
+            for (Record r : batch) {
+                try {
+                    commit(Collections.singletonList(r));
+                } catch (SQLException rowEx) {
+                    if (!isDataError(rowEx)) throw rowEx;
+                    reject(r, rowEx);
+                }
+            }
+        }
+    }
+
+    /** Writes the records, credits and checkpoint in one transaction, then updates in-process state. */
+    private void commit(List<Record> batch) throws SQLException {
+        List<MentorActivity> mentors = new ArrayList<>();
+        List<String> mentorNames = new ArrayList<>();
+        List<StudentActivity> students = new ArrayList<>();
+        Map<String, Integer> credits = new TreeMap<>(); // sorted: balance rows are locked in a fixed order
+        for (Record r : batch) {
+            if (r.mentor != null) {
+                mentors.add(r.mentor);
+                mentorNames.add(r.mentorName);
+                credits.merge(r.mentor.mentorEmail, r.mentor.points, Integer::sum);
+            } else {
+                students.add(r.student);
+            }
+        }
+        long upTo = batch.get(batch.size() - 1).seq;
+
+        List<StudentActivity> insertedStudents = new ArrayList<>();
+        List<MentorActivity> inserted;
+        Lock gate = ActivityService.leaderboardWrite();
+        gate.lock();
+        try {
+            inserted = DatabaseManager.inTransaction(conn -> {
+                List<MentorActivity> saved = mentors.isEmpty() ? mentors : MentorActivityRepository.insertBatch(conn, mentors);
+                for (Map.Entry<String, Integer> c : credits.entrySet()) MentorBalances.credit(conn, c.getKey(), c.getValue());
+                ActivityRollups.add(conn, saved);
+                insertedStudents.clear(); // the transaction may be retried
+                if (!students.isEmpty()) {
+                    insertedStudents.addAll(StudentActivityRepository.insertBatch(conn, students));
+                    ApprovalQueue.counted(conn, students);
+                    StudentActivityRepository.counted(conn, students);
+                }
+                advance(conn, upTo);
+                return saved;
+            });
+            for (int i = 0; i < inserted.size(); i++) {
+                MentorActivity a = inserted.get(i);
+                LeaderboardEngine.shared().recordActivity(a.id, a.mentorEmail, mentorNames.get(i), a.hours, a.points);
+                WindowedLeaderboard.shared().recordActivity(a, mentorNames.get(i));
+            }
+        } finally {
+            gate.unlock();
+        }
+        ChangeBus changes = ChangeBus.shared();
+        for (int i = 0; i < inserted.size(); i++) {
+            changes.publish(new ChangeBus.MentorActivityAdded(inserted.get(i), mentorNames.get(i)));
+        }
+        for (StudentActivity a : insertedStudents) changes.publish(new ChangeBus.StudentActivityAdded(a));
+        done(batch.size());
+        applied += batch.size();
+    }
+
+    private void advance(Connection conn, long seq) throws SQLException {
+        Jdbc.update(conn, ADVANCE_SQL, key, seq);
+    }
+
+    /** Moves a record the database will never accept out of the way. */
+    private void reject(Record r, SQLException cause) throws SQLException, IOException {
+        String what = r.mentor != null
+                ? "mentor " + r.mentor.mentorEmail + " " + r.mentor.name + " " + r.mentor.date + " " + r.mentor.hours + "h"
+                : "student " + r.student.studentEmail + " " + r.student.name + " " + r.student.date;
+        String line = LocalDateTime.now() + " seq=" + r.seq + " error=" + cause.getErrorCode() + " "
+                + cause.getMessage().replace('\n', ' ') + " | " + what + System.lineSeparator();
+        Files.write(file.resolveSibling("activity.rejected"), line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        DatabaseManager.withConnection(conn -> {
+            advance(conn, r.seq);
+            return null;
+        });
+        System.err.println("Activity journal: rejected record " + r.seq + ": " + cause.getMessage());
+        done(1);
+        rejected++;
+    }
+
+    private void done(int count) {
+        synchronized (pending) {
+            for (int i = 0; i < count; i++) pending.pollFirst();
+        }
+    }
+
+    /** Truncates the file back to its header once every record in it is in the database. */
+    private void compactIfIdle() throws IOException, InterruptedException {
+        if (channel.size() < COMPACT_BYTES) return;
+        synchronized (syncLock) {
+            while (syncing) syncLock.wait();
+            if (failure != null) return;
+            syncing = true; // keeps appenders from writing while the file is cut back
+        }
+        try {
+            synchronized (pending) {
+                if (!pending.isEmpty()) return;
+            }
+            channel.truncate(headerBytes);
+            channel.position(headerBytes);
+            // Keeps the sequence going after the cut, so the checkpoint still covers only old records
+            writeFully(encode(durableSeq, "{\"kind\":\"mark\"}"));
+            channel.force(true);
+        } finally {
+            synchronized (syncLock) {
+                syncing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops the writer after it has had a few seconds to catch up. Whatever is left stays in the
+     * journal for the next start.
+     */
+    public void stop() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pendingCount() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                break;
+            }
+        }
+        stopped = true;
+        writer.interrupt();
+        try {
+            writer.join(1000);
+            channel.close();
+            ownership.release();
+            ownership.channel().close();
+        } catch (IOException | InterruptedException ex) {
+            // Shutting down anyway
+        }
+    }
+
+    /** Activities journaled but not yet written to the database. */
+    public int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "journal[pending=" + pendingCount() + " applied=" + applied + " rejected=" + rejected + "]";
+    }
+
+    // --- Record format: "<seq> <crc32 hex> <json>\n" ---
+
+    private static byte[] encode(long seq, String json) {
+        String body = seq + " " + json;
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return (seq + " " + Long.toHexString(crc.getValue()) + " " + json + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** @return the record, a record with neither activity set for a marker, or null if the line is damaged */
+    private static Record decode(String line) {
+        try {
+            int s1 = line.indexOf(' ');
+            int s2 = line.indexOf(' ', s1 + 1);
+            long seq = Long.parseLong(line.substring(0, s1));
+            String json = line.substring(s2 + 1);
+            CRC32 crc = new CRC32();
+            crc.update((seq + " " + json).getBytes(StandardCharsets.UTF_8));
+            if (crc.getValue() != Long.parseLong(line.substring(s1 + 1, s2), 16)) return null;
+
+            Map<String, Object> f = Json.parseObject(json);
+            String kind = (String) f.get("kind");
+            if ("mentor".equals(kind)) {
+                MentorActivity a = new MentorActivity(0, (String) f.get("email"), (String) f.get("name"), (String) f.get("type"),
+                        LocalDate.parse((String) f.get("date")), ((Long) f.get("hours")).intValue(), ((Long) f.get("points")).intValue());
+                return new Record(seq, a, (String) f.get("mentorName"), null);
+            }
+            if ("student".equals(kind)) {
+                StudentActivity a = new StudentActivity(0, (String) f.get("email"), (String) f.get("name"), (String) f.get("type"),
+                        LocalDate.parse((String) f.get("date")), (String) f.get("status"), (String) f.get("certificate"),
+                        (String) f.get("remarks"));
+                return new Record(seq, null, null, a);
+            }
+            return new Record(seq, null, null, null);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from) {
+        for (int i = from; i < bytes.length; i++) if (bytes[i] == b) return i;
+        return -1;
+    }
+
+    /** Constraint, data or syntax errors: the record itself is bad and retrying will not help. */
+    private static boolean isDataError(SQLException ex) {
+        String state = ex.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23") || state.startsWith("42"));
+    }
+}
@@ -0,0 +1,273 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains MentorDailyRollups and MentorMonthlyRollups: per mentor and day (month), the number
+ * of activities and their hours and points.
+ *
+ * Like MentorBalances.credit(), add() does not commit; call it on the same connection and inside
+ * the same transaction as the MentorActivities INSERT, after the balance credit. Totals for a date
+ * range then read the whole months it spans from the monthly table and only the ragged ends from
+ * the daily one: at most about sixty daily rows plus one row per month, however many activities
+ * the range holds. The leaderboard is seeded from the monthly table the same way.
+ */
+public class ActivityRollups {
+
+    private static final String DAILY_SQL =
+            "INSERT INTO MentorDailyRollups (mentor_email, day, activities, hours, points) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE activities = activities + ?, hours = hours + ?, points = points + ?";
+    private static final String MONTHLY_SQL =
+            "INSERT INTO MentorMonthlyRollups (mentor_email, month, activities, hours, points, last_activity_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE activities = activities + ?, hours = hours + ?, points = points + ?, " +
+            "last_activity_id = GREATEST(last_activity_id, ?)";
+    // Head and tail days from the daily table, the full months between them from the monthly one
+    static final String PERIOD_SQL =
+            "SELECT COALESCE(SUM(activities), 0), COALESCE(SUM(hours), 0), COALESCE(SUM(points), 0) FROM (" +
+            "SELECT activities, hours, points FROM MentorDailyRollups WHERE mentor_email = ? AND day >= ? AND day < ? " +
+            "UNION ALL " +
+            "SELECT activities, hours, points FROM MentorMonthlyRollups WHERE mentor_email = ? AND month >= ? AND month < ? " +
+            "UNION ALL " +
+            "SELECT activities, hours, points FROM MentorDailyRollups WHERE mentor_email = ? AND day >= ? AND day < ?" +
+            ") AS parts";
+    static final String TOTALS_BY_MENTOR_SQL =
+            "SELECT m.email, m.name, SUM(r.hours), SUM(r.points), MAX(r.last_activity_id) " +
+            "FROM Mentors m JOIN MentorMonthlyRollups r ON m.email = r.mentor_email " +
+            "WHERE r.activities > 0 GROUP BY m.email, m.name";
+    static final String RECENT_SQL =
+            "SELECT d.mentor_email, m.name, d.day, d.hours, d.points " +
+            "FROM MentorDailyRollups d JOIN Mentors m ON m.email = d.mentor_email " +
+            "WHERE d.day >= ? AND d.activities > 0";
+
+    private static final String RAW_DAILY =
+            "SELECT mentor_email, activity_date AS day, COUNT(*) AS n, SUM(hours) AS h, SUM(points) AS p " +
+            "FROM MentorActivities GROUP BY mentor_email, activity_date";
+    private static final String RAW_MONTHLY =
+            "SELECT mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01') AS month, COUNT(*) AS n, SUM(hours) AS h, " +
+            "SUM(points) AS p, MAX(activity_id) AS last_id " +
+            "FROM MentorActivities GROUP BY mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01')";
+    // Rollup rows that disagree with the raw rows, missing ones and leftovers in either table
+    private static final String MISMATCH_SQL =
+            "SELECT a.mentor_email FROM (" + RAW_DAILY + ") a LEFT JOIN MentorDailyRollups r " +
+            "ON r.mentor_email = a.mentor_email AND r.day = a.day " +
+            "WHERE r.mentor_email IS NULL OR r.activities <> a.n OR r.hours <> a.h OR r.points <> a.p " +
+            "UNION SELECT r.mentor_email FROM MentorDailyRollups r LEFT JOIN (" + RAW_DAILY + ") a " +
+            "ON a.mentor_email = r.mentor_email AND a.day = r.day WHERE a.mentor_email IS NULL AND r.activities <> 0 " +
+            "UNION SELECT a.mentor_email FROM (" + RAW_MONTHLY + ") a LEFT JOIN MentorMonthlyRollups r " +
+            "ON r.mentor_email = a.mentor_email AND r.month = a.month " +
+            "WHERE r.mentor_email IS NULL OR r.activities <> a.n OR r.hours <> a.h OR r.points <> a.p " +
+            "OR r.last_activity_id <> a.last_id " +
+            "UNION SELECT r.mentor_email FROM MentorMonthlyRollups r LEFT JOIN (" + RAW_MONTHLY + ") a " +
+            "ON a.mentor_email = r.mentor_email AND a.month = r.month WHERE a.mentor_email IS NULL AND r.activities <> 0";
+    private static final String LOCK_BALANCE_SQL =
+            "SELECT mentor_email FROM MentorBalances WHERE mentor_email = ? FOR UPDATE";
+    private static final String REBUILD_DAILY_SQL =
+            "INSERT INTO MentorDailyRollups (mentor_email, day, activities, hours, points) " +
+            "SELECT mentor_email, activity_date, COUNT(*), SUM(hours), SUM(points) " +
+            "FROM MentorActivities WHERE mentor_email = ? GROUP BY mentor_email, activity_date";
+    private static final String REBUILD_MONTHLY_SQL =
+            "INSERT INTO MentorMonthlyRollups (mentor_email, month, activities, hours, points, last_activity_id) " +
+            "SELECT mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01'), COUNT(*), SUM(hours), SUM(points), MAX(activity_id) " +
+            "FROM MentorActivities WHERE mentor_email = ? GROUP BY mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01')";
+
+    /**
+     * Number of activities and their hours and points over some period.
+     */
+    public static final class Totals {
+        public final long activities;
+        public final long hours;
+        public final long points;
+
+        Totals(long activities, long hours, long points) {
+            this.activities = activities;
+            this.hours = hours;
+            this.points = points;
+        }
+    }
+
+    /**
+     * One mentor's totals for one day.
+     */
+    public static final class Day {
+        public final String email;
+        public final String name;
+        public final LocalDate day;
+        public final long hours;
+        public final long points;
+
+        Day(String email, String name, LocalDate day, long hours, long points) {
+            this.email = email;
+            this.name = name;
+            this.day = day;
+            this.hours = hours;
+            this.points = points;
+        }
+    }
+
+    /**
+     * Daily totals since some day.
+     */
+    public static final class Recent {
+        public final List<Day> days;
+
+        Recent(List<Day> days) {
+            this.days = days;
+        }
+    }
+
+    private ActivityRollups() {
+    }
+
+    /** Adds a newly inserted activity (with its id) to its day and month. */
+    public static void add(Connection conn, MentorActivity saved) throws SQLException {
+        add(conn, Collections.singletonList(saved));
+    }
+
+    /**
+     * Adds newly inserted activities, one upsert per (mentor, day) and per (mentor, month),
+     * in key order so concurrent batches lock rollup rows in the same order.
+     */
+    public static void add(Connection conn, List<MentorActivity> saved) throws SQLException {
+        if (saved.isEmpty()) return;
+        Map<String, long[]> days = new TreeMap<>();   // "email day" -> activities, hours, points
+        Map<String, long[]> months = new TreeMap<>(); // "email month" -> activities, hours, points, last id
+        Map<String, MentorActivity> daySample = new TreeMap<>();   // an activity of each day / month, for its email and date
+        Map<String, MentorActivity> monthSample = new TreeMap<>();
+        for (MentorActivity a : saved) {
+            String day = a.mentorEmail + ' ' + a.date;
+            String month = a.mentorEmail + ' ' + a.date.withDayOfMonth(1);
+            accumulate(days.computeIfAbsent(day, k -> new long[3]), a);
+            long[] m = months.computeIfAbsent(month, k -> new long[4]);
+            accumulate(m, a);
+            m[3] = Math.max(m[3], a.id);
+            daySample.putIfAbsent(day, a);
+            monthSample.putIfAbsent(month, a);
+        }
+        try (PreparedStatement ps = conn.prepareStatement(DAILY_SQL)) {
+            for (Map.Entry<String, long[]> e : days.entrySet()) {
+                MentorActivity a = daySample.get(e.getKey());
+                long[] t = e.getValue();
+                Jdbc.bind(ps, a.mentorEmail, java.sql.Date.valueOf(a.date), t[0], t[1], t[2], t[0], t[1], t[2]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(MONTHLY_SQL)) {
+            for (Map.Entry<String, long[]> e : months.entrySet()) {
+                MentorActivity a = monthSample.get(e.getKey());
+                long[] t = e.getValue();
+                Jdbc.bind(ps, a.mentorEmail, java.sql.Date.valueOf(a.date.withDayOfMonth(1)), t[0], t[1], t[2], t[3],
+                        t[0], t[1], t[2], t[3]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void accumulate(long[] t, MentorActivity a) {
+        t[0]++;
+        t[1] += a.hours;
+        t[2] += a.points;
+    }
+
+    /**
+     * Splits [from, toExclusive) into whole months and the days around them.
+     * @return {first whole month, end of the last whole month}; equal when no whole month fits
+     */
+    static LocalDate[] wholeMonths(LocalDate from, LocalDate toExclusive) {
+        LocalDate first = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate end = toExclusive.withDayOfMonth(1);
+        return first.isBefore(end) ? new LocalDate[]{first, end} : new LocalDate[]{toExclusive, toExclusive};
+    }
+
+    /** Totals of a mentor's activities dated within [from, toExclusive). */
+    public static Totals periodTotals(Connection conn, String mentorEmail, LocalDate from, LocalDate toExclusive)
+            throws SQLException {
+        LocalDate[] months = wholeMonths(from, toExclusive);
+        java.sql.Date start = java.sql.Date.valueOf(from);
+        java.sql.Date first = java.sql.Date.valueOf(months[0]);
+        java.sql.Date end = java.sql.Date.valueOf(months[1]);
+        java.sql.Date stop = java.sql.Date.valueOf(toExclusive);
+        return Jdbc.queryOne(conn, PERIOD_SQL, rs -> new Totals(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+                mentorEmail, start, first, mentorEmail, first, end, mentorEmail, end, stop);
+    }
+
+    /** Every mentor's daily totals from {@code from} on, for seeding WindowedLeaderboard. */
+    public static Recent recent(Connection conn, LocalDate from) throws SQLException {
+        return new Recent(Jdbc.queryList(conn, RECENT_SQL,
+                rs -> new Day(rs.getString(1), rs.getString(2), rs.getDate(3).toLocalDate(), rs.getLong(4), rs.getLong(5)),
+                java.sql.Date.valueOf(from)));
+    }
+
+    /** Hours and points per mentor with at least one activity, for seeding the leaderboard. */
+    public static List<MentorActivityRepository.MentorTotals> totalsByMentor(Connection conn) throws SQLException {
+        return Jdbc.queryList(conn, TOTALS_BY_MENTOR_SQL, MentorActivityRepository.TOTALS_MAPPER);
+    }
+
+    // --- Reconciliation ---
+
+    /**
+     * Compares every rollup row with the raw MentorActivities rows.
+     * @param repair when true, each drifted mentor's rollups are rebuilt from the raw rows
+     * @return the mentors whose rollups did not match
+     */
+    public static List<String> reconcile(boolean repair) throws SQLException {
+        return DatabaseManager.withConnection(conn -> {
+            List<String> drifted = Jdbc.queryList(conn, MISMATCH_SQL, rs -> rs.getString(1));
+            for (String email : drifted) System.out.println("Rollup drift for " + email);
+            if (repair) {
+                for (String email : drifted) {
+                    repair(conn, email);
+                }
+            }
+            return drifted;
+        });
+    }
+
+    /**
+     * Rebuilds one mentor's rollups. Writers credit the mentor's balance row before touching the
+     * rollups, in the same transaction, so holding that row's lock keeps them out while we rebuild.
+     */
+    private static void repair(Connection conn, String mentorEmail) throws SQLException {
+        int isolation = conn.getTransactionIsolation();
+        try {
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            conn.setAutoCommit(false);
+            MentorBalances.getBalance(conn, mentorEmail); // make sure the row exists so it can be locked
+            Jdbc.queryOne(conn, LOCK_BALANCE_SQL, rs -> null, mentorEmail);
+
+            Jdbc.update(conn, "DELETE FROM MentorDailyRollups WHERE mentor_email = ?", mentorEmail);
+            Jdbc.update(conn, "DELETE FROM MentorMonthlyRollups WHERE mentor_email = ?", mentorEmail);
+            Jdbc.update(conn, REBUILD_DAILY_SQL, mentorEmail);
+            Jdbc.update(conn, REBUILD_MONTHLY_SQL, mentorEmail);
+            conn.commit();
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+            conn.setTransactionIsolation(isolation);
+        }
+    }
+
+    /**
+     * Reconciliation and backfill job: java ActivityRollups [--repair]
+     * Migration V007 backfills existing data once; run with --repair after bulk loads that
+     * bypass add(), or if the check reports drift.
+     */
+    public static void main(String[] args) throws SQLException {
+        boolean repair = args.length > 0 && "--repair".equals(args[0]);
+        List<String> drifted = reconcile(repair);
+        System.out.println(drifted.isEmpty()
+                ? "All activity rollups match MentorActivities."
+                : drifted.size() + " mentor(s) with rollups out of sync" + (repair ? ", repaired." : "; rerun with --repair to fix."));
+        System.exit(drifted.isEmpty() || repair ? 0 : 1);
+    }
+}
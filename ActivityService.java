@@ -0,0 +1,83 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Activity writes that touch more than one table or in-process structure, shared by the
+ * dashboards and TimeBankServer so both keep the ledgers, balances and leaderboard in step.
+ */
+public final class ActivityService {
+
+    /**
+     * Held shared by in-process mentor activity writers from before their insert until the
+     * leaderboards have recorded it, and exclusively by a leaderboard seed while it reads and loads.
+     * Each activity is then either in the seed or recorded after it, whatever order ids commit in.
+     * Take it before a connection, never while seeding.
+     */
+    private static final ReentrantReadWriteLock LEADERBOARD_WRITES = new ReentrantReadWriteLock();
+
+    private ActivityService() {
+    }
+
+    /** Shared side of the leaderboard gate, for a write that records into the leaderboards. */
+    static Lock leaderboardWrite() {
+        return LEADERBOARD_WRITES.readLock();
+    }
+
+    /** Exclusive side of the leaderboard gate, for a seed. */
+    static Lock leaderboardSeed() {
+        return LEADERBOARD_WRITES.writeLock();
+    }
+
+    /**
+     * Saves a mentor activity and credits its points in one transaction, then applies it to the leaderboards.
+     * In write-behind mode it is only journaled here and written by ActivityJournal shortly after.
+     * @param mentorName shown on the leaderboard if this is the mentor's first activity
+     * @return the activity with its new id (0 when journaled)
+     */
+    public static MentorActivity addMentorActivity(MentorActivity activity, String mentorName) throws SQLException {
+        ActivityJournal journal = ActivityJournal.active();
+        if (journal != null) {
+            journal.append(activity, mentorName);
+            return activity;
+        }
+        MentorActivity saved;
+        Lock gate = leaderboardWrite();
+        gate.lock();
+        try {
+            saved = activity.withId(Storage.current().addMentorActivity(activity));
+            LeaderboardEngine.shared().recordActivity(saved.id, saved.mentorEmail, mentorName, saved.hours, saved.points);
+            WindowedLeaderboard.shared().recordActivity(saved, mentorName);
+        } finally {
+            gate.unlock();
+        }
+        ChangeBus.shared().publish(new ChangeBus.MentorActivityAdded(saved, mentorName));
+        return saved;
+    }
+
+    /**
+     * Logs a student activity, or journals it in write-behind mode.
+     * @return the activity with its new id (0 when journaled)
+     */
+    public static StudentActivity logStudentActivity(StudentActivity activity) throws SQLException {
+        ActivityJournal journal = ActivityJournal.active();
+        if (journal != null) {
+            journal.append(activity);
+            return activity;
+        }
+        StudentActivity saved = activity.withId(Storage.current().addStudentActivity(activity));
+        ChangeBus.shared().publish(new ChangeBus.StudentActivityAdded(saved));
+        return saved;
+    }
+
+    /**
+     * Approves or rejects Pending student activities in one transaction; ids no longer Pending are skipped.
+     * @return the number of activities changed
+     */
+    public static int decideStudentActivities(List<Long> logIds, String status) throws SQLException {
+        int changed = Storage.current().decideStudentActivities(logIds, status);
+        if (changed > 0) ChangeBus.shared().publish(new ChangeBus.StudentActivitiesDecided(logIds, status, changed));
+        return changed;
+    }
+}
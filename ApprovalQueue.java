@@ -0,0 +1,172 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mentor review of student activities: the queue of Pending rows and the per-status row counts
+ * in StudentActivityCounts that its badge shows.
+ *
+ * The queue is read oldest first in keyset pages on the (status, log_date) index. Approving or
+ * rejecting a selection is one UPDATE per thousand ids, all in one transaction; only rows still
+ * Pending change, so two mentors deciding the same rows cannot count them twice.
+ *
+ * Counts are kept in StudentActivityCounts, each status spread over SLOTS rows so concurrent
+ * writers rarely queue on the same row lock. Like MentorBalances.credit(), counted() and the
+ * count updates inside decide() do not commit: call them in the same transaction as the
+ * StudentsActivity write they account for. Reading the badge sums a handful of rows instead of
+ * counting the table.
+ */
+public class ApprovalQueue {
+
+    public static final String PENDING = "Pending";
+    public static final String APPROVED = "Completed";
+    public static final String REJECTED = "Rejected";
+
+    private static final int SLOTS = 8;
+    private static final int IDS_PER_UPDATE = 1000;
+
+    private static final String COUNT_SQL =
+            "INSERT INTO StudentActivityCounts (status, slot, row_count) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE row_count = row_count + ?";
+    static final String COUNTS_SQL = "SELECT status, SUM(row_count) FROM StudentActivityCounts GROUP BY status";
+
+    // Oldest first; (status, log_date) plus the implicit log_id is idx_sa_status_date
+    private static final String COLUMNS =
+            "SELECT log_id, student_email, activity_name, activity_type, log_date, status, certificate_path, remarks " +
+            "FROM StudentsActivity WHERE status = 'Pending'";
+    private static final String ORDER = " ORDER BY log_date, log_id LIMIT ?";
+    static final String FIRST_PAGE_SQL = COLUMNS + ORDER;
+    static final String PAGE_AFTER_SQL = COLUMNS + " AND (log_date > ? OR (log_date = ? AND log_id > ?))" + ORDER;
+
+    private static final String RECOUNT_SQL = "SELECT status, COUNT(*) FROM StudentsActivity GROUP BY status";
+    private static final String LOCK_COUNTS_SQL = "SELECT status FROM StudentActivityCounts FOR UPDATE";
+
+    private ApprovalQueue() {
+    }
+
+    // --- Counts ---
+
+    /** Counts newly inserted rows. */
+    public static void counted(Connection conn, List<StudentActivity> inserted) throws SQLException {
+        Map<String, Integer> byStatus = new TreeMap<>(); // fixed order: count rows are locked in sequence
+        for (StudentActivity a : inserted) byStatus.merge(a.status, 1, Integer::sum);
+        for (Map.Entry<String, Integer> e : byStatus.entrySet()) add(conn, e.getKey(), e.getValue());
+    }
+
+    private static void add(Connection conn, String status, long delta) throws SQLException {
+        Jdbc.update(conn, COUNT_SQL, status, ThreadLocalRandom.current().nextInt(SLOTS), delta, delta);
+    }
+
+    /** Rows per status. */
+    public static Map<String, Long> counts(Connection conn) throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        Jdbc.queryList(conn, COUNTS_SQL, rs -> counts.put(rs.getString(1), rs.getLong(2)));
+        return counts;
+    }
+
+    // --- Queue ---
+
+    /**
+     * Up to {@code limit} Pending rows, oldest first, starting right after {@code after} (null for the oldest).
+     */
+    public static List<StudentActivity> page(Connection conn, StudentActivityRepository.Cursor after, int limit)
+            throws SQLException {
+        if (after == null) return Jdbc.queryList(conn, FIRST_PAGE_SQL, StudentActivityRepository.MAPPER, limit);
+        java.sql.Date date = java.sql.Date.valueOf(after.date);
+        return Jdbc.queryList(conn, PAGE_AFTER_SQL, StudentActivityRepository.MAPPER, date, date, after.id, limit);
+    }
+
+    /**
+     * Moves the given rows from Pending to {@code status} and adjusts the counts, in one transaction.
+     * @return the number of rows changed; rows no longer Pending are left alone
+     */
+    public static int decide(List<Long> logIds, String status) throws SQLException {
+        if (!APPROVED.equals(status) && !REJECTED.equals(status)) {
+            throw new IllegalArgumentException("A pending activity can only be approved or rejected.");
+        }
+        if (logIds.isEmpty()) return 0;
+        return DatabaseManager.inTransaction(conn -> {
+            int changed = 0;
+            for (int from = 0; from < logIds.size(); from += IDS_PER_UPDATE) {
+                List<Long> chunk = logIds.subList(from, Math.min(logIds.size(), from + IDS_PER_UPDATE));
+                StringBuilder sql = new StringBuilder("UPDATE StudentsActivity SET status = ? WHERE status = 'Pending' AND log_id IN (");
+                Object[] params = new Object[chunk.size() + 1];
+                params[0] = status;
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                    params[i + 1] = chunk.get(i);
+                }
+                changed += Jdbc.update(conn, sql.append(')').toString(), params);
+            }
+            if (changed > 0) {
+                // Same order as counted(): "Completed" < "Pending" < "Rejected"
+                if (status.compareTo(PENDING) < 0) add(conn, status, changed);
+                add(conn, PENDING, -changed);
+                if (status.compareTo(PENDING) > 0) add(conn, status, changed);
+            }
+            return changed;
+        });
+    }
+
+    // --- Reconciliation ---
+
+    /**
+     * Compares the counts with COUNT(*) per status.
+     * @param repair when true and they differ, the counts are rebuilt while writers are held off
+     * @return the statuses whose count did not match
+     */
+    public static List<String> reconcile(boolean repair) throws SQLException {
+        return DatabaseManager.withConnection(conn -> {
+            int isolation = conn.getTransactionIsolation();
+            try {
+                // Each statement must see writes committed while we waited for the locks.
+                conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                conn.setAutoCommit(false);
+                if (repair) Jdbc.queryList(conn, LOCK_COUNTS_SQL, rs -> null);
+                Map<String, Long> stored = counts(conn);
+                Map<String, Long> actual = new LinkedHashMap<>();
+                Jdbc.queryList(conn, RECOUNT_SQL, rs -> actual.put(rs.getString(1), rs.getLong(2)));
+
+                List<String> drifted = new ArrayList<>();
+                Map<String, Long> all = new TreeMap<>(stored);
+                all.putAll(actual);
+                for (String status : all.keySet()) {
+                    long s = stored.getOrDefault(status, 0L);
+                    long a = actual.getOrDefault(status, 0L);
+                    if (s != a) {
+                        System.out.println("Count drift for " + status + ": stored " + s + ", actual " + a);
+                        drifted.add(status);
+                        // Writers add to the counts after their row, in the same transaction; with the
+                        // count rows locked, any row they have not yet counted is not visible here either.
+                        if (repair) add(conn, status, a - s);
+                    }
+                }
+                conn.commit();
+                return drifted;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(isolation);
+            }
+        });
+    }
+
+    /**
+     * Reconciliation job: java ApprovalQueue [--repair]
+     */
+    public static void main(String[] args) throws SQLException {
+        boolean repair = args.length > 0 && "--repair".equals(args[0]);
+        List<String> drifted = reconcile(repair);
+        System.out.println(drifted.isEmpty()
+                ? "All status counts match StudentsActivity."
+                : drifted.size() + " status count(s) out of sync" + (repair ? ", repaired." : "; rerun with --repair to fix."));
+        System.exit(drifted.isEmpty() || repair ? 0 : 1);
+    }
+}
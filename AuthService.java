@@ -0,0 +1,179 @@
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Login and password hashing for both account tables.
+ *
+ * The account row is read by email (name and stored password only) on the calling thread;
+ * the password hash is checked on a dedicated pool sized to the CPU count
+ * (timebank.auth.threads) with a bounded queue (timebank.auth.queueLimit). When the queue is
+ * full a login fails fast with a "busy" error instead of piling up behind the hashing work.
+ *
+ * Rows still holding a plaintext password, or a hash weaker than the current settings,
+ * are rehashed after their next successful login.
+ */
+public class AuthService {
+
+    private static final int THREADS = Integer.getInteger("timebank.auth.threads", Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_LIMIT = Integer.getInteger("timebank.auth.queueLimit", 32);
+
+    private static final AuthService SHARED = new AuthService(THREADS, QUEUE_LIMIT);
+
+    private final ExecutorService hashers;
+
+    // Statistics
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong rehashed = new AtomicLong();
+    private final LatencyHistogram login = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram hashing = new LatencyHistogram();
+
+    public AuthService(int threads, int queueLimit) {
+        AtomicInteger threadNo = new AtomicInteger();
+        this.hashers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLimit), r -> {
+                    Thread t = new Thread(r, "timebank-auth-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public static AuthService shared() {
+        return SHARED;
+    }
+
+    /**
+     * A successful login.
+     */
+    public static final class Login {
+        public final AccountRepository.Role role;
+        public final String email;
+        public final String name;
+
+        Login(AccountRepository.Role role, String email, String name) {
+            this.role = role;
+            this.email = email;
+            this.name = name;
+        }
+    }
+
+    /** Thrown when the hashing queue is full. */
+    public static final class BusyException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BusyException(Throwable cause) {
+            super("Too many logins in progress; please try again in a moment.", cause);
+        }
+    }
+
+    // Checked for unknown emails so they take as long as wrong passwords.
+    private static final class Dummy {
+        static final String HASH = PasswordHasher.hash("not-a-password".toCharArray());
+    }
+
+    /**
+     * Checks a password. Blocking; call from a loader or request thread.
+     * @return the account, or null if the email is unknown or the password is wrong
+     */
+    public Login authenticate(AccountRepository.Role role, String email, char[] password)
+            throws SQLException, BusyException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            AccountRepository.Credentials account = Storage.current().findCredentials(role, email);
+            String stored = account != null ? account.password : Dummy.HASH;
+
+            String upgraded = onHashPool(() -> {
+                if (!PasswordHasher.verify(password, stored)) return null;
+                return PasswordHasher.needsRehash(stored) ? PasswordHasher.hash(password) : stored;
+            });
+            if (account == null || upgraded == null) {
+                failed.incrementAndGet();
+                return null;
+            }
+            if (!upgraded.equals(stored)) {
+                // Conditional on the old value, so a password changed meanwhile is not overwritten
+                int updated = Storage.current().replacePassword(role, email, stored, upgraded);
+                if (updated == 1) rehashed.incrementAndGet();
+            }
+            succeeded.incrementAndGet();
+            return new Login(role, email, account.name);
+        } finally {
+            login.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    /** Hashes a new password for storage. Blocking, like authenticate(). */
+    public String hash(char[] password) throws BusyException, InterruptedException {
+        return onHashPool(() -> PasswordHasher.hash(password));
+    }
+
+    private interface HashWork {
+        String run();
+    }
+
+    private String onHashPool(HashWork work) throws BusyException, InterruptedException {
+        long queuedAt = System.nanoTime();
+        Future<String> future;
+        try {
+            future = hashers.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.recordNanos(startedAt - queuedAt);
+                try {
+                    return work.run();
+                } finally {
+                    hashing.recordNanos(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+            throw new BusyException(ex);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Password hashing failed", ex.getCause());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(succeeded.get(), failed.get(), rejected.get(), rehashed.get(), login, queueWait, hashing);
+    }
+
+    /**
+     * Outcome counters and latency distributions of the login path.
+     */
+    public static final class Stats {
+        public final long succeeded, failed, rejected, rehashed;
+        public final LatencyHistogram login, queueWait, hashing;
+
+        Stats(long succeeded, long failed, long rejected, long rehashed,
+              LatencyHistogram login, LatencyHistogram queueWait, LatencyHistogram hashing) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.rehashed = rehashed;
+            this.login = login;
+            this.queueWait = queueWait;
+            this.hashing = hashing;
+        }
+
+        @Override
+        public String toString() {
+            return "auth[ok=" + succeeded + " failed=" + failed + " rejected=" + rejected + " rehashed=" + rehashed
+                    + "] login{" + login + "} wait{" + queueWait + "} hash{" + hashing + "}";
+        }
+    }
+}
@@ -0,0 +1,341 @@
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the free-text Mentors.availability field as a set of weekly half-hour slots.
+ *
+ * Slot 0 is Monday 00:00-00:30 and slot SLOTS - 1 is Sunday 23:30-24:00; a mentor's week is a
+ * bitset of WORDS longs. Times are rounded outwards to whole slots.
+ *
+ * Understood, case-insensitively, in any combination separated by commas, semicolons or "and":
+ *   days       mon, tuesday, thurs, ...; ranges "mon-fri"; weekdays, weekends, daily, every day
+ *   times      9-17, 9:30-11, 9am-1pm, 14:00-16:00, "5 to 8pm", "after 6pm", "before 10", noon, midnight
+ *   periods    mornings (8-12), afternoons (12-17), evenings (17-21), nights (21-24), all day, anytime
+ * Days with no time are free all day; times with no days apply to the days before them, or to
+ * every day. Without am/pm a start hour from 1 to 7 is read as afternoon ("5-8" is 17:00-20:00)
+ * and an end at or before its start is moved past noon ("9-5" is 09:00-17:00); a range that still
+ * ends before it starts runs past midnight. Anything else is ignored, so describe() is shown back
+ * to the mentor to confirm what was understood.
+ */
+public final class Availability {
+
+    public static final int SLOT_MINUTES = 30;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    public static final int SLOTS = 7 * SLOTS_PER_DAY;
+    static final int WORDS = (SLOTS + 63) / 64;
+
+    private static final int ALL_DAYS = 0x7f;
+    private static final String[] DAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private Availability() {
+    }
+
+    /** The slots {@code text} describes; all clear if nothing was recognised. */
+    public static long[] parse(String text) {
+        return new Parser(text == null ? "" : text).run();
+    }
+
+    /**
+     * The slots covering [from, to) on {@code day}, as {start, end} with end exclusive and possibly
+     * beyond SLOTS when the range runs past midnight ({@code to} at or before {@code from}) into the next day.
+     */
+    public static int[] slots(DayOfWeek day, LocalTime from, LocalTime to) {
+        int dayStart = (day.getValue() - 1) * SLOTS_PER_DAY;
+        int fromMinute = from.getHour() * 60 + from.getMinute();
+        int toMinute = to.getHour() * 60 + to.getMinute();
+        if (toMinute <= fromMinute) toMinute += 24 * 60;
+        return new int[]{dayStart + fromMinute / SLOT_MINUTES, dayStart + (toMinute + SLOT_MINUTES - 1) / SLOT_MINUTES};
+    }
+
+    static boolean isSet(long[] slots, int slot) {
+        slot = Math.floorMod(slot, SLOTS);
+        return (slots[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /** E.g. "Mon-Fri 09:00-17:00; Sat all day"; "nothing recognised" for an empty week. */
+    public static String describe(long[] slots) {
+        String[] perDay = new String[7];
+        for (int d = 0; d < 7; d++) {
+            StringBuilder sb = new StringBuilder();
+            int s = 0;
+            while (s < SLOTS_PER_DAY) {
+                if (!isSet(slots, d * SLOTS_PER_DAY + s)) {
+                    s++;
+                    continue;
+                }
+                int start = s;
+                while (s < SLOTS_PER_DAY && isSet(slots, d * SLOTS_PER_DAY + s)) s++;
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(start == 0 && s == SLOTS_PER_DAY ? "all day" : time(start) + "-" + time(s));
+            }
+            perDay[d] = sb.toString();
+        }
+        StringBuilder out = new StringBuilder();
+        for (int d = 0; d < 7; ) {
+            int from = d;
+            while (d + 1 < 7 && perDay[d + 1].equals(perDay[from])) d++;
+            if (!perDay[from].isEmpty()) {
+                if (out.length() > 0) out.append("; ");
+                out.append(DAY_NAMES[from]);
+                if (d > from) out.append(d == from + 1 ? ", " : "-").append(DAY_NAMES[d]);
+                out.append(' ').append(perDay[from]);
+            }
+            d++;
+        }
+        return out.length() == 0 ? "nothing recognised" : out.toString();
+    }
+
+    private static String time(int slot) {
+        int minute = slot * SLOT_MINUTES;
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+
+    /** Single-pass reader over the lower-cased text. */
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private final long[] slots = new long[WORDS];
+        private int pos;
+
+        Parser(String text) {
+            String t = text.toLowerCase(Locale.ROOT).replace('\u2013', '-').replace('\u2014', '-').replace("24/7", "daily");
+            int i = 0;
+            while (i < t.length()) {
+                char c = t.charAt(i);
+                int start = i;
+                if (Character.isLetter(c)) {
+                    while (i < t.length() && (Character.isLetter(t.charAt(i)) || t.charAt(i) == '.')) i++;
+                    tokens.add(t.substring(start, i).replace(".", ""));
+                } else if (Character.isDigit(c)) {
+                    while (i < t.length() && (Character.isDigit(t.charAt(i)) || t.charAt(i) == ':' || t.charAt(i) == '.')) i++;
+                    tokens.add(t.substring(start, i).replace('.', ':'));
+                } else {
+                    if (c == '-' || c == ',' || c == ';') tokens.add(String.valueOf(c));
+                    else if (c == '\n') tokens.add(";");
+                    i++;
+                }
+            }
+        }
+
+        /**
+         * Goes clause by clause, split at commas and semicolons, and where "and" or another day
+         * follows a time ("Mon 9-11 and Sat mornings"). The days and times of a clause go together in
+         * either order; days with no time carry into the next clause ("Mon, Wed 5-7pm"), times with no
+         * days reuse the previous clause's ("Weekdays 9-11, 14-16").
+         */
+        long[] run() {
+            int carried = 0;  // days of clauses without a time so far
+            int lastDays = 0; // days of the last clause with a time
+            while (pos < tokens.size()) {
+                int days = 0;
+                List<int[]> ranges = new ArrayList<>();
+                while (pos < tokens.size()) {
+                    String tok = tokens.get(pos);
+                    if (tok.equals(",") || tok.equals(";") || (tok.equals("and") && !ranges.isEmpty())) {
+                        pos++;
+                        break;
+                    }
+                    int start = pos;
+                    int dayMask = daySpec();
+                    if (dayMask != 0) {
+                        if (days != 0 && !ranges.isEmpty()) {
+                            pos = start; // "Mon 9-11 Sat 10-12": the next clause
+                            break;
+                        }
+                        days |= dayMask;
+                        continue;
+                    }
+                    int[] range = timeSpec();
+                    if (range != null) ranges.add(range);
+                    else pos++; // unknown word
+                }
+                if (ranges.isEmpty()) {
+                    carried |= days;
+                    continue;
+                }
+                days |= carried;
+                if (days == 0) days = lastDays != 0 ? lastDays : ALL_DAYS;
+                for (int[] r : ranges) apply(days, r[0], r[1]);
+                lastDays = days;
+                carried = 0;
+            }
+            if (carried != 0) apply(carried, 0, 24 * 60); // days with no time are free all day
+            return slots;
+        }
+
+        /** A day, day range or day keyword at pos (consumed), or 0. */
+        private int daySpec() {
+            String tok = tokens.get(pos);
+            switch (tok) {
+                case "weekday": case "weekdays":
+                    pos++;
+                    return 0x1f;
+                case "weekend": case "weekends":
+                    pos++;
+                    return 0x60;
+                case "daily": case "everyday": case "every":
+                    pos++;
+                    return ALL_DAYS;
+                default:
+                    break;
+            }
+            int first = day(tok);
+            if (first < 0) return 0;
+            pos++;
+            if (pos + 1 < tokens.size() && (tokens.get(pos).equals("-") || tokens.get(pos).equals("to"))) {
+                int last = day(tokens.get(pos + 1));
+                if (last >= 0) {
+                    pos += 2;
+                    int mask = 0;
+                    for (int d = first; ; d = (d + 1) % 7) {
+                        mask |= 1 << d;
+                        if (d == last) break;
+                    }
+                    return mask;
+                }
+            }
+            return 1 << first;
+        }
+
+        /** 0 for Monday through 6 for Sunday: "tue", "tues", "tuesday" and "tuesdays" all count. */
+        private static int day(String tok) {
+            if (tok.length() < 3) return -1;
+            for (int d = 0; d < 7; d++) {
+                String name = DayOfWeek.of(d + 1).name().toLowerCase(Locale.ROOT);
+                if (name.startsWith(tok) || tok.equals(name + "s")) return d;
+            }
+            return -1;
+        }
+
+        /** A time range or period word at pos (consumed) as {start, end} minutes, or null. */
+        private int[] timeSpec() {
+            String tok = tokens.get(pos);
+            switch (tok) {
+                case "morning": case "mornings":
+                    pos++;
+                    return new int[]{8 * 60, 12 * 60};
+                case "afternoon": case "afternoons":
+                    pos++;
+                    return new int[]{12 * 60, 17 * 60};
+                case "evening": case "evenings":
+                    pos++;
+                    return new int[]{17 * 60, 21 * 60};
+                case "night": case "nights":
+                    pos++;
+                    return new int[]{21 * 60, 24 * 60};
+                case "anytime":
+                    pos++;
+                    return new int[]{0, 24 * 60};
+                case "all": case "any":
+                    if (pos + 1 < tokens.size() && (tokens.get(pos + 1).equals("day") || tokens.get(pos + 1).equals("time"))) {
+                        pos += 2;
+                        return new int[]{0, 24 * 60};
+                    }
+                    return null;
+                default:
+                    break;
+            }
+            int save = pos;
+            boolean after = tok.equals("after") || tok.equals("from");
+            boolean before = tok.equals("before") || tok.equals("till") || tok.equals("until");
+            if (after || before) pos++;
+            Time start = pos < tokens.size() ? time() : null;
+            if (start == null) {
+                pos = save;
+                return null;
+            }
+            if (before) return new int[]{0, start.hour24() % 24 * 60 + start.minute}; // "before 10"
+            if (pos + 1 < tokens.size() && (tokens.get(pos).equals("-") || tokens.get(pos).equals("to")
+                    || tokens.get(pos).equals("till") || tokens.get(pos).equals("until"))) {
+                pos++;
+                Time end = time();
+                if (end != null) return resolve(start, end);
+            }
+            if (after) return new int[]{start.hour24() % 24 * 60 + start.minute, 24 * 60}; // "after 5pm"
+            pos = save; // a lone time is not a range
+            return null;
+        }
+
+        /** An hour, h:mm, noon or midnight at pos, with any am/pm after it (consumed), or null. */
+        private Time time() {
+            String tok = tokens.get(pos);
+            Time t;
+            if (tok.equals("noon")) {
+                t = new Time(12, 0, 'p');
+            } else if (tok.equals("midnight")) {
+                t = new Time(24, 0, 'a');
+            } else if (Character.isDigit(tok.charAt(0))) {
+                String[] hm = tok.split(":");
+                try {
+                    int h = Integer.parseInt(hm[0]);
+                    int m = hm.length > 1 && !hm[1].isEmpty() ? Integer.parseInt(hm[1]) : 0;
+                    if (h > 24 || m > 59 || (h == 24 && m > 0)) return null;
+                    t = new Time(h, m, ' ');
+                } catch (NumberFormatException ex) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+            pos++;
+            if (pos < tokens.size() && t.meridiem == ' ') {
+                String next = tokens.get(pos);
+                if (next.equals("am") || next.equals("a")) {
+                    t.meridiem = 'a';
+                    pos++;
+                } else if (next.equals("pm") || next.equals("p")) {
+                    t.meridiem = 'p';
+                    pos++;
+                }
+            }
+            return t;
+        }
+
+        private static int[] resolve(Time start, Time end) {
+            int s = start.hour24() % 24; // a range can start at midnight
+            int e = end.hour24();
+            if (start.meridiem == ' ' && end.meridiem == 'p' && s + 12 < e) {
+                s += 12;                                   // "5-9pm"
+            } else if (start.meridiem == ' ' && end.meridiem == ' ') {
+                if (s >= 1 && s <= 7) s += 12;             // "5-8" in the evening
+                if (e <= s && e < 12) e += 12;             // "9-5"
+            }
+            return new int[]{s * 60 + start.minute, e * 60 + end.minute};
+        }
+
+        /** Sets [start, end) minutes on each day of the mask; an end at or before the start runs past midnight. */
+        private void apply(int mask, int startMinute, int endMinute) {
+            if (endMinute <= startMinute) endMinute += 24 * 60;
+            int from = startMinute / SLOT_MINUTES;
+            int to = (endMinute + SLOT_MINUTES - 1) / SLOT_MINUTES;
+            for (int d = 0; d < 7; d++) {
+                if ((mask & 1 << d) == 0) continue;
+                for (int s = from; s < to; s++) {
+                    int slot = (d * SLOTS_PER_DAY + s) % SLOTS;
+                    slots[slot >>> 6] |= 1L << slot;
+                }
+            }
+        }
+    }
+
+    /** A parsed clock time; hour 24 is the end of the day. */
+    private static final class Time {
+        final int hour;
+        final int minute;
+        char meridiem; // 'a', 'p' or ' ' for none
+
+        Time(int hour, int minute, char meridiem) {
+            this.hour = hour;
+            this.minute = minute;
+            this.meridiem = meridiem;
+        }
+
+        int hour24() {
+            if (meridiem == 'p' && hour < 12) return hour + 12;
+            if (meridiem == 'a' && hour == 12) return 0;
+            return hour;
+        }
+    }
+}
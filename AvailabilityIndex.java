@@ -0,0 +1,233 @@
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Which mentors are free when: every mentor's availability parsed into weekly half-hour slots
+ * (see Availability) and indexed as one bitset over mentor ids per slot.
+ *
+ * "Free at some point during [from, to)" ORs the bitsets of the slots the range touches; "free
+ * for all of it" ANDs them. Either way a query over thousands of mentors is a few hundred long
+ * operations. Each mentor's own slots are kept too, so checking one mentor (to filter skill
+ * search results) and replacing one mentor's availability only touch that mentor's bits.
+ *
+ * Built from the Mentors table on first use (buildInBackground() at startup), kept current by
+ * registered() and updated(), and rebuilt periodically (timebank.availability.resyncMs, default
+ * 5 minutes) to pick up changes made by other clients.
+ */
+public class AvailabilityIndex {
+
+    private static final long RESYNC_MS = Long.getLong("timebank.availability.resyncMs", 300_000L);
+
+    private static final AvailabilityIndex SHARED = new AvailabilityIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<AccountRepository.MentorProfile> mentors = new ArrayList<>(); // by id
+    private final List<long[]> weeks = new ArrayList<>();                            // by id
+    private final Map<String, Integer> idByEmail = new HashMap<>();
+    private final long[][] bySlot = new long[Availability.SLOTS][1];                 // mentor-id bitset per slot
+    // Changes seen since the last build; replayed if the build query raced with them.
+    private final List<AccountRepository.MentorProfile> registeredSinceBuild = new ArrayList<>();
+    private final Map<String, String> updatedSinceBuild = new LinkedHashMap<>();
+    private long builtAt = 0;
+    private boolean built = false;
+
+    public static AvailabilityIndex shared() {
+        return SHARED;
+    }
+
+    /**
+     * Builds the index if it has never been built or the last build is older than the resync interval.
+     * Blocking; call from a loader thread.
+     */
+    public void ensureBuilt() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (built && System.currentTimeMillis() - builtAt < RESYNC_MS) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        rebuild();
+    }
+
+    /** Starts the first build on a daemon thread, so the first query does not wait for it. */
+    public void buildInBackground() {
+        Thread t = new Thread(() -> {
+            try {
+                ensureBuilt();
+            } catch (SQLException | RuntimeException ex) {
+                ex.printStackTrace(); // the first query retries
+            }
+        }, "timebank-availability-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Rebuilds the whole index from the stored mentor profiles. */
+    public void rebuild() throws SQLException {
+        load(Storage.current().mentorProfiles());
+    }
+
+    /** Replaces the index with the given mentors, then reapplies changes made since that the list may have missed. */
+    void load(List<AccountRepository.MentorProfile> profiles) {
+        lock.writeLock().lock();
+        try {
+            mentors.clear();
+            weeks.clear();
+            idByEmail.clear();
+            for (long[] slot : bySlot) Arrays.fill(slot, 0L);
+            for (AccountRepository.MentorProfile p : profiles) add(p);
+            List<AccountRepository.MentorProfile> registered = new ArrayList<>(registeredSinceBuild);
+            registeredSinceBuild.clear();
+            for (AccountRepository.MentorProfile p : registered) {
+                if (!idByEmail.containsKey(p.email)) {
+                    add(p);
+                    registeredSinceBuild.add(p);
+                }
+            }
+            updatedSinceBuild.entrySet().removeIf(e -> {
+                Integer id = idByEmail.get(e.getKey());
+                if (id == null || mentors.get(id).availability.equals(e.getValue())) return true; // the list has it
+                replace(id, e.getValue());
+                return false;
+            });
+            built = true;
+            builtAt = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds a newly registered (committed) mentor. */
+    public void registered(AccountRepository.MentorProfile profile) {
+        lock.writeLock().lock();
+        try {
+            registeredSinceBuild.add(profile);
+            if (built && !idByEmail.containsKey(profile.email)) add(profile);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Applies a committed change of one mentor's availability. */
+    public void updated(String email, String availability) {
+        lock.writeLock().lock();
+        try {
+            updatedSinceBuild.put(email, availability);
+            Integer id = idByEmail.get(email);
+            if (built && id != null) replace(id, availability);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Caller holds the write lock. */
+    private void add(AccountRepository.MentorProfile p) {
+        int id = mentors.size();
+        mentors.add(p);
+        idByEmail.put(p.email, id);
+        if (id == bySlot[0].length * 64) {
+            for (int s = 0; s < bySlot.length; s++) bySlot[s] = Arrays.copyOf(bySlot[s], bySlot[s].length * 2);
+        }
+        long[] week = Availability.parse(p.availability);
+        weeks.add(week);
+        setBits(id, week, true);
+    }
+
+    /** Caller holds the write lock. */
+    private void replace(int id, String availability) {
+        AccountRepository.MentorProfile old = mentors.get(id);
+        setBits(id, weeks.get(id), false);
+        long[] week = Availability.parse(availability);
+        weeks.set(id, week);
+        mentors.set(id, new AccountRepository.MentorProfile(old.name, old.email, old.skills, availability));
+        setBits(id, week, true);
+    }
+
+    private void setBits(int id, long[] week, boolean on) {
+        for (int w = 0; w < week.length; w++) {
+            for (long bits = week[w]; bits != 0; bits &= bits - 1) {
+                long[] slot = bySlot[w * 64 + Long.numberOfTrailingZeros(bits)];
+                if (on) slot[id >>> 6] |= 1L << id;
+                else slot[id >>> 6] &= ~(1L << id);
+            }
+        }
+    }
+
+    /**
+     * Mentors free during [from, to) on {@code day} (a {@code to} at or before {@code from} runs
+     * past midnight), in registration order.
+     * @param whole true for free the whole time, false for free at some point of it
+     */
+    public List<AccountRepository.MentorProfile> freeDuring(DayOfWeek day, LocalTime from, LocalTime to,
+                                                            boolean whole, int limit) {
+        int[] range = Availability.slots(day, from, to);
+        List<AccountRepository.MentorProfile> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long[] acc = Arrays.copyOf(bySlot[range[0] % Availability.SLOTS], bySlot[0].length);
+            for (int s = range[0] + 1; s < range[1]; s++) {
+                long[] slot = bySlot[s % Availability.SLOTS];
+                if (whole) {
+                    for (int i = 0; i < acc.length; i++) acc[i] &= slot[i];
+                } else {
+                    for (int i = 0; i < acc.length; i++) acc[i] |= slot[i];
+                }
+            }
+            for (int i = 0; i < acc.length && out.size() < limit; i++) {
+                for (long bits = acc[i]; bits != 0 && out.size() < limit; bits &= bits - 1) {
+                    out.add(mentors.get(i * 64 + Long.numberOfTrailingZeros(bits)));
+                }
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Whether one mentor is free during [from, to) on {@code day}, as for freeDuring(); false if unknown. */
+    public boolean isFree(String email, DayOfWeek day, LocalTime from, LocalTime to, boolean whole) {
+        int[] range = Availability.slots(day, from, to);
+        lock.readLock().lock();
+        try {
+            Integer id = idByEmail.get(email);
+            if (id == null) return false;
+            long[] week = weeks.get(id);
+            for (int s = range[0]; s < range[1]; s++) {
+                boolean set = Availability.isSet(week, s);
+                if (set != whole) return set; // first free slot (some) or first busy one (whole)
+            }
+            return whole;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The stored availability text of a mentor; null if unknown. */
+    public String availabilityOf(String email) {
+        lock.readLock().lock();
+        try {
+            Integer id = idByEmail.get(email);
+            return id == null ? null : mentors.get(id).availability;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of indexed mentors. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return mentors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
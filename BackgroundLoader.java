@@ -0,0 +1,214 @@
+import javax.swing.SwingUtilities;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs dashboard queries off the Swing event thread and publishes the results back on it.
+ *
+ * Every load is tagged with a key (one per panel). If a load for the same key is still
+ * waiting in the queue, the new request is folded into it; if it is already running,
+ * the running one is cancelled and its result is thrown away. Repeated clicks on a
+ * Refresh button therefore never queue up duplicate scans. That is only right for reads: writes
+ * go through submit(), which runs every call to completion and always reports its outcome.
+ */
+public class BackgroundLoader {
+
+    private static final int WORKERS = Integer.getInteger("timebank.loader.threads", 4);
+    private static final int QUEUE_LIMIT = Integer.getInteger("timebank.loader.queueLimit", 64);
+
+    private static final BackgroundLoader SHARED = new BackgroundLoader(WORKERS, QUEUE_LIMIT);
+
+    private final ExecutorService executor;
+    private final Map<String, Task<?>> inFlight = new HashMap<>();
+
+    // Statistics
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    public BackgroundLoader(int workers, int queueLimit) {
+        AtomicInteger threadNo = new AtomicInteger();
+        // Bounded on purpose: more workers than pooled connections would only make them wait on the pool.
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLimit), r -> {
+                    Thread t = new Thread(r, "timebank-loader-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public static BackgroundLoader shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs {@code query} on a worker thread and hands its result to {@code onSuccess} on the EDT.
+     * A newer load with the same key supersedes this one.
+     */
+    public synchronized <T> void load(String key, Callable<T> query, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        Task<?> existing = inFlight.get(key);
+        if (existing != null && existing.state == Task.QUEUED) {
+            // Not started yet: let it run the latest request instead of adding another one.
+            @SuppressWarnings("unchecked")
+            Task<T> pending = (Task<T>) existing;
+            pending.retarget(query, onSuccess, onError);
+            coalesced.incrementAndGet();
+            return;
+        }
+        if (existing != null) {
+            existing.superseded = true;
+            existing.future.cancel(true);
+            cancelled.incrementAndGet();
+        }
+
+        Task<T> task = new Task<>(key, query, onSuccess, onError);
+        if (enqueue(task, onError)) inFlight.put(key, task);
+    }
+
+    /**
+     * Runs a write on a worker thread and hands its outcome to {@code onSuccess} or {@code onError}
+     * on the EDT. Never folded into or cancelled by another call, so every write reports back.
+     */
+    public synchronized <T> void submit(Callable<T> write, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        enqueue(new Task<>(null, write, onSuccess, onError), onError);
+    }
+
+    private boolean enqueue(Task<?> task, Consumer<Exception> onError) {
+        try {
+            queued.incrementAndGet();
+            task.future = executor.submit(task);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            SwingUtilities.invokeLater(() -> onError.accept(new IllegalStateException(
+                    "Too many pending data requests; please try again in a moment.", ex)));
+            return false;
+        }
+    }
+
+    private synchronized boolean start(Task<?> task) {
+        if (task.state != Task.QUEUED) return false;
+        task.state = Task.RUNNING;
+        return true;
+    }
+
+    private synchronized void finish(Task<?> task) {
+        task.state = Task.DONE;
+        if (inFlight.get(task.key) == task) inFlight.remove(task.key);
+    }
+
+    public Stats getStats() {
+        return new Stats(queued.get(), running.get(), completed.get(), failed.get(),
+                coalesced.get(), cancelled.get(), rejected.get(), queueWait, execution);
+    }
+
+    /**
+     * Queue depth, outcome counters and latency distributions of the loader.
+     */
+    public static final class Stats {
+        public final int queueDepth, running;
+        public final long completed, failed, coalesced, cancelled, rejected;
+        public final LatencyHistogram queueWait, execution;
+
+        Stats(int queueDepth, int running, long completed, long failed, long coalesced, long cancelled,
+              long rejected, LatencyHistogram queueWait, LatencyHistogram execution) {
+            this.queueDepth = queueDepth;
+            this.running = running;
+            this.completed = completed;
+            this.failed = failed;
+            this.coalesced = coalesced;
+            this.cancelled = cancelled;
+            this.rejected = rejected;
+            this.queueWait = queueWait;
+            this.execution = execution;
+        }
+
+        @Override
+        public String toString() {
+            return "loader[queued=" + queueDepth + " running=" + running + " completed=" + completed
+                    + " failed=" + failed + " coalesced=" + coalesced + " cancelled=" + cancelled
+                    + " rejected=" + rejected + "] wait{" + queueWait + "} exec{" + execution + "}";
+        }
+    }
+
+    // --- Task ---
+
+    private final class Task<T> implements Runnable {
+        static final int QUEUED = 0, RUNNING = 1, DONE = 2;
+
+        final String key; // null for writes, which are never superseded
+        final long enqueuedAt = System.nanoTime();
+        volatile int state = QUEUED;
+        volatile boolean superseded = false;
+        Future<?> future;
+
+        private Callable<T> query;
+        private Consumer<T> onSuccess;
+        private Consumer<Exception> onError;
+
+        Task(String key, Callable<T> query, Consumer<T> onSuccess, Consumer<Exception> onError) {
+            this.key = key;
+            retarget(query, onSuccess, onError);
+        }
+
+        void retarget(Callable<T> query, Consumer<T> onSuccess, Consumer<Exception> onError) {
+            this.query = query;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+        }
+
+        @Override
+        public void run() {
+            queued.decrementAndGet();
+            if (!start(this)) return;
+            Callable<T> q;
+            Consumer<T> success;
+            Consumer<Exception> error;
+            synchronized (BackgroundLoader.this) {
+                q = query;
+                success = onSuccess;
+                error = onError;
+            }
+
+            long startedAt = System.nanoTime();
+            queueWait.recordNanos(startedAt - enqueuedAt);
+            running.incrementAndGet();
+            try {
+                T result = q.call();
+                completed.incrementAndGet();
+                publish(() -> success.accept(result));
+            } catch (Exception ex) {
+                failed.incrementAndGet();
+                publish(() -> error.accept(ex));
+            } finally {
+                running.decrementAndGet();
+                execution.recordNanos(System.nanoTime() - startedAt);
+                finish(this);
+            }
+        }
+
+        private void publish(Runnable callback) {
+            if (superseded) return;
+            SwingUtilities.invokeLater(() -> {
+                if (!superseded) callback.run();
+            });
+        }
+    }
+}
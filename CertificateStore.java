@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content-addressed store for the certificate files students attach to their activities.
+ *
+ * An upload is streamed once: written to a temporary file under timebank.certificates.dir while
+ * its SHA-256 is computed, then renamed to ab/cd/<digest> (two levels of 256 directories keep
+ * each directory small). If that name exists the same bytes are already stored and the new copy
+ * is dropped, so a PDF uploaded many times is kept once. Only one 64 KB buffer is held in memory;
+ * uploads over timebank.certificates.maxBytes (default 10 MB) are refused.
+ *
+ * StudentsActivity.certificate_path holds the reference "sha256:<digest>"; older rows keep
+ * "Yes"/"No". Files are read back with FileChannel.transferTo, which the OS does without copying
+ * through the JVM when the target is a file or a socket. Stored files are never changed or
+ * deleted: any number of rows may refer to one.
+ */
+public class CertificateStore {
+
+    public static final String PREFIX = "sha256:";
+    public static final long MAX_BYTES = Long.getLong("timebank.certificates.maxBytes", 10L << 20);
+
+    private static final CertificateStore SHARED =
+            new CertificateStore(Paths.get(System.getProperty("timebank.certificates.dir", "certificates")));
+
+    private final Path root;
+
+    CertificateStore(Path root) {
+        this.root = root;
+    }
+
+    public static CertificateStore shared() {
+        return SHARED;
+    }
+
+    /** Whether a certificate_path value refers to a stored file (rather than the older "Yes"/"No"). */
+    public static boolean isReference(String value) {
+        if (value == null || value.length() != PREFIX.length() + 64 || !value.startsWith(PREFIX)) return false;
+        for (int i = PREFIX.length(); i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+        }
+        return true;
+    }
+
+    /** What the tables show for a certificate_path value. */
+    public static String label(String value) {
+        return isReference(value) ? "Attached" : value;
+    }
+
+    /**
+     * Stores the bytes of {@code in}, hashing them as they are written.
+     * @return the reference to save in certificate_path
+     * @throws TooLargeException when the stream is longer than MAX_BYTES
+     */
+    public String put(InputStream in) throws IOException {
+        Path tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload", ".part");
+        try {
+            MessageDigest sha = sha256();
+            byte[] buf = new byte[64 * 1024];
+            long size = 0;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                for (int n; (n = in.read(buf)) > 0; ) {
+                    size += n;
+                    if (size > MAX_BYTES) {
+                        throw new TooLargeException();
+                    }
+                    sha.update(buf, 0, n);
+                    ByteBuffer chunk = ByteBuffer.wrap(buf, 0, n);
+                    while (chunk.hasRemaining()) out.write(chunk);
+                }
+                out.force(true); // on disk before any row can refer to it
+            }
+            String digest = hex(sha.digest());
+            Path target = file(digest);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                // Same name, same bytes: a concurrent upload of this file may win the rename
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return PREFIX + digest;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** An upload over MAX_BYTES; nothing is kept. */
+    public static class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException() {
+            super("Certificates are limited to " + (MAX_BYTES >> 20) + " MB.");
+        }
+    }
+
+    /** Stores a local file. */
+    public String put(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return put(in);
+        }
+    }
+
+    public boolean exists(String reference) {
+        return Files.isRegularFile(path(reference));
+    }
+
+    /** Size in bytes of a stored file. */
+    public long size(String reference) throws IOException {
+        return Files.size(path(reference));
+    }
+
+    /**
+     * Writes a stored file to {@code out} with FileChannel.transferTo.
+     * @return the number of bytes written
+     */
+    public long transferTo(String reference, WritableByteChannel out) throws IOException {
+        try (FileChannel in = FileChannel.open(path(reference), StandardOpenOption.READ)) {
+            long size = in.size();
+            for (long pos = 0; pos < size; ) pos += in.transferTo(pos, size - pos, out);
+            return size;
+        }
+    }
+
+    /** Copies a stored file to {@code target}, replacing it; file to file, so the copy stays in the kernel. */
+    public void copyTo(String reference, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            transferTo(reference, out);
+        }
+    }
+
+    /** "application/pdf", "image/png" or "image/jpeg" from the file's first bytes; else "application/octet-stream". */
+    public String contentType(String reference) throws IOException {
+        byte[] head = new byte[8];
+        int n;
+        try (InputStream in = Files.newInputStream(path(reference))) {
+            n = in.readNBytes(head, 0, head.length);
+        }
+        String start = new String(head, 0, n, StandardCharsets.ISO_8859_1);
+        if (start.startsWith("%PDF")) return "application/pdf";
+        if (start.startsWith("\u0089PNG")) return "image/png";
+        if (start.startsWith("\u00ff\u00d8\u00ff")) return "image/jpeg";
+        return "application/octet-stream";
+    }
+
+    /** File extension matching contentType(), with the dot. */
+    public String extension(String reference) throws IOException {
+        switch (contentType(reference)) {
+            case "application/pdf": return ".pdf";
+            case "image/png": return ".png";
+            case "image/jpeg": return ".jpg";
+            default: return ".bin";
+        }
+    }
+
+    /** The file of a reference; rejects anything that is not one, so callers cannot name other paths. */
+    private Path path(String reference) {
+        if (!isReference(reference)) throw new IllegalArgumentException("Not a certificate reference: " + reference);
+        return file(reference.substring(PREFIX.length()));
+    }
+
+    private Path file(String digest) {
+        return root.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex); // every JDK ships it
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process notifications of committed writes, so open dashboards can apply a change to the
+ * rows they show instead of reloading them.
+ *
+ * The write paths (ActivityService, ActivityJournal, RewardRedemption) publish one typed event per
+ * change once it has committed. A subscriber names the event type it wants and the executor to be
+ * called on (SwingUtilities::invokeLater for panels). Events are coalesced per subscriber: the
+ * first one of a burst schedules a delivery timebank.changes.coalesceMs later (default 100 ms)
+ * and everything published until then goes out with it as one list, so a journal batch of 500
+ * rows costs each panel one update.
+ *
+ * Only changes made by this process are seen; writes from other clients still need a Refresh.
+ */
+public final class ChangeBus {
+
+    private static final long COALESCE_MS = Long.getLong("timebank.changes.coalesceMs", 100L);
+
+    private static final ChangeBus SHARED = new ChangeBus();
+
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService timer;
+
+    ChangeBus() {
+        ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "timebank-changes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        t.setRemoveOnCancelPolicy(true);
+        this.timer = t;
+    }
+
+    public static ChangeBus shared() {
+        return SHARED;
+    }
+
+    // --- Events ---
+
+    /** A mentor activity was saved and its points credited. */
+    public static final class MentorActivityAdded {
+        public final MentorActivity activity;
+        public final String mentorName;
+
+        public MentorActivityAdded(MentorActivity activity, String mentorName) {
+            this.activity = activity;
+            this.mentorName = mentorName;
+        }
+    }
+
+    /** A student activity was logged. */
+    public static final class StudentActivityAdded {
+        public final StudentActivity activity;
+
+        public StudentActivityAdded(StudentActivity activity) {
+            this.activity = activity;
+        }
+    }
+
+    /** Pending student activities were approved or rejected; ids that were already decided are unchanged. */
+    public static final class StudentActivitiesDecided {
+        public final List<Long> ids;
+        public final String status;
+        public final int changed; // rows that actually left Pending
+
+        public StudentActivitiesDecided(List<Long> ids, String status, int changed) {
+            this.ids = Collections.unmodifiableList(new ArrayList<>(ids));
+            this.status = status;
+            this.changed = changed;
+        }
+    }
+
+    /** A mentor redeemed a reward. */
+    public static final class RedemptionMade {
+        public final String mentorEmail;
+        public final Reward reward;
+        public final int balance; // after the redemption
+
+        public RedemptionMade(String mentorEmail, Reward reward, int balance) {
+            this.mentorEmail = mentorEmail;
+            this.reward = reward;
+            this.balance = balance;
+        }
+    }
+
+    // --- Publishing and subscribing ---
+
+    /** Hands a committed change to every subscriber of its type. Never blocks on a subscriber. */
+    public void publish(Object event) {
+        for (Subscription<?> s : subscriptions) s.offer(event);
+    }
+
+    /**
+     * Delivers events of {@code type}, in publication order, as lists on {@code executor}.
+     * @return close it to stop deliveries, e.g. when the window is disposed
+     */
+    public <E> Subscription<E> subscribe(Class<E> type, Executor executor, Consumer<List<E>> listener) {
+        Subscription<E> s = new Subscription<>(this, type, executor, listener);
+        subscriptions.add(s);
+        return s;
+    }
+
+    public static final class Subscription<E> implements AutoCloseable {
+        private final ChangeBus bus;
+        private final Class<E> type;
+        private final Executor executor;
+        private final Consumer<List<E>> listener;
+        private List<E> pending = new ArrayList<>();
+        private boolean scheduled;
+        private volatile boolean closed;
+
+        Subscription(ChangeBus bus, Class<E> type, Executor executor, Consumer<List<E>> listener) {
+            this.bus = bus;
+            this.type = type;
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        private void offer(Object event) {
+            if (closed || !type.isInstance(event)) return;
+            synchronized (this) {
+                pending.add(type.cast(event));
+                if (scheduled) return; // folded into the delivery already on its way
+                scheduled = true;
+            }
+            bus.timer.schedule(this::flush, COALESCE_MS, TimeUnit.MILLISECONDS);
+        }
+
+        private void flush() {
+            List<E> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+                scheduled = false;
+            }
+            executor.execute(() -> {
+                if (closed) return;
+                try {
+                    listener.accept(batch);
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace(); // one failing view must not stop later deliveries
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            bus.subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of physical MySQL connections.
+ * Callers receive a proxy whose close() hands the connection back to the pool
+ * instead of tearing down the socket, so the existing
+ * getConnection()/DatabaseManager.close(conn) pattern keeps working unchanged.
+ * Statements created on a handle are timed per query by QueryMetrics.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int minIdle;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long acquireTimeoutMs;
+    private final long validateAfterMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private int totalOpen = 0;   // idle + in use + being opened
+    private int inUse = 0;
+    private int peakInUse = 0;
+    private boolean shutdown = false;
+
+    // Statistics
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong(); // summed checkout time
+    private final long startNanos = System.nanoTime();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String user, String pass,
+                          int minIdle, int maxSize, long idleTimeoutMs, long acquireTimeoutMs, long validateAfterMs) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minIdle + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.validateAfterMs = validateAfterMs;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "timebank-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMs / 2, 30_000));
+        housekeeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        housekeeper.execute(this::fillToMinimum);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the acquire timeout when the pool is exhausted.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        acquireCount.incrementAndGet();
+        PooledEntry entry = null;
+        boolean mustCreate = false;
+
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+            boolean waited = false;
+            while (true) {
+                if (shutdown) throw new SQLException("Connection pool has been shut down.");
+                if (!idle.isEmpty()) {
+                    entry = idle.pollFirst(); // most recently returned: warmest connection
+                    break;
+                }
+                if (totalOpen < maxSize) {
+                    totalOpen++;
+                    mustCreate = true;
+                    break;
+                }
+                if (remaining <= 0) {
+                    timeoutCount.incrementAndGet();
+                    throw new SQLException("Timed out after " + acquireTimeoutMs + " ms waiting for a database connection ("
+                            + inUse + "/" + maxSize + " in use).");
+                }
+                waited = true;
+                try {
+                    remaining = available.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection.", e);
+                }
+            }
+            if (waited) waitCount.incrementAndGet();
+            inUse++;
+            peakInUse = Math.max(peakInUse, inUse);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            if (mustCreate) {
+                entry = new PooledEntry(openPhysical());
+            } else if (!validate(entry)) {
+                evictedCount.incrementAndGet();
+                DatabaseManager.close(entry.physical);
+                entry = new PooledEntry(openPhysical());
+            }
+        } catch (SQLException e) {
+            lock.lock();
+            try {
+                totalOpen--;
+                inUse--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        long waitedNanos = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waitedNanos);
+        maxWaitNanos.accumulateAndGet(waitedNanos, Math::max);
+        entry.checkedOutAt = System.nanoTime();
+        return entry.newHandle();
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection c = DriverManager.getConnection(url, user, pass);
+        createdCount.incrementAndGet();
+        return c;
+    }
+
+    /** Only pings connections that sat idle long enough for the server or a firewall to have dropped them. */
+    private boolean validate(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastReturnedAt < validateAfterMs) return true;
+        try {
+            return entry.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        busyNanos.addAndGet(System.nanoTime() - entry.checkedOutAt);
+        boolean healthy = resetForReuse(entry.physical);
+        lock.lock();
+        try {
+            inUse--;
+            if (healthy && !shutdown) {
+                entry.lastReturnedAt = System.currentTimeMillis();
+                idle.addFirst(entry);
+            } else {
+                totalOpen--;
+                evictedCount.incrementAndGet();
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (!healthy || shutdown) DatabaseManager.close(entry.physical);
+    }
+
+    /** Undo anything a borrower may have changed so the next borrower sees a clean connection. */
+    private boolean resetForReuse(Connection c) {
+        try {
+            if (c.isClosed()) return false;
+            if (!c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+            if (c.isReadOnly()) c.setReadOnly(false);
+            c.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Deque<PooledEntry> expired = new ArrayDeque<>();
+        lock.lock();
+        try {
+            // Oldest idle connections sit at the tail.
+            while (idle.size() > minIdle && now - idle.peekLast().lastReturnedAt > idleTimeoutMs) {
+                expired.add(idle.pollLast());
+                totalOpen--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledEntry e : expired) {
+            evictedCount.incrementAndGet();
+            DatabaseManager.close(e.physical);
+        }
+        fillToMinimum();
+    }
+
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (shutdown || idle.size() >= minIdle || totalOpen >= maxSize) return;
+                totalOpen++;
+            } finally {
+                lock.unlock();
+            }
+            PooledEntry entry;
+            try {
+                entry = new PooledEntry(openPhysical());
+            } catch (SQLException e) {
+                lock.lock();
+                try {
+                    totalOpen--;
+                } finally {
+                    lock.unlock();
+                }
+                return; // Server unreachable; borrowers will surface the error.
+            }
+            lock.lock();
+            try {
+                entry.lastReturnedAt = System.currentTimeMillis();
+                idle.addLast(entry);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Closes idle connections and makes connections still in use close on return.
+     */
+    public void shutdown() {
+        housekeeper.shutdownNow();
+        Deque<PooledEntry> toClose;
+        lock.lock();
+        try {
+            shutdown = true;
+            toClose = new ArrayDeque<>(idle);
+            totalOpen -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledEntry e : toClose) DatabaseManager.close(e.physical);
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            long elapsed = System.nanoTime() - startNanos;
+            long acquires = acquireCount.get();
+            return new Stats(totalOpen, idle.size(), inUse, peakInUse, maxSize,
+                    acquires, waitCount.get(), timeoutCount.get(),
+                    acquires == 0 ? 0 : totalWaitNanos.get() / acquires, maxWaitNanos.get(),
+                    createdCount.get(), evictedCount.get(),
+                    elapsed == 0 ? 0 : (double) busyNanos.get() / ((double) elapsed * maxSize));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of pool usage.
+     * utilization is the share of total pool capacity that has been checked out since start-up.
+     */
+    public static final class Stats {
+        public final int open, idle, inUse, peakInUse, maxSize;
+        public final long acquires, waits, timeouts, avgWaitNanos, maxWaitNanos, created, evicted;
+        public final double utilization;
+
+        Stats(int open, int idle, int inUse, int peakInUse, int maxSize, long acquires, long waits, long timeouts,
+              long avgWaitNanos, long maxWaitNanos, long created, long evicted, double utilization) {
+            this.open = open;
+            this.idle = idle;
+            this.inUse = inUse;
+            this.peakInUse = peakInUse;
+            this.maxSize = maxSize;
+            this.acquires = acquires;
+            this.waits = waits;
+            this.timeouts = timeouts;
+            this.avgWaitNanos = avgWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.created = created;
+            this.evicted = evicted;
+            this.utilization = utilization;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pool[open=%d idle=%d inUse=%d peak=%d max=%d acquires=%d waited=%d timeouts=%d "
+                            + "avgWait=%.3fms maxWait=%.3fms created=%d evicted=%d utilization=%.1f%%]",
+                    open, idle, inUse, peakInUse, maxSize, acquires, waits, timeouts,
+                    avgWaitNanos / 1e6, maxWaitNanos / 1e6, created, evicted, utilization * 100);
+        }
+    }
+
+    // --- Pooled connection bookkeeping ---
+
+    private final class PooledEntry {
+        final Connection physical;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        long checkedOutAt;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection. Once closed the handle is dead even if the
+     * physical connection has been lent to someone else in the meantime.
+     */
+    private final class Handle implements InvocationHandler {
+        private PooledEntry entry;
+
+        Handle(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    synchronized (this) {
+                        if (entry != null) {
+                            PooledEntry e = entry;
+                            entry = null;
+                            release(e);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return entry == null || entry.physical.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    break;
+            }
+            PooledEntry e;
+            synchronized (this) {
+                e = entry;
+            }
+            if (e == null) throw new SQLException("Connection has already been returned to the pool.");
+            Object result;
+            try {
+                result = method.invoke(e.physical, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if (result instanceof Statement && QueryMetrics.ENABLED) {
+                // prepareStatement/prepareCall pass the SQL first; createStatement has none
+                return QueryMetrics.wrap((Statement) result, name.startsWith("prepare") ? (String) args[0] : null);
+            }
+            return result;
+        }
+    }
+}
@@ -15,6 +15,23 @@ public class DatabaseManager {
     // JDBC Driver name
     private static final String JDBC_DRIVER = "com.mysql.cj.jdbc.Driver";
 
+    // Connector/J keeps a per-connection cache of server-side prepared statements,
+    // so a pooled connection only parses each distinct SQL string once.
+    private static final String STATEMENT_CACHE_OPTIONS =
+            "useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=256&prepStmtCacheSqlLimit=2048"
+            + "&useLocalSessionState=true"
+            // Lets executeBatch() send one multi-row INSERT instead of a round trip per row
+            + "&rewriteBatchedStatements=true";
+
+    // Pool settings, overridable with -Dtimebank.pool.<name>=value
+    private static final int POOL_MIN_IDLE = Integer.getInteger("timebank.pool.minIdle", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("timebank.pool.maxSize", 8);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("timebank.pool.idleTimeoutMs", 300_000L);
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = Long.getLong("timebank.pool.acquireTimeoutMs", 10_000L);
+    private static final long POOL_VALIDATE_AFTER_MS = Long.getLong("timebank.pool.validateAfterMs", 30_000L);
+
+    private static volatile ConnectionPool pool;
+
     static {
         try {
             // Register JDBC driver
@@ -28,12 +45,12 @@ public class DatabaseManager {
     }
 
     /**
-     * Establishes a connection to the database.
+     * Borrows a connection from the shared pool. Closing it returns it to the pool.
      * @return Connection object, or null if connection fails.
      */
     public static Connection getConnection() {
         try {
-            return DriverManager.getConnection(DB_URL, USER, PASS);
+            return getPool().getConnection();
         } catch (SQLException e) {
             System.err.println("Database Connection Failed!");
             e.printStackTrace();
@@ -42,6 +59,93 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Lazily creates the shared pool on first use.
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseManager.class) {
+                p = pool;
+                if (p == null) {
+                    String url = System.getProperty("timebank.db.url", DB_URL);
+                    url += (url.contains("?") ? "&" : "?") + STATEMENT_CACHE_OPTIONS;
+                    p = new ConnectionPool(url,
+                            System.getProperty("timebank.db.user", USER),
+                            System.getProperty("timebank.db.password", PASS),
+                            POOL_MIN_IDLE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MS,
+                            POOL_ACQUIRE_TIMEOUT_MS, POOL_VALIDATE_AFTER_MS);
+                    pool = p;
+                    final ConnectionPool created = p;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        if (Boolean.getBoolean("timebank.pool.logStats")) {
+                            System.out.println(created.getStats());
+                        }
+                        created.shutdown();
+                    }, "timebank-pool-shutdown"));
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Current pool wait time and utilization figures.
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * A unit of JDBC work run against a borrowed connection.
+     */
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs {@code work} on a pooled connection and returns it to the pool afterwards.
+     * Unlike getConnection(), failures are thrown rather than shown in a dialog.
+     */
+    public static <T> T withConnection(SqlWork<T> work) throws SQLException {
+        Connection conn = getPool().getConnection();
+        try {
+            return work.run(conn);
+        } finally {
+            close(conn);
+        }
+    }
+
+    /**
+     * Runs {@code work} in a single transaction: committed if it returns normally, rolled back if it throws.
+     */
+    public static <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        Connection conn = getPool().getConnection();
+        try {
+            conn.setAutoCommit(false);
+            T result = work.run(conn);
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            close(conn);
+        }
+    }
+
+    /**
+     * Rolls back an open transaction, logging rather than throwing on failure.
+     */
+    public static void rollbackQuietly(Connection conn) {
+        if (conn == null) return;
+        try {
+            if (!conn.getAutoCommit()) conn.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Utility method to close resources quietly.
      */
@@ -0,0 +1,968 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Serverless Storage for small sites and tests: every change is a record appended to a
+ * memory-mapped log, and all tables live in memory, indexed the way the dashboards read them.
+ *
+ * Layout of timebank.storage.dir:
+ *   log-000001.seg ...  log segments of timebank.storage.segmentBytes (default 64 MB), mapped read-write
+ *   snapshot.dat        the whole state as of the start of some segment, written by compaction
+ *   store.lock          held while a process has the store open
+ *
+ * A record is [payload length][CRC32 of payload][payload]; the unused tail of a segment is zeros.
+ * Each write is forced to disk before it is acknowledged (timebank.storage.sync=false leaves that
+ * to the OS). On open the snapshot is loaded and the later segments replayed up to the first
+ * torn or corrupt record, which can only be the unacknowledged tail of the last segment.
+ *
+ * When timebank.storage.compactSegments (default 4) segments have filled since the last snapshot,
+ * a new snapshot is written (to a temporary file, then renamed) and the segments it covers deleted.
+ *
+ * Indexes: accounts by email; activities by id, and per email ordered by (date, id) for reports
+ * and the student log's keyset pages; running hours/earned/spent per mentor for balances and the
+ * leaderboard; per mentor and day (month) activity totals, as in ActivityRollups, for period totals;
+ * the Pending student activities by (date, id) and row counts per status for the approval queue. One read-write lock guards it all, so every write, redemptions included, is atomic.
+ */
+public final class EmbeddedStorage implements Storage {
+
+    private static final long SEGMENT_BYTES = Long.getLong("timebank.storage.segmentBytes", 64L << 20);
+    private static final int COMPACT_SEGMENTS = Integer.getInteger("timebank.storage.compactSegments", 4);
+    private static final boolean SYNC = !"false".equals(System.getProperty("timebank.storage.sync"));
+
+    private static final int SNAPSHOT_MAGIC = 0x54425331; // "TBS1"
+    private static final String SNAPSHOT = "snapshot.dat";
+
+    // Record types
+    private static final byte STUDENT = 1;
+    private static final byte MENTOR = 2;
+    private static final byte PASSWORD = 3;
+    private static final byte MENTOR_ACTIVITY = 4;
+    private static final byte STUDENT_ACTIVITY = 5;
+    private static final byte REWARD = 6;
+    private static final byte REDEMPTION = 7;
+    private static final byte CATALOG_VERSION = 8; // snapshots only
+    private static final byte STATUS_CHANGE = 9;
+    private static final byte AVAILABILITY = 10;
+
+    private final Path dir;
+    private final FileLock ownership;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Log
+    private long firstSegment = 1; // oldest segment not covered by the snapshot
+    private long segmentNo;
+    private MappedByteBuffer segment;
+    private int segmentPos;
+
+    // Tables and indexes
+    private final Map<String, Account> students = new HashMap<>();
+    private final Map<String, Account> mentors = new HashMap<>();
+    private final Map<Long, MentorActivity> mentorActivities = new HashMap<>();
+    private final Map<String, NavigableMap<Key, MentorActivity>> mentorActivitiesByEmail = new HashMap<>();
+    private final Map<Long, StudentActivity> studentActivities = new HashMap<>();
+    private final Map<String, NavigableMap<Key, StudentActivity>> studentActivitiesByEmail = new HashMap<>();
+    private final NavigableMap<Key, StudentActivity> pendingStudentActivities = new TreeMap<>();
+    private final Map<String, Long> statusCounts = new TreeMap<>();
+    private final TreeMap<Integer, Reward> rewards = new TreeMap<>();
+    private final List<Redemption> redemptions = new ArrayList<>();
+    private final Map<String, Totals> totals = new HashMap<>();
+    private final Map<String, NavigableMap<Long, long[]>> dailyRollups = new HashMap<>();   // epoch day -> activities, hours, points
+    private final Map<String, NavigableMap<Long, long[]>> monthlyRollups = new HashMap<>(); // epoch day of the 1st -> same
+    private long catalogVersion;
+    private long lastMentorActivityId;
+    private long lastStudentActivityId;
+    private long lastRedemptionId;
+
+    /** A Students or Mentors row; a, b, c are department/year/contact or skills/availability/contact. */
+    private static final class Account {
+        final String name, email, a, c;
+        String password, b; // a mentor's availability can be edited
+
+        Account(String name, String email, String password, String a, String b, String c) {
+            this.name = name;
+            this.email = email;
+            this.password = password;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+    }
+
+    /** Sort key of an activity within one email's index. */
+    private static final class Key implements Comparable<Key> {
+        final long day;
+        final long id;
+
+        Key(LocalDate date, long id) {
+            this.day = date.toEpochDay();
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int c = Long.compare(day, o.day);
+            return c != 0 ? c : Long.compare(id, o.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).day == day && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(day * 31 + id);
+        }
+    }
+
+    /** Running sums per mentor, kept in step with the activity and redemption ledgers. */
+    private static final class Totals {
+        long hours, earned, spent, lastActivityId;
+    }
+
+    private EmbeddedStorage(Path dir, FileLock ownership) {
+        this.dir = dir;
+        this.ownership = ownership;
+    }
+
+    /** Opens (creating or recovering) the store in {@code dir}. */
+    public static EmbeddedStorage open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        FileChannel lockChannel = FileChannel.open(dir.resolve("store.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException(dir + " is open in another process");
+        }
+        EmbeddedStorage store = new EmbeddedStorage(dir, lock);
+        store.recover();
+        return store;
+    }
+
+    /** Releases the store; later calls fail. Writes are already on disk. */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (segment != null) segment.force();
+            segment = null;
+            ownership.release();
+            ownership.channel().close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Accounts ---
+
+    @Override
+    public AccountRepository.Credentials findCredentials(AccountRepository.Role role, String email) {
+        lock.readLock().lock();
+        try {
+            Account a = accounts(role).get(email);
+            return a == null ? null : new AccountRepository.Credentials(a.name, a.password);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int replacePassword(AccountRepository.Role role, String email, String expected, String replacement)
+            throws SQLException {
+        lock.writeLock().lock();
+        try {
+            Account a = accounts(role).get(email);
+            if (a == null || !a.password.equals(expected)) return 0;
+            write(record(PASSWORD).b(role == AccountRepository.Role.STUDENT ? STUDENT : MENTOR).s(email).s(replacement));
+            a.password = replacement;
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void insertStudent(String name, String email, String password, String department, String year,
+                              String contactNo) throws SQLException {
+        insertAccount(STUDENT, new Account(name, email, password, department, year, contactNo));
+    }
+
+    @Override
+    public void insertMentor(String name, String email, String password, String skills, String availability,
+                             String contactNo) throws SQLException {
+        insertAccount(MENTOR, new Account(name, email, password, skills, availability, contactNo));
+    }
+
+    private void insertAccount(byte type, Account a) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            Map<String, Account> table = type == STUDENT ? students : mentors;
+            if (table.containsKey(a.email)) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + a.email + "' for key '"
+                        + (type == STUDENT ? "Students" : "Mentors") + ".email'", "23000", 1062);
+            }
+            write(account(type, a));
+            table.put(a.email, a);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateMentorAvailability(String email, String availability) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            Account m = mentors.get(email);
+            if (m == null) return 0;
+            write(record(AVAILABILITY).s(email).s(availability));
+            m.b = availability;
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<AccountRepository.MentorProfile> mentorProfiles() {
+        lock.readLock().lock();
+        try {
+            List<AccountRepository.MentorProfile> profiles = new ArrayList<>(mentors.size());
+            for (Account m : mentors.values()) profiles.add(new AccountRepository.MentorProfile(m.name, m.email, m.a, m.b));
+            return profiles;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Account> accounts(AccountRepository.Role role) {
+        return role == AccountRepository.Role.STUDENT ? students : mentors;
+    }
+
+    // --- Mentor activities and balances ---
+
+    @Override
+    public long addMentorActivity(MentorActivity activity) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            requireParent(mentors, "Mentors", activity.mentorEmail);
+            MentorActivity saved = activity.withId(lastMentorActivityId + 1);
+            write(mentorActivity(saved));
+            apply(saved);
+            return saved.id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MentorActivityRepository.MentorTotals> mentorTotals() {
+        lock.readLock().lock();
+        try {
+            List<MentorActivityRepository.MentorTotals> list = new ArrayList<>();
+            for (Map.Entry<String, Totals> e : totals.entrySet()) {
+                Totals t = e.getValue();
+                if (t.lastActivityId == 0) continue; // redemptions only
+                Account m = mentors.get(e.getKey());
+                list.add(new MentorActivityRepository.MentorTotals(e.getKey(), m == null ? e.getKey() : m.name,
+                        t.hours, t.earned, t.lastActivityId));
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachMentorActivity(String mentorEmail, LocalDate from, LocalDate toExclusive,
+                                      RowHandler<MentorActivity> handler) throws IOException {
+        // Copied under the lock so a slow consumer (a file, an HTTP client) does not hold up writers
+        List<MentorActivity> rows;
+        lock.readLock().lock();
+        try {
+            NavigableMap<Key, MentorActivity> index = mentorActivitiesByEmail.get(mentorEmail);
+            if (index == null) return;
+            rows = new ArrayList<>(index.subMap(new Key(from, Long.MIN_VALUE), true,
+                    new Key(toExclusive, Long.MIN_VALUE), false).descendingMap().values());
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (MentorActivity a : rows) handler.handle(a);
+    }
+
+    @Override
+    public ActivityRollups.Totals periodTotals(String mentorEmail, LocalDate from, LocalDate toExclusive) {
+        LocalDate[] months = ActivityRollups.wholeMonths(from, toExclusive);
+        long[] sum = new long[3];
+        lock.readLock().lock();
+        try {
+            addRange(sum, dailyRollups.get(mentorEmail), from, months[0]);
+            addRange(sum, monthlyRollups.get(mentorEmail), months[0], months[1]);
+            addRange(sum, dailyRollups.get(mentorEmail), months[1], toExclusive);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ActivityRollups.Totals(sum[0], sum[1], sum[2]);
+    }
+
+    @Override
+    public ActivityRollups.Recent recentDailyTotals(LocalDate from) {
+        lock.readLock().lock();
+        try {
+            List<ActivityRollups.Day> days = new ArrayList<>();
+            for (Map.Entry<String, NavigableMap<Long, long[]>> e : dailyRollups.entrySet()) {
+                Account m = mentors.get(e.getKey());
+                for (Map.Entry<Long, long[]> d : e.getValue().tailMap(from.toEpochDay(), true).entrySet()) {
+                    days.add(new ActivityRollups.Day(e.getKey(), m == null ? e.getKey() : m.name,
+                            LocalDate.ofEpochDay(d.getKey()), d.getValue()[1], d.getValue()[2]));
+                }
+            }
+            return new ActivityRollups.Recent(days);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addRange(long[] sum, NavigableMap<Long, long[]> rollup, LocalDate from, LocalDate toExclusive) {
+        if (rollup == null || !from.isBefore(toExclusive)) return;
+        for (long[] t : rollup.subMap(from.toEpochDay(), true, toExclusive.toEpochDay(), false).values()) {
+            for (int i = 0; i < 3; i++) sum[i] += t[i];
+        }
+    }
+
+    @Override
+    public int balance(String mentorEmail) {
+        lock.readLock().lock();
+        try {
+            return balanceOf(mentorEmail);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int balanceOf(String mentorEmail) {
+        Totals t = totals.get(mentorEmail);
+        return t == null ? 0 : (int) (t.earned - t.spent);
+    }
+
+    // --- Student activities ---
+
+    @Override
+    public long addStudentActivity(StudentActivity activity) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            requireParent(students, "Students", activity.studentEmail);
+            StudentActivity saved = activity.withId(lastStudentActivityId + 1);
+            write(studentActivity(saved));
+            apply(saved);
+            return saved.id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int countStudentActivities(String studentEmail) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Key, StudentActivity> index = studentActivitiesByEmail.get(studentEmail);
+            return index == null ? 0 : index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StudentActivity> studentActivityPage(String studentEmail, StudentActivityRepository.Cursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            List<StudentActivity> page = new ArrayList<>(limit);
+            for (StudentActivity a : newestFirst(studentEmail, after).values()) {
+                if (page.size() == limit) break;
+                page.add(a);
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StudentActivityRepository.Cursor> studentActivityPageEnds(String studentEmail,
+            StudentActivityRepository.Cursor after, int pages, int pageSize) {
+        lock.readLock().lock();
+        try {
+            List<StudentActivityRepository.Cursor> ends = new ArrayList<>(pages);
+            int n = 0;
+            for (StudentActivity a : newestFirst(studentEmail, after).values()) {
+                if (++n % pageSize == 0) {
+                    ends.add(StudentActivityRepository.Cursor.of(a));
+                    if (ends.size() == pages) break;
+                }
+            }
+            return ends;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The student's log in (date desc, id desc) order, starting right after {@code after}. */
+    private NavigableMap<Key, StudentActivity> newestFirst(String studentEmail, StudentActivityRepository.Cursor after) {
+        NavigableMap<Key, StudentActivity> index = studentActivitiesByEmail.get(studentEmail);
+        if (index == null) return Collections.emptyNavigableMap();
+        NavigableMap<Key, StudentActivity> desc = index.descendingMap();
+        return after == null ? desc : desc.tailMap(new Key(after.date, after.id), false);
+    }
+
+    // --- Approval queue ---
+
+    @Override
+    public Map<String, Long> studentActivityStatusCounts() {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new HashMap<>(statusCounts);
+            counts.values().removeIf(n -> n == 0);
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StudentActivity> pendingStudentActivities(StudentActivityRepository.Cursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Key, StudentActivity> rest = after == null ? pendingStudentActivities
+                    : pendingStudentActivities.tailMap(new Key(after.date, after.id), false);
+            List<StudentActivity> page = new ArrayList<>(limit);
+            for (StudentActivity a : rest.values()) {
+                if (page.size() == limit) break;
+                page.add(a);
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int decideStudentActivities(List<Long> logIds, String status) throws SQLException {
+        if (!ApprovalQueue.APPROVED.equals(status) && !ApprovalQueue.REJECTED.equals(status)) {
+            throw new IllegalArgumentException("A pending activity can only be approved or rejected.");
+        }
+        lock.writeLock().lock();
+        try {
+            Set<Long> pending = new LinkedHashSet<>();
+            for (long id : logIds) {
+                StudentActivity a = studentActivities.get(id);
+                if (a != null && ApprovalQueue.PENDING.equals(a.status)) pending.add(id);
+            }
+            if (pending.isEmpty()) return 0;
+            Out record = record(STATUS_CHANGE).s(status).i(pending.size());
+            for (long id : pending) record.l(id);
+            write(record);
+            return applyStatus(new ArrayList<>(pending), status).size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Rewards and redemptions ---
+
+    @Override
+    public long rewardCatalogVersion() {
+        lock.readLock().lock();
+        try {
+            return catalogVersion;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reward> rewards() {
+        lock.readLock().lock();
+        try {
+            List<Reward> list = new ArrayList<>(rewards.values());
+            list.sort((x, y) -> x.cost != y.cost ? Integer.compare(x.cost, y.cost) : Integer.compare(x.id, y.id));
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a reward ({@code id} 0) or changes one; the Rewards table has no admin screen, so
+     * embedded sites manage the catalog through this.
+     */
+    public Reward saveReward(int id, String name, int cost) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            Reward r = new Reward(id != 0 ? id : (rewards.isEmpty() ? 1 : rewards.lastKey() + 1), name, cost);
+            write(reward(r));
+            apply(r);
+            return r;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public RewardRedemption.Result redeem(String mentorEmail, Reward reward, long catalogVersion) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            requireParent(mentors, "Mentors", mentorEmail);
+            requireParent(rewards, "Rewards", reward.id);
+            int balance = balanceOf(mentorEmail);
+            if (catalogVersion >= 0 && catalogVersion != this.catalogVersion) {
+                return new RewardRedemption.Result(RewardRedemption.Status.CATALOG_CHANGED, balance);
+            }
+            if (balance < reward.cost) {
+                return new RewardRedemption.Result(RewardRedemption.Status.INSUFFICIENT_POINTS, balance);
+            }
+            Redemption r = new Redemption(lastRedemptionId + 1, mentorEmail, reward.id, reward.cost, LocalDateTime.now());
+            write(redemption(r));
+            apply(r);
+            return new RewardRedemption.Result(RewardRedemption.Status.REDEEMED, balance - reward.cost);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void requireParent(Map<?, ?> table, String name, Object key) throws SQLException {
+        if (!table.containsKey(key)) {
+            throw new SQLIntegrityConstraintViolationException(
+                    "Cannot add or update a child row: no " + name + " row for '" + key + "'", "23000", 1452);
+        }
+    }
+
+    // --- Applying records to the in-memory tables ---
+
+    private void apply(MentorActivity a) {
+        mentorActivities.put(a.id, a);
+        mentorActivitiesByEmail.computeIfAbsent(a.mentorEmail, k -> new TreeMap<>()).put(new Key(a.date, a.id), a);
+        Totals t = totals.computeIfAbsent(a.mentorEmail, k -> new Totals());
+        t.hours += a.hours;
+        t.earned += a.points;
+        t.lastActivityId = Math.max(t.lastActivityId, a.id);
+        roll(dailyRollups, a, a.date.toEpochDay());
+        roll(monthlyRollups, a, a.date.withDayOfMonth(1).toEpochDay());
+        lastMentorActivityId = Math.max(lastMentorActivityId, a.id);
+    }
+
+    private static void roll(Map<String, NavigableMap<Long, long[]>> rollups, MentorActivity a, long key) {
+        long[] t = rollups.computeIfAbsent(a.mentorEmail, k -> new TreeMap<>()).computeIfAbsent(key, k -> new long[3]);
+        t[0]++;
+        t[1] += a.hours;
+        t[2] += a.points;
+    }
+
+    private void apply(StudentActivity a) {
+        Key key = new Key(a.date, a.id);
+        studentActivities.put(a.id, a);
+        studentActivitiesByEmail.computeIfAbsent(a.studentEmail, k -> new TreeMap<>()).put(key, a);
+        if (ApprovalQueue.PENDING.equals(a.status)) pendingStudentActivities.put(key, a);
+        statusCounts.merge(a.status, 1L, Long::sum);
+        lastStudentActivityId = Math.max(lastStudentActivityId, a.id);
+    }
+
+    /** Moves Pending activities to {@code status}; returns the ids that changed. */
+    private List<Long> applyStatus(List<Long> ids, String status) {
+        List<Long> changed = new ArrayList<>();
+        for (long id : ids) {
+            StudentActivity a = studentActivities.get(id);
+            if (a == null || !ApprovalQueue.PENDING.equals(a.status)) continue;
+            StudentActivity decided = new StudentActivity(a.id, a.studentEmail, a.name, a.type, a.date, status,
+                    a.certificate, a.remarks);
+            Key key = new Key(a.date, a.id);
+            studentActivities.put(id, decided);
+            studentActivitiesByEmail.get(a.studentEmail).put(key, decided);
+            pendingStudentActivities.remove(key);
+            changed.add(id);
+        }
+        if (!changed.isEmpty()) {
+            statusCounts.merge(ApprovalQueue.PENDING, (long) -changed.size(), Long::sum);
+            statusCounts.merge(status, (long) changed.size(), Long::sum);
+        }
+        return changed;
+    }
+
+    private void apply(Reward r) {
+        rewards.put(r.id, r);
+        catalogVersion++;
+    }
+
+    private void apply(Redemption r) {
+        redemptions.add(r);
+        totals.computeIfAbsent(r.mentorEmail, k -> new Totals()).spent += r.pointsSpent;
+        lastRedemptionId = Math.max(lastRedemptionId, r.id);
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        In in = new In(payload);
+        byte type = in.b();
+        switch (type) {
+            case STUDENT:
+            case MENTOR: {
+                Account a = new Account(in.s(), in.s(), in.s(), in.s(), in.s(), in.s());
+                (type == STUDENT ? students : mentors).put(a.email, a);
+                break;
+            }
+            case PASSWORD: {
+                Map<String, Account> table = in.b() == STUDENT ? students : mentors;
+                Account a = table.get(in.s());
+                String password = in.s();
+                if (a != null) a.password = password;
+                break;
+            }
+            case MENTOR_ACTIVITY:
+                apply(new MentorActivity(in.l(), in.s(), in.s(), in.s(), LocalDate.ofEpochDay(in.l()), in.i(), in.i()));
+                break;
+            case STUDENT_ACTIVITY:
+                apply(new StudentActivity(in.l(), in.s(), in.s(), in.s(), LocalDate.ofEpochDay(in.l()), in.s(), in.s(), in.s()));
+                break;
+            case REWARD:
+                apply(new Reward(in.i(), in.s(), in.i()));
+                break;
+            case REDEMPTION:
+                apply(new Redemption(in.l(), in.s(), in.i(), in.i(), LocalDateTime.parse(in.s())));
+                break;
+            case CATALOG_VERSION:
+                catalogVersion = in.l();
+                break;
+            case STATUS_CHANGE: {
+                String status = in.s();
+                List<Long> ids = new ArrayList<>();
+                for (int n = in.i(); n > 0; n--) ids.add(in.l());
+                applyStatus(ids, status);
+                break;
+            }
+            case AVAILABILITY: {
+                Account m = mentors.get(in.s());
+                String availability = in.s();
+                if (m != null) m.b = availability;
+                break;
+            }
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    // --- Record encoding ---
+
+    private static Out record(byte type) {
+        return new Out().b(type);
+    }
+
+    private static Out account(byte type, Account a) {
+        return record(type).s(a.name).s(a.email).s(a.password).s(a.a).s(a.b).s(a.c);
+    }
+
+    private static Out mentorActivity(MentorActivity a) {
+        return record(MENTOR_ACTIVITY).l(a.id).s(a.mentorEmail).s(a.name).s(a.type).l(a.date.toEpochDay()).i(a.hours).i(a.points);
+    }
+
+    private static Out studentActivity(StudentActivity a) {
+        return record(STUDENT_ACTIVITY).l(a.id).s(a.studentEmail).s(a.name).s(a.type).l(a.date.toEpochDay())
+                .s(a.status).s(a.certificate).s(a.remarks);
+    }
+
+    private static Out reward(Reward r) {
+        return record(REWARD).i(r.id).s(r.name).i(r.cost);
+    }
+
+    private static Out redemption(Redemption r) {
+        return record(REDEMPTION).l(r.id).s(r.mentorEmail).i(r.rewardId).i(r.pointsSpent).s(r.date.toString());
+    }
+
+    /** Builds one record payload. */
+    private static final class Out {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        private final DataOutputStream data = new DataOutputStream(bytes);
+
+        Out b(byte v) {
+            return put(() -> data.writeByte(v));
+        }
+
+        Out i(int v) {
+            return put(() -> data.writeInt(v));
+        }
+
+        Out l(long v) {
+            return put(() -> data.writeLong(v));
+        }
+
+        Out s(String v) {
+            return put(() -> {
+                if (v == null) {
+                    data.writeInt(-1);
+                    return;
+                }
+                byte[] utf8 = v.getBytes(StandardCharsets.UTF_8);
+                data.writeInt(utf8.length);
+                data.write(utf8);
+            });
+        }
+
+        private interface Put {
+            void run() throws IOException;
+        }
+
+        private Out put(Put p) {
+            try {
+                p.run();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex); // ByteArrayOutputStream does not fail
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /** Reads one record payload. */
+    private static final class In {
+        private final ByteBuffer buf;
+
+        In(byte[] payload) {
+            this.buf = ByteBuffer.wrap(payload);
+        }
+
+        byte b() {
+            return buf.get();
+        }
+
+        int i() {
+            return buf.getInt();
+        }
+
+        long l() {
+            return buf.getLong();
+        }
+
+        String s() {
+            int n = buf.getInt();
+            if (n < 0) return null;
+            String v = new String(buf.array(), buf.position(), n, StandardCharsets.UTF_8);
+            buf.position(buf.position() + n);
+            return v;
+        }
+    }
+
+    // --- Log ---
+
+    /** Appends a record and forces it to disk. Caller holds the write lock. */
+    private void write(Out record) throws SQLException {
+        byte[] payload = record.toByteArray();
+        try {
+            int size = 8 + payload.length;
+            if (segment == null) throw new IOException("store is closed");
+            if (segmentPos + size > segment.capacity()) roll(size);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer at = segment.duplicate();
+            at.position(segmentPos + 4);
+            at.putInt((int) crc.getValue());
+            at.put(payload);
+            segment.putInt(segmentPos, payload.length); // length last: a record is visible only once complete
+            if (SYNC) segment.force(segmentPos, size);
+            segmentPos += size;
+        } catch (IOException ex) {
+            throw new SQLException("Could not write to the embedded store: " + ex.getMessage(), "HY000", ex);
+        }
+    }
+
+    private void roll(int needed) throws IOException {
+        startSegment(segmentNo + 1, needed);
+        if (segmentNo - firstSegment >= COMPACT_SEGMENTS) compact();
+    }
+
+    private void startSegment(long no, int needed) throws IOException {
+        segmentNo = no;
+        segment = map(segmentPath(no), Math.max(SEGMENT_BYTES, needed + 4L));
+        segmentPos = 0;
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, ch.size()));
+        }
+    }
+
+    private Path segmentPath(long no) {
+        return dir.resolve(String.format("log-%06d.seg", no));
+    }
+
+    /**
+     * Writes a snapshot of everything before the current segment and deletes the segments it
+     * replaces. Caller holds the write lock and has just started an empty segment.
+     */
+    private void compact() throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(java.nio.channels.Channels.newOutputStream(ch), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(segmentNo);
+            for (Account a : students.values()) frame(out, account(STUDENT, a));
+            for (Account a : mentors.values()) frame(out, account(MENTOR, a));
+            for (Reward r : rewards.values()) frame(out, reward(r));
+            frame(out, record(CATALOG_VERSION).l(catalogVersion));
+            for (MentorActivity a : mentorActivities.values()) frame(out, mentorActivity(a));
+            for (StudentActivity a : studentActivities.values()) frame(out, studentActivity(a));
+            for (Redemption r : redemptions) frame(out, redemption(r));
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long covered = firstSegment;
+        firstSegment = segmentNo;
+        for (long no = covered; no < segmentNo; no++) deleteQuietly(segmentPath(no));
+    }
+
+    private static void frame(DataOutputStream out, Out record) throws IOException {
+        byte[] payload = record.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // Still mapped on some platforms; recover() deletes it on the next open
+        }
+    }
+
+    // --- Recovery ---
+
+    private void recover() throws IOException {
+        Path snapshot = dir.resolve(SNAPSHOT);
+        boolean fresh = true;
+        if (Files.exists(snapshot)) {
+            fresh = false;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException(snapshot + " is not a TimeBank snapshot");
+                firstSegment = in.readLong();
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException end) {
+                        break;
+                    }
+                    int crc = in.readInt();
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (crc(payload) != crc) throw new IOException(snapshot + " is corrupt");
+                    apply(payload);
+                }
+            }
+        }
+        Files.deleteIfExists(dir.resolve(SNAPSHOT + ".tmp"));
+
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "log-*.seg")) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                long no = Long.parseLong(name.substring(4, name.length() - 4));
+                if (no < firstSegment) deleteQuietly(f); // already in the snapshot
+                else segments.add(no);
+            }
+        }
+        Collections.sort(segments);
+        for (int i = 0; i < segments.size(); i++) {
+            long no = segments.get(i);
+            if (i > 0 && no != segments.get(i - 1) + 1) throw new IOException("log segment " + (segments.get(i - 1) + 1) + " is missing");
+            fresh = false;
+            boolean last = i == segments.size() - 1;
+            MappedByteBuffer buf = map(segmentPath(no), 0);
+            int pos = replay(buf, no, last);
+            if (last) {
+                segmentNo = no;
+                segment = buf;
+                segmentPos = pos;
+            }
+        }
+        if (segment == null) startSegment(segments.isEmpty() ? firstSegment : segments.get(segments.size() - 1) + 1, 0);
+        if (fresh) {
+            // Same starting catalog as schema.sql
+            lock.writeLock().lock();
+            try {
+                saveReward(0, "Coffee Coupon", 50);
+                saveReward(0, "E-book Subscription", 100);
+                saveReward(0, "Mentorship Session", 200);
+                saveReward(0, "Certificate of Excellence", 500);
+            } catch (SQLException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Applies a segment's records; returns the offset after the last good one. */
+    private int replay(MappedByteBuffer buf, long no, boolean last) throws IOException {
+        int pos = 0;
+        while (pos + 8 <= buf.capacity()) {
+            int length = buf.getInt(pos);
+            if (length == 0) break;
+            byte[] payload = length > 0 && pos + 8L + length <= buf.capacity() ? new byte[length] : null;
+            if (payload != null) {
+                ByteBuffer at = buf.duplicate();
+                at.position(pos + 8);
+                at.get(payload);
+            }
+            if (payload == null || crc(payload) != buf.getInt(pos + 4)) {
+                if (!last) throw new IOException("log segment " + no + " is corrupt at offset " + pos);
+                // Torn tail of an unacknowledged write: clear it so new records start on zeros
+                for (int p = pos; p < buf.capacity(); p++) buf.put(p, (byte) 0);
+                buf.force();
+                System.err.println("Embedded store: discarded an incomplete record at the end of segment " + no);
+                break;
+            }
+            apply(payload);
+            pos += 8 + length;
+        }
+        return pos;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
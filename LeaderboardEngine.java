@@ -0,0 +1,261 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process mentor leaderboard.
+ *
+ * Seeded once from the monthly activity rollups, then kept current by recordActivity()
+ * as activities are saved. Entries live in an order-statistic treap ordered by
+ * (points desc, email asc), so top-K is O(log n + K) and the rank of any mentor is O(log n).
+ *
+ * A seed holds ActivityService's leaderboard gate while it reads and loads, so in-process writes
+ * wait for it and every activity is either in the seed or recorded after it. Activities saved by
+ * other clients are picked up by a periodic re-seed (timebank.leaderboard.resyncMs, default 5 minutes).
+ */
+public class LeaderboardEngine {
+
+    private static final long RESYNC_MS = Long.getLong("timebank.leaderboard.resyncMs", 300_000L);
+
+    private static final LeaderboardEngine SHARED = new LeaderboardEngine();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> byEmail = new HashMap<>();
+    private Node root;
+    private long seededAt = 0;
+    private boolean seeded = false;
+
+    public static LeaderboardEngine shared() {
+        return SHARED;
+    }
+
+    /**
+     * One mentor's standing. Immutable; an update replaces the entry.
+     */
+    public static final class Entry {
+        public final String email;
+        public final String name;
+        public final long hours;
+        public final long points;
+
+        Entry(String email, String name, long hours, long points) {
+            this.email = email;
+            this.name = name;
+            this.hours = hours;
+            this.points = points;
+        }
+    }
+
+    /**
+     * Seeds the engine if it has never been seeded or the last seed is older than the resync interval.
+     * Blocking; call from a loader thread.
+     */
+    public void ensureSeeded() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (seeded && System.currentTimeMillis() - seededAt < RESYNC_MS) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        reseed();
+    }
+
+    /**
+     * Rebuilds the whole board from the stored per-mentor totals. In-process activity writes wait
+     * until it is done.
+     */
+    public void reseed() throws SQLException {
+        Lock gate = ActivityService.leaderboardSeed();
+        gate.lock();
+        try {
+            List<MentorActivityRepository.MentorTotals> totals = Storage.current().mentorTotals();
+            List<Entry> entries = new ArrayList<>(totals.size());
+            for (MentorActivityRepository.MentorTotals t : totals) {
+                entries.add(new Entry(t.email, t.name, t.hours, t.points));
+            }
+            load(entries);
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /** Replaces the board with the given totals. */
+    void load(List<Entry> entries) {
+        lock.writeLock().lock();
+        try {
+            byEmail.clear();
+            root = null;
+            for (Entry e : entries) {
+                byEmail.put(e.email, e);
+                root = insert(root, new Node(e));
+            }
+            seeded = true;
+            seededAt = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies one committed MentorActivities insert; the caller holds ActivityService's leaderboard
+     * gate from before the insert, so no seed has read it. Ignored until the first seed, which will include it.
+     */
+    public void recordActivity(long activityId, String email, String name, int hours, int points) {
+        lock.writeLock().lock();
+        try {
+            if (!seeded) return;
+            Entry old = byEmail.get(email);
+            Entry updated = old == null
+                    ? new Entry(email, name, hours, points)
+                    : new Entry(email, old.name, old.hours + hours, old.points + points);
+            if (old != null) root = remove(root, old);
+            root = insert(root, new Node(updated));
+            byEmail.put(email, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The first {@code k} mentors in rank order. */
+    public List<Entry> top(int k) {
+        lock.readLock().lock();
+        try {
+            List<Entry> out = new ArrayList<>(Math.min(k, size(root)));
+            collect(root, k, out);
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 1-based rank, or -1 if the mentor has no activities yet. */
+    public int rankOf(String email) {
+        lock.readLock().lock();
+        try {
+            Entry e = byEmail.get(email);
+            return e == null ? -1 : countBefore(root, e) + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Entry get(String email) {
+        lock.readLock().lock();
+        try {
+            return byEmail.get(email);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Order-statistic treap ---
+
+    private static final class Node {
+        final Entry entry;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node left, right;
+        int size = 1;
+
+        Node(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    /** Rank order: more points first, then email for a stable tie-break. */
+    private static int compare(Entry a, Entry b) {
+        int c = Long.compare(b.points, a.points);
+        return c != 0 ? c : a.email.compareTo(b.email);
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static Node update(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+        return n;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = update(n);
+        return update(l);
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = update(n);
+        return update(r);
+    }
+
+    private static Node insert(Node n, Node x) {
+        if (n == null) return x;
+        if (compare(x.entry, n.entry) < 0) {
+            n.left = insert(n.left, x);
+            if (n.left.priority > n.priority) n = rotateRight(n);
+        } else {
+            n.right = insert(n.right, x);
+            if (n.right.priority > n.priority) n = rotateLeft(n);
+        }
+        return update(n);
+    }
+
+    private static Node remove(Node n, Entry e) {
+        if (n == null) return null;
+        int c = compare(e, n.entry);
+        if (c < 0) {
+            n.left = remove(n.left, e);
+        } else if (c > 0) {
+            n.right = remove(n.right, e);
+        } else {
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+            if (n.left.priority > n.right.priority) {
+                n = rotateRight(n);
+                n.right = remove(n.right, e);
+            } else {
+                n = rotateLeft(n);
+                n.left = remove(n.left, e);
+            }
+        }
+        return update(n);
+    }
+
+    private static int countBefore(Node n, Entry e) {
+        int count = 0;
+        while (n != null) {
+            int c = compare(e, n.entry);
+            if (c <= 0) {
+                if (c == 0) return count + size(n.left);
+                n = n.left;
+            } else {
+                count += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return count;
+    }
+
+    private static void collect(Node n, int k, List<Entry> out) {
+        if (n == null || out.size() >= k) return;
+        collect(n.left, k, out);
+        if (out.size() < k) out.add(n.entry);
+        collect(n.right, k, out);
+    }
+}
@@ -0,0 +1,443 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reproduces "Monday morning" campus load: many simulated students and mentors using the
+ * dashboards at once, against a scratch database on this machine.
+ *
+ * Seeds a fresh population (students, mentors and an activity history for each) under a
+ * run-specific email domain, then runs one thread per simulated user. Each user repeatedly picks
+ * an operation by weight, performs it through the same code path as the dashboard action, and
+ * pauses for an exponentially distributed think time:
+ *
+ *   log          StudentDashboardFrame.logStudentActivity  (ActivityService.logStudentActivity)
+ *   save         MentorDashboardFrame.saveActivity         (ActivityService.addMentorActivity)
+ *   leaderboard  MentorDashboardFrame.loadLeaderboardData  (WindowedLeaderboard top 100 + own rank, random period)
+ *   points       MentorDashboardFrame.getCurrentPoints     (Storage.balance)
+ *   redeem       MentorDashboardFrame.redeemReward         (RewardCatalog + RewardRedemption)
+ *   report       MentorDashboardFrame.generateReport       (ReportExporter.write, last 90 days)
+ *
+ * Throughput, errors and p50/p95/p99/max latency per operation are printed at the end. With
+ * --hlog, per-interval and total histograms are also written as tagged lines (raw buckets
+ * included), and --baseline compares this run's totals with an earlier log.
+ *
+ * Usage:
+ *   java -Dtimebank.db.url=jdbc:mysql://localhost:3306/TimeBankLoad -Dtimebank.pool.maxSize=16 LoadGenerator
+ *        [--students=2000] [--mentors=200] [--history=20] [--users=200] [--warmup=10] [--duration=60]
+ *        [--think=200] [--mix=log:30,save:10,leaderboard:25,points:20,redeem:10,report:5]
+ *        [--interval=5] [--hlog=run.hlog] [--baseline=previous.hlog]
+ *
+ * The database URL must point at this machine (localhost or a loopback address) and not at the
+ * live TimeBankDB.
+ */
+public class LoadGenerator {
+
+    private static final String DEFAULT_MIX = "log:30,save:10,leaderboard:25,points:20,redeem:10,report:5";
+    private static final int REPORT_DAYS = 90;
+
+    /** One simulated dashboard action. */
+    interface Action {
+        void run(ThreadLocalRandom rnd) throws Exception;
+    }
+
+    /** Latency and error counts of one operation, in total and for the current log interval. */
+    static final class Operation {
+        final String name;
+        final int weight;
+        final Action action;
+        final LatencyHistogram total = new LatencyHistogram();
+        final AtomicReference<LatencyHistogram> interval = new AtomicReference<>(new LatencyHistogram());
+        final AtomicLong errors = new AtomicLong();
+
+        Operation(String name, int weight, Action action) {
+            this.name = name;
+            this.weight = weight;
+            this.action = action;
+        }
+
+        void record(long nanos) {
+            total.recordNanos(nanos);
+            interval.get().recordNanos(nanos);
+        }
+
+        void reset() {
+            total.reset();
+            interval.set(new LatencyHistogram());
+            errors.set(0);
+        }
+    }
+
+    private final int students;
+    private final int mentors;
+    private final String domain;
+    private final LocalDate today = LocalDate.now();
+
+    private LoadGenerator(int students, int mentors) {
+        this.students = students;
+        this.mentors = mentors;
+        this.domain = "load-" + Long.toString(System.currentTimeMillis(), 36) + ".timebank";
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unknown argument: " + arg);
+            int eq = arg.indexOf('=');
+            opts.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        int students = Integer.parseInt(opts.getOrDefault("students", "2000"));
+        int mentors = Integer.parseInt(opts.getOrDefault("mentors", "200"));
+        int history = Integer.parseInt(opts.getOrDefault("history", "20"));
+        int users = Integer.parseInt(opts.getOrDefault("users", "200"));
+        int warmupSec = Integer.parseInt(opts.getOrDefault("warmup", "10"));
+        int durationSec = Integer.parseInt(opts.getOrDefault("duration", "60"));
+        double thinkMs = Double.parseDouble(opts.getOrDefault("think", "200"));
+        int intervalSec = Integer.parseInt(opts.getOrDefault("interval", "5"));
+
+        String url = System.getProperty("timebank.db.url", "");
+        if (url.isEmpty() || url.matches(".*/TimeBankDB(\\?.*)?$") || !isLocal(url)) {
+            System.err.println("Point -Dtimebank.db.url at a scratch database on this machine "
+                    + "(e.g. jdbc:mysql://localhost:3306/TimeBankLoad); the generator seeds and writes to it.");
+            System.exit(2);
+        }
+
+        LoadGenerator gen = new LoadGenerator(students, mentors);
+        gen.seed(history);
+        List<Operation> ops = gen.operations(opts.getOrDefault("mix", DEFAULT_MIX));
+
+        PrintWriter hlog = null;
+        if (opts.containsKey("hlog")) {
+            hlog = new PrintWriter(Files.newBufferedWriter(Paths.get(opts.get("hlog")), StandardCharsets.UTF_8));
+            hlog.println("#[TimeBank load log, started " + LocalDateTime.now() + "]");
+            hlog.printf("#[students=%d mentors=%d history=%d users=%d think=%.0fms mix=%s]%n",
+                    students, mentors, history, users, thinkMs, opts.getOrDefault("mix", DEFAULT_MIX));
+            hlog.println("#tag,start_s,length_s,count,errors,p50_ms,p95_ms,p99_ms,max_ms,buckets(index:count ...)");
+        }
+
+        System.out.printf("%d simulated users, think time %.0f ms, %ds warmup + %ds measured%n",
+                users, thinkMs, warmupSec, durationSec);
+        long startNanos = System.nanoTime();
+        long measureFrom = startNanos + warmupSec * 1_000_000_000L;
+        long deadline = measureFrom + durationSec * 1_000_000_000L;
+
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        for (int u = 0; u < users; u++) {
+            pool.execute(() -> simulateUser(ops, thinkMs, deadline));
+        }
+
+        // Warm-up, then reset and log one line per operation per interval
+        sleepUntil(measureFrom);
+        for (Operation op : ops) op.reset();
+        long intervalStart = System.nanoTime();
+        while (intervalStart < deadline) {
+            long intervalEnd = Math.min(deadline, intervalStart + intervalSec * 1_000_000_000L);
+            sleepUntil(intervalEnd);
+            for (Operation op : ops) {
+                LatencyHistogram h = op.interval.getAndSet(new LatencyHistogram());
+                if (hlog != null) logLine(hlog, op.name, (intervalStart - measureFrom) / 1e9, (intervalEnd - intervalStart) / 1e9, h, -1);
+            }
+            intervalStart = intervalEnd;
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.printf("%n%-12s %10s %8s %10s %10s %10s %10s%n", "operation", "ops/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        for (Operation op : ops) {
+            printRow(op.name, op.total, op.errors.get(), durationSec);
+            all.add(op.total);
+            if (hlog != null) logLine(hlog, "total:" + op.name, 0, durationSec, op.total, op.errors.get());
+        }
+        long errors = ops.stream().mapToLong(op -> op.errors.get()).sum();
+        printRow("all", all, errors, durationSec);
+        System.out.println();
+        System.out.println(DatabaseManager.getPoolStats());
+        System.out.println();
+        System.out.print(QueryMetrics.report());
+
+        if (hlog != null) {
+            logLine(hlog, "total:all", 0, durationSec, all, errors);
+            hlog.close();
+            System.out.println("Histogram log written to " + opts.get("hlog"));
+        }
+        if (opts.containsKey("baseline")) compare(opts.get("baseline"), ops);
+        System.exit(0);
+    }
+
+    private static void simulateUser(List<Operation> ops, double thinkMs, long deadline) {
+        int totalWeight = ops.stream().mapToInt(op -> op.weight).sum();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        try {
+            // Stagger start so users do not arrive in lockstep
+            Thread.sleep((long) (rnd.nextDouble() * thinkMs));
+            while (System.nanoTime() < deadline) {
+                int pick = rnd.nextInt(totalWeight);
+                Operation op = ops.get(0);
+                for (Operation o : ops) {
+                    op = o;
+                    if ((pick -= o.weight) < 0) break;
+                }
+                long start = System.nanoTime();
+                try {
+                    op.action.run(rnd);
+                } catch (InterruptedException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    if (op.errors.incrementAndGet() <= 5) System.err.println("  " + op.name + ": " + ex);
+                } finally {
+                    op.record(System.nanoTime() - start);
+                }
+                if (thinkMs > 0) Thread.sleep((long) (-Math.log(1 - rnd.nextDouble()) * thinkMs));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- Operations ---
+
+    private List<Operation> operations(String mix) {
+        Map<String, Action> actions = new LinkedHashMap<>();
+        actions.put("log", rnd -> ActivityService.logStudentActivity(new StudentActivity(0,
+                studentEmail(rnd.nextInt(students)), "Load workshop", "Workshop", today, "Pending", "No", "")));
+        actions.put("save", rnd -> {
+            int m = rnd.nextInt(mentors);
+            ActivityService.addMentorActivity(MentorActivity.create(mentorEmail(m), "Load session", "Tutoring",
+                    today, 1 + rnd.nextInt(4)), mentorName(m));
+        });
+        WindowedLeaderboard.Window[] windows = WindowedLeaderboard.Window.values();
+        actions.put("leaderboard", rnd -> {
+            // As queryLeaderboard(): each "save" invalidates the windows, so this re-ranks them too
+            WindowedLeaderboard boards = WindowedLeaderboard.shared();
+            WindowedLeaderboard.Window window = windows[rnd.nextInt(windows.length)];
+            boards.ensureSeeded(window);
+            boards.top(window, 100);
+            boards.rankOf(window, mentorEmail(rnd.nextInt(mentors)));
+            boards.size(window);
+        });
+        actions.put("points", rnd -> {
+            String email = mentorEmail(rnd.nextInt(mentors));
+            Storage.current().balance(email);
+        });
+        actions.put("redeem", rnd -> {
+            RewardCatalog.Snapshot catalog = RewardCatalog.shared().current();
+            if (catalog.rewards.isEmpty()) throw new IllegalStateException("Reward catalog is empty");
+            Reward reward = catalog.rewards.get(rnd.nextInt(catalog.rewards.size()));
+            RewardRedemption.redeem(mentorEmail(rnd.nextInt(mentors)), reward, catalog.version);
+        });
+        actions.put("report", rnd -> ReportExporter.write(mentorEmail(rnd.nextInt(mentors)),
+                today.minusDays(REPORT_DAYS), today.plusDays(1), DISCARD, null));
+
+        List<Operation> ops = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            Action action = actions.get(kv[0]);
+            if (action == null || kv.length != 2) {
+                throw new IllegalArgumentException("Bad --mix entry '" + part + "'; operations are " + actions.keySet());
+            }
+            int weight = Integer.parseInt(kv[1]);
+            if (weight > 0) ops.add(new Operation(kv[0], weight, action));
+        }
+        if (ops.isEmpty()) throw new IllegalArgumentException("--mix selects no operations");
+        return ops;
+    }
+
+    private static final Writer DISCARD = new Writer() {
+        @Override
+        public void write(char[] buf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    // --- Population ---
+
+    private String studentEmail(int i) {
+        return "student" + i + "@" + domain;
+    }
+
+    private String mentorEmail(int i) {
+        return "mentor" + i + "@" + domain;
+    }
+
+    private String mentorName(int i) {
+        return "Load Mentor " + i;
+    }
+
+    /** Inserts this run's students, mentors, activity histories and balances. */
+    private void seed(int history) throws Exception {
+        long start = System.currentTimeMillis();
+        System.out.printf("Seeding %d students and %d mentors with %d activities each (@%s)...%n",
+                students, mentors, history, domain);
+        try (Connection conn = DatabaseManager.getPool().getConnection()) {
+            SchemaMigrator.migrate(conn);
+            conn.setAutoCommit(false);
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+            PerfBench.MultiRowInsert mentorInsert = new PerfBench.MultiRowInsert(conn,
+                    "INSERT INTO Mentors (name, email, password, skills, availability, contact_no) VALUES ", 6);
+            for (int i = 0; i < mentors; i++) {
+                mentorInsert.add(mentorName(i), mentorEmail(i), "password", "java, sql", "Weekdays", "555-0100");
+            }
+            mentorInsert.flush();
+
+            PerfBench.MultiRowInsert studentInsert = new PerfBench.MultiRowInsert(conn,
+                    "INSERT INTO Students (name, email, password, department, year, contact_no) VALUES ", 6);
+            for (int i = 0; i < students; i++) {
+                studentInsert.add("Load Student " + i, studentEmail(i), "password", "CS", "2025", "555-0101");
+            }
+            studentInsert.flush();
+
+            PerfBench.MultiRowInsert activityInsert = new PerfBench.MultiRowInsert(conn,
+                    "INSERT INTO MentorActivities (mentor_email, activity_name, activity_type, activity_date, hours, points) VALUES ", 6);
+            for (int i = 0; i < mentors; i++) {
+                for (int h = 0; h < history; h++) {
+                    int hours = 1 + rnd.nextInt(8);
+                    activityInsert.add(mentorEmail(i), "History " + h, "Tutoring",
+                            java.sql.Date.valueOf(today.minusDays(rnd.nextInt(365))), hours, hours * MentorActivity.POINTS_PER_HOUR);
+                }
+            }
+            activityInsert.flush();
+
+            PerfBench.MultiRowInsert logInsert = new PerfBench.MultiRowInsert(conn,
+                    "INSERT INTO StudentsActivity (student_email, activity_name, activity_type, log_date, status, certificate_path, remarks) VALUES ", 7);
+            for (int i = 0; i < students; i++) {
+                for (int h = 0; h < history; h++) {
+                    logInsert.add(studentEmail(i), "History " + h, "Workshop",
+                            java.sql.Date.valueOf(today.minusDays(rnd.nextInt(365))), h % 3 == 0 ? "Pending" : "Completed", "No", "");
+                }
+            }
+            logInsert.flush();
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO MentorBalances (mentor_email, points_earned, points_spent) " +
+                    "SELECT mentor_email, SUM(points), 0 FROM MentorActivities WHERE mentor_email LIKE ? GROUP BY mentor_email")) {
+                ps.setString(1, "%@" + domain);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO MentorDailyRollups (mentor_email, day, activities, hours, points) " +
+                    "SELECT mentor_email, activity_date, COUNT(*), SUM(hours), SUM(points) " +
+                    "FROM MentorActivities WHERE mentor_email LIKE ? GROUP BY mentor_email, activity_date")) {
+                ps.setString(1, "%@" + domain);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO MentorMonthlyRollups (mentor_email, month, activities, hours, points, last_activity_id) " +
+                    "SELECT mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01'), COUNT(*), SUM(hours), SUM(points), " +
+                    "MAX(activity_id) FROM MentorActivities WHERE mentor_email LIKE ? " +
+                    "GROUP BY mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01')")) {
+                ps.setString(1, "%@" + domain);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO StudentActivityCounts (status, slot, row_count) " +
+                    "SELECT * FROM (SELECT status, 0 AS slot, COUNT(*) AS n FROM StudentsActivity " +
+                    "WHERE student_email LIKE ? GROUP BY status) AS src " +
+                    "ON DUPLICATE KEY UPDATE row_count = row_count + src.n")) {
+                ps.setString(1, "%@" + domain);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO StudentActivityTotals (student_email, row_count) " +
+                    "SELECT student_email, COUNT(*) FROM StudentsActivity WHERE student_email LIKE ? GROUP BY student_email")) {
+                ps.setString(1, "%@" + domain);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        LeaderboardEngine.shared().reseed();
+        WindowedLeaderboard.shared().reseed();
+        System.out.printf("Seeded in %.1f s%n", (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    // --- Reporting ---
+
+    private static void printRow(String name, LatencyHistogram h, long errors, int seconds) {
+        System.out.printf("%-12s %10.1f %8d %10.2f %10.2f %10.2f %10.2f%n", name, h.getCount() / (double) seconds, errors,
+                h.getPercentileMicros(50) / 1000.0, h.getPercentileMicros(95) / 1000.0,
+                h.getPercentileMicros(99) / 1000.0, h.getMaxMicros() / 1000.0);
+    }
+
+    private static void logLine(PrintWriter out, String tag, double start, double length, LatencyHistogram h, long errors) {
+        StringBuilder buckets = new StringBuilder();
+        for (int i = 0; i < LatencyHistogram.bucketCount(); i++) {
+            long c = h.getBucketCount(i);
+            if (c != 0) buckets.append(buckets.length() == 0 ? "" : " ").append(i).append(':').append(c);
+        }
+        out.printf("%s,%.3f,%.3f,%d,%d,%.3f,%.3f,%.3f,%.3f,%s%n", tag, start, length, h.getCount(), Math.max(0, errors),
+                h.getPercentileMicros(50) / 1000.0, h.getPercentileMicros(95) / 1000.0,
+                h.getPercentileMicros(99) / 1000.0, h.getMaxMicros() / 1000.0, buckets);
+        out.flush();
+    }
+
+    /** Prints p50/p99 of this run next to the "total:" lines of an earlier --hlog file. */
+    private static void compare(String baselineFile, List<Operation> ops) throws IOException {
+        Map<String, String[]> baseline = new HashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(baselineFile), StandardCharsets.UTF_8)) {
+            for (String line; (line = in.readLine()) != null; ) {
+                if (line.startsWith("total:")) {
+                    String[] f = line.split(",", -1);
+                    baseline.put(f[0].substring("total:".length()), f);
+                }
+            }
+        }
+        System.out.printf("%nAgainst %s:%n%-12s %22s %22s%n", baselineFile, "operation", "p50 ms (was)", "p99 ms (was)");
+        for (Operation op : ops) {
+            String[] was = baseline.get(op.name);
+            if (was == null) {
+                System.out.printf("%-12s %22s%n", op.name, "not in baseline");
+                continue;
+            }
+            System.out.printf("%-12s %12.2f (%7s) %12.2f (%7s)%n", op.name,
+                    op.total.getPercentileMicros(50) / 1000.0, was[5], op.total.getPercentileMicros(99) / 1000.0, was[7]);
+        }
+    }
+
+    // --- Helpers ---
+
+    /** True for URLs whose host is this machine, so the load never leaves it. */
+    static boolean isLocal(String jdbcUrl) {
+        try {
+            String host = URI.create(jdbcUrl.substring("jdbc:".length())).getHost();
+            return host != null && (host.equals("localhost") || host.startsWith("127.") || host.equals("[::1]"));
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException ex) {
+            return false;
+        }
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+}
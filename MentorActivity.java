@@ -0,0 +1,36 @@
+import java.time.LocalDate;
+
+/**
+ * A row of MentorActivities: volunteer work logged by a mentor.
+ */
+public final class MentorActivity {
+
+    public static final int POINTS_PER_HOUR = 10;
+
+    public final long id; // 0 until inserted
+    public final String mentorEmail;
+    public final String name;
+    public final String type;
+    public final LocalDate date;
+    public final int hours;
+    public final int points;
+
+    public MentorActivity(long id, String mentorEmail, String name, String type, LocalDate date, int hours, int points) {
+        this.id = id;
+        this.mentorEmail = mentorEmail;
+        this.name = name;
+        this.type = type;
+        this.date = date;
+        this.hours = hours;
+        this.points = points;
+    }
+
+    /** A new, not yet inserted activity; points are derived from the hours. */
+    public static MentorActivity create(String mentorEmail, String name, String type, LocalDate date, int hours) {
+        return new MentorActivity(0, mentorEmail, name, type, date, hours, hours * POINTS_PER_HOUR);
+    }
+
+    public MentorActivity withId(long newId) {
+        return new MentorActivity(newId, mentorEmail, name, type, date, hours, points);
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data access for MentorActivities.
+ */
+public final class MentorActivityRepository {
+
+    static final String INSERT_SQL =
+            "INSERT INTO MentorActivities (mentor_email, activity_name, activity_type, activity_date, hours, points) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    static final String RANGE_SQL =
+            "SELECT activity_id, mentor_email, activity_name, activity_type, activity_date, hours, points " +
+            "FROM MentorActivities WHERE mentor_email = ? AND activity_date >= ? AND activity_date < ? " +
+            "ORDER BY activity_date DESC";
+    static final String SUM_POINTS_SQL =
+            "SELECT COALESCE(SUM(points), 0) FROM MentorActivities WHERE mentor_email = ?";
+
+    static final RowMapper<MentorActivity> MAPPER = rs -> new MentorActivity(
+            rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+            rs.getDate(5).toLocalDate(), rs.getInt(6), rs.getInt(7));
+
+    /**
+     * Per-mentor aggregate over all activities (see ActivityRollups.totalsByMentor).
+     */
+    public static final class MentorTotals {
+        public final String email;
+        public final String name;
+        public final long hours;
+        public final long points;
+        public final long lastActivityId;
+
+        MentorTotals(String email, String name, long hours, long points, long lastActivityId) {
+            this.email = email;
+            this.name = name;
+            this.hours = hours;
+            this.points = points;
+            this.lastActivityId = lastActivityId;
+        }
+    }
+
+    static final RowMapper<MentorTotals> TOTALS_MAPPER = rs -> new MentorTotals(
+            rs.getString(1), rs.getString(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+
+    private MentorActivityRepository() {
+    }
+
+    /** @return the new activity_id */
+    public static long insert(Connection conn, MentorActivity a) throws SQLException {
+        return Jdbc.insert(conn, INSERT_SQL, a.mentorEmail, a.name, a.type, java.sql.Date.valueOf(a.date), a.hours, a.points);
+    }
+
+    /**
+     * Inserts all activities with one batched statement (sent as multi-row INSERTs by the driver).
+     * @return the activities with their generated ids, in input order
+     */
+    public static List<MentorActivity> insertBatch(Connection conn, List<MentorActivity> activities) throws SQLException {
+        List<MentorActivity> inserted = new ArrayList<>(activities.size());
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (MentorActivity a : activities) {
+                Jdbc.bind(ps, a.mentorEmail, a.name, a.type, java.sql.Date.valueOf(a.date), a.hours, a.points);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (MentorActivity a : activities) {
+                    inserted.add(keys.next() ? a.withId(keys.getLong(1)) : a);
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Streams a mentor's activities dated within [from, toExclusive), newest first, without
+     * buffering the result in the driver. Other statements must not be run on {@code conn}
+     * until this returns.
+     */
+    public static void forEachInRange(Connection conn, String mentorEmail, LocalDate from, LocalDate toExclusive,
+                                      RowHandler<MentorActivity> handler) throws SQLException, IOException {
+        try (PreparedStatement ps = conn.prepareStatement(RANGE_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream row by row
+            Jdbc.bind(ps, mentorEmail, java.sql.Date.valueOf(from), java.sql.Date.valueOf(toExclusive));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) handler.handle(MAPPER.map(rs));
+            }
+        }
+    }
+
+    public static long sumPoints(Connection conn, String mentorEmail) throws SQLException {
+        return Jdbc.queryLong(conn, SUM_POINTS_SQL, mentorEmail);
+    }
+}
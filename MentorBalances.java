@@ -0,0 +1,148 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Maintains the MentorBalances table: one row per mentor holding the running totals of
+ * points earned (MentorActivities) and spent (Redemptions).
+ *
+ * The credit/debit methods do not commit; call them on the same connection and inside the
+ * same transaction as the ledger INSERT they account for. Reading a balance is then a
+ * primary-key lookup instead of two SUM scans over the mentor's history.
+ */
+public class MentorBalances {
+
+    private static final String CREDIT_SQL =
+            "INSERT INTO MentorBalances (mentor_email, points_earned, points_spent) VALUES (?, ?, 0) " +
+            "ON DUPLICATE KEY UPDATE points_earned = points_earned + ?";
+    private static final String DEBIT_SQL =
+            "INSERT INTO MentorBalances (mentor_email, points_earned, points_spent) VALUES (?, 0, ?) " +
+            "ON DUPLICATE KEY UPDATE points_spent = points_spent + ?";
+    // Check-and-debit in one statement: the row lock taken by the UPDATE serialises concurrent
+    // redemptions, and each re-evaluates the condition against the committed balance.
+    private static final String TRY_DEBIT_SQL =
+            "UPDATE MentorBalances SET points_spent = points_spent + ? " +
+            "WHERE mentor_email = ? AND points_earned - points_spent >= ?";
+    static final String BALANCE_SQL =
+            "SELECT points_earned - points_spent FROM MentorBalances WHERE mentor_email = ?";
+    private static final String SEED_SQL =
+            "INSERT IGNORE INTO MentorBalances (mentor_email, points_earned, points_spent) " +
+            "SELECT ?, (SELECT COALESCE(SUM(points), 0) FROM MentorActivities WHERE mentor_email = ?), " +
+            "(SELECT COALESCE(SUM(points_spent), 0) FROM Redemptions WHERE mentor_email = ?)";
+    private static final String LOCK_ROW_SQL =
+            "SELECT points_earned, points_spent FROM MentorBalances WHERE mentor_email = ? FOR UPDATE";
+    private static final String REPAIR_SQL =
+            "UPDATE MentorBalances SET points_earned = ?, points_spent = ? WHERE mentor_email = ?";
+    private static final String MISMATCH_SQL =
+            "SELECT m.email, COALESCE(b.points_earned, 0), COALESCE(b.points_spent, 0), " +
+            "COALESCE(a.earned, 0), COALESCE(r.spent, 0), b.mentor_email IS NOT NULL " +
+            "FROM Mentors m " +
+            "LEFT JOIN MentorBalances b ON b.mentor_email = m.email " +
+            "LEFT JOIN (SELECT mentor_email, SUM(points) AS earned FROM MentorActivities GROUP BY mentor_email) a " +
+            "ON a.mentor_email = m.email " +
+            "LEFT JOIN (SELECT mentor_email, SUM(points_spent) AS spent FROM Redemptions GROUP BY mentor_email) r " +
+            "ON r.mentor_email = m.email " +
+            "WHERE COALESCE(b.points_earned, 0) <> COALESCE(a.earned, 0) " +
+            "OR COALESCE(b.points_spent, 0) <> COALESCE(r.spent, 0)";
+
+    private MentorBalances() {
+    }
+
+    /** Adds earned points for a newly inserted MentorActivities row. */
+    public static void credit(Connection conn, String mentorEmail, int points) throws SQLException {
+        Jdbc.update(conn, CREDIT_SQL, mentorEmail, points, points);
+    }
+
+    /** Adds spent points for a newly inserted Redemptions row. */
+    public static void debit(Connection conn, String mentorEmail, int points) throws SQLException {
+        Jdbc.update(conn, DEBIT_SQL, mentorEmail, points, points);
+    }
+
+    /**
+     * Spends {@code points} only if the balance covers them. Like debit(), it does not commit.
+     * @return false if the balance is too low; nothing is changed then
+     */
+    public static boolean tryDebit(Connection conn, String mentorEmail, int points) throws SQLException {
+        if (Jdbc.update(conn, TRY_DEBIT_SQL, points, mentorEmail, points) == 1) return true;
+        if (Jdbc.queryOne(conn, BALANCE_SQL, rs -> rs.getInt(1), mentorEmail) != null) return false;
+        getBalance(conn, mentorEmail); // no row yet: seed it from the ledgers and try once more
+        return Jdbc.update(conn, TRY_DEBIT_SQL, points, mentorEmail, points) == 1;
+    }
+
+    /**
+     * Current balance (earned - spent). A mentor without a balance row yet - e.g. data that
+     * predates this table - is seeded from the raw ledgers once.
+     */
+    public static int getBalance(Connection conn, String mentorEmail) throws SQLException {
+        Integer balance = Jdbc.queryOne(conn, BALANCE_SQL, rs -> rs.getInt(1), mentorEmail);
+        if (balance != null) return balance;
+
+        Jdbc.update(conn, SEED_SQL, mentorEmail, mentorEmail, mentorEmail);
+        balance = Jdbc.queryOne(conn, BALANCE_SQL, rs -> rs.getInt(1), mentorEmail);
+        return balance == null ? 0 : balance;
+    }
+
+    // --- Reconciliation ---
+
+    /**
+     * Compares every mentor's balance row with the raw ledgers.
+     * @param repair when true, each drifted row is recomputed from the ledgers under a row lock
+     * @return the mentors whose balance row did not match
+     */
+    public static List<String> reconcile(boolean repair) throws SQLException {
+        return DatabaseManager.withConnection(conn -> {
+            List<String> drifted = Jdbc.queryList(conn, MISMATCH_SQL, rs -> {
+                String email = rs.getString(1);
+                System.out.println("Balance drift for " + email + ": stored earned/spent=" + rs.getInt(2) + "/" + rs.getInt(3)
+                        + ", ledger earned/spent=" + rs.getInt(4) + "/" + rs.getInt(5)
+                        + (rs.getBoolean(6) ? "" : " (no balance row)"));
+                return email;
+            });
+            if (repair) {
+                for (String email : drifted) {
+                    repair(conn, email);
+                }
+            }
+            return drifted;
+        });
+    }
+
+    /**
+     * Recomputes one mentor's row. Writers update the balance row in the same transaction as
+     * their ledger insert, so holding its lock while summing cannot miss or double count a write.
+     */
+    private static void repair(Connection conn, String mentorEmail) throws SQLException {
+        int isolation = conn.getTransactionIsolation();
+        try {
+            // Each statement must see writes committed while we waited for the row lock.
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            conn.setAutoCommit(false);
+            getBalance(conn, mentorEmail); // make sure the row exists so it can be locked
+            Jdbc.queryOne(conn, LOCK_ROW_SQL, rs -> null, mentorEmail);
+
+            long earned = MentorActivityRepository.sumPoints(conn, mentorEmail);
+            long spent = RedemptionRepository.sumSpent(conn, mentorEmail);
+            Jdbc.update(conn, REPAIR_SQL, earned, spent, mentorEmail);
+            conn.commit();
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+            conn.setTransactionIsolation(isolation);
+        }
+    }
+
+    /**
+     * Reconciliation job: java MentorBalances [--repair]
+     * Also used once after the table is first created to backfill balances for existing mentors.
+     */
+    public static void main(String[] args) throws SQLException {
+        boolean repair = args.length > 0 && "--repair".equals(args[0]);
+        List<String> drifted = reconcile(repair);
+        System.out.println(drifted.isEmpty()
+                ? "All mentor balances match the ledgers."
+                : drifted.size() + " mentor balance(s) out of sync" + (repair ? ", repaired." : "; rerun with --repair to fix."));
+        System.exit(drifted.isEmpty() || repair ? 0 : 1);
+    }
+}
@@ -2,10 +2,21 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Vector;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MentorDashboardFrame extends JFrame {
     
@@ -15,12 +26,43 @@ public class MentorDashboardFrame extends JFrame {
     // UI Components for Add Activity
     private JTextField activityNameField, activityTypeField, dateField, hoursField;
     private JLabel pointsLabel;
+    private JButton saveActivityBtn; // disabled while a save is running
     
     // UI Components for Redeem Rewards
     private JTable rewardsTable;
-    private JComboBox<String> rewardSelectBox;
+    private JComboBox<Reward> rewardSelectBox;
+    private long rewardCatalogVersion; // stamp of the catalog shown in the rewards tab
     private JLabel currentPointsLabel;
 
+    // UI Components for Leaderboard
+    private DefaultTableModel leaderboardModel;
+    private JLabel leaderboardRankLabel;
+    private JComboBox<WindowedLeaderboard.Window> leaderboardWindowBox;
+
+    // UI Components for Reports
+    private JTextField reportFromField, reportToField;
+    private JCheckBox gzipReportCheckBox;
+    private JLabel reportStatusLabel;
+    private static final int LEADERBOARD_SIZE = 100;
+
+    // UI Components for the approval queue
+    private JTabbedPane tabs;
+    private int approvalTab;
+    private DefaultTableModel pendingModel;
+    private JTable pendingTable;
+    private final List<Long> pendingIds = new ArrayList<>(); // log_id of each pendingModel row
+    private final List<String> pendingCertificates = new ArrayList<>(); // certificate_path of each row
+    private StudentActivityRepository.Cursor pendingEnd;     // last row loaded; null before the first page
+    private boolean pendingComplete;                         // every Pending row up to now is loaded
+    private long pendingCount = -1;                          // shown on the tab; -1 until first read
+    private JButton loadMorePendingBtn;
+    private static final int PENDING_PAGE = 200;
+
+    // UI Components for availability
+    private JTextField availabilityField;
+    private JLabel availabilityParsedLabel;
+    private JButton saveAvailabilityBtn; // disabled while a save is running, so saves commit in click order
+
     // Constants for aesthetics
     private static final Color HEADER_BG = new Color(52, 152, 219);
     private static final Color TEXT_COLOR = Color.WHITE;
@@ -50,6 +92,14 @@ public class MentorDashboardFrame extends JFrame {
         // 4. Generate Reports Tab
         tabbedPane.addTab("Generate Reports", createReportsPanel());
 
+        // 5. Approval queue for student activities
+        tabs = tabbedPane;
+        approvalTab = tabbedPane.getTabCount();
+        tabbedPane.addTab("Approve Activities", createApprovalPanel());
+
+        // 6. Weekly availability students can search by
+        tabbedPane.addTab("My Availability", createAvailabilityPanel());
+
         add(tabbedPane, BorderLayout.CENTER);
         setVisible(true);
         
@@ -57,6 +107,25 @@ public class MentorDashboardFrame extends JFrame {
         loadLeaderboardData((DefaultTableModel)((JTable)((JScrollPane)((JPanel)tabbedPane.getComponentAt(1)).getComponent(0)).getViewport().getView()).getModel());
         updateCurrentPointsLabel();
         loadRewardsData();
+        reloadPendingActivities();
+        loadAvailability();
+        subscribeToChanges();
+    }
+
+    /** Keeps the panels current with writes made in this process, one coalesced update per burst. */
+    private void subscribeToChanges() {
+        ChangeBus bus = ChangeBus.shared();
+        List<ChangeBus.Subscription<?>> subscriptions = new ArrayList<>();
+        subscriptions.add(bus.subscribe(ChangeBus.MentorActivityAdded.class, SwingUtilities::invokeLater, this::mentorActivitiesAdded));
+        subscriptions.add(bus.subscribe(ChangeBus.RedemptionMade.class, SwingUtilities::invokeLater, this::redemptionsMade));
+        subscriptions.add(bus.subscribe(ChangeBus.StudentActivityAdded.class, SwingUtilities::invokeLater, this::studentActivitiesAdded));
+        subscriptions.add(bus.subscribe(ChangeBus.StudentActivitiesDecided.class, SwingUtilities::invokeLater, this::studentActivitiesDecided));
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                subscriptions.forEach(ChangeBus.Subscription::close);
+            }
+        });
     }
     
     // --- Panel Creation Methods ---
@@ -100,13 +169,13 @@ public class MentorDashboardFrame extends JFrame {
         gbc.gridx = 0; gbc.gridy = 5; panel.add(pointsLabel, gbc);
 
         // Calculate and Save Button
-        JButton saveButton = new JButton("Save Activity");
-        saveButton.setBackground(HEADER_BG);
-        saveButton.setForeground(TEXT_COLOR);
-        saveButton.setFont(BOLD_FONT);
-        saveButton.addActionListener(this::saveActivity);
+        saveActivityBtn = new JButton("Save Activity");
+        saveActivityBtn.setBackground(HEADER_BG);
+        saveActivityBtn.setForeground(TEXT_COLOR);
+        saveActivityBtn.setFont(BOLD_FONT);
+        saveActivityBtn.addActionListener(this::saveActivity);
         gbc.gridwidth = 2;
-        gbc.gridx = 0; gbc.gridy = 6; panel.add(saveButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 6; panel.add(saveActivityBtn, gbc);
         
         // Add listener to hours field to auto-calculate points
         hoursField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
@@ -131,7 +200,7 @@ public class MentorDashboardFrame extends JFrame {
     
     private JPanel createLeaderboardPanel() {
         JPanel panel = new JPanel(new BorderLayout());
-        JLabel title = new JLabel("Top Mentors Leaderboard", SwingConstants.CENTER);
+        JLabel title = new JLabel("Top " + LEADERBOARD_SIZE + " Mentors Leaderboard", SwingConstants.CENTER);
         title.setFont(new Font("SansSerif", Font.BOLD, 18));
         title.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
         panel.add(title, BorderLayout.NORTH);
@@ -141,12 +210,21 @@ public class MentorDashboardFrame extends JFrame {
             @Override
             public boolean isCellEditable(int row, int column) { return false; }
         };
+        leaderboardModel = model;
         JTable leaderboardTable = new JTable(model);
         leaderboardTable.getTableHeader().setFont(BOLD_FONT);
         panel.add(new JScrollPane(leaderboardTable), BorderLayout.CENTER);
         
         // Sorting and Refresh Panel
         JPanel sortPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        sortPanel.add(new JLabel("Period:"));
+        leaderboardWindowBox = new JComboBox<>(WindowedLeaderboard.Window.values());
+        leaderboardWindowBox.setSelectedItem(WindowedLeaderboard.Window.ALL_TIME);
+        leaderboardWindowBox.addActionListener(e -> loadLeaderboardData(model));
+        sortPanel.add(leaderboardWindowBox);
+        leaderboardRankLabel = new JLabel(" ");
+        leaderboardRankLabel.setFont(BOLD_FONT);
+        sortPanel.add(leaderboardRankLabel);
         JButton refreshBtn = new JButton("Refresh Leaderboard");
         refreshBtn.addActionListener(e -> loadLeaderboardData(model));
         sortPanel.add(refreshBtn);
@@ -216,22 +294,140 @@ public class MentorDashboardFrame extends JFrame {
         title.setFont(new Font("SansSerif", Font.BOLD, 18));
         panel.add(title, BorderLayout.NORTH);
         
-        JPanel buttonPanel = new JPanel(new GridLayout(2, 2, 15, 15));
+        JPanel buttonPanel = new JPanel(new GridLayout(3, 2, 15, 15));
         
         JButton monthlyReportBtn = new JButton("Generate Monthly Report (CSV)");
-        monthlyReportBtn.addActionListener(e -> generateReport("monthly"));
+        // The last 30 days on, including activities dated later this month or beyond
+        monthlyReportBtn.addActionListener(e -> generateReport("monthly", LocalDate.now().minusDays(30), ReportExporter.NO_END));
         
         JButton yearlyReportBtn = new JButton("Generate Yearly Report (CSV)");
-        yearlyReportBtn.addActionListener(e -> generateReport("yearly"));
+        // Current calendar year
+        yearlyReportBtn.addActionListener(e -> generateReport("yearly",
+                LocalDate.now().withDayOfYear(1), LocalDate.now().withDayOfYear(1).plusYears(1)));
 
         buttonPanel.add(monthlyReportBtn);
         buttonPanel.add(yearlyReportBtn);
+
+        // Custom range (inclusive on both ends)
+        JPanel rangePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        rangePanel.add(new JLabel("From (YYYY-MM-DD):"));
+        reportFromField = new JTextField(10);
+        rangePanel.add(reportFromField);
+        rangePanel.add(new JLabel("To:"));
+        reportToField = new JTextField(10);
+        rangePanel.add(reportToField);
+        buttonPanel.add(rangePanel);
+
+        JButton customReportBtn = new JButton("Generate Report for Range (CSV)");
+        customReportBtn.addActionListener(e -> {
+            LocalDate[] range = readReportRange();
+            if (range != null) generateReport(range[0] + "_to_" + range[1], range[0], range[1].plusDays(1));
+        });
+        buttonPanel.add(customReportBtn);
+
+        gzipReportCheckBox = new JCheckBox("Compress report (.csv.gz)");
+        buttonPanel.add(gzipReportCheckBox);
+
+        JButton totalsBtn = new JButton("Show Totals for Range");
+        totalsBtn.addActionListener(e -> {
+            LocalDate[] range = readReportRange();
+            if (range != null) showTotals(range[0], range[1].plusDays(1));
+        });
+        buttonPanel.add(totalsBtn);
         
         panel.add(buttonPanel, BorderLayout.CENTER);
 
+        reportStatusLabel = new JLabel(" ", SwingConstants.CENTER);
+        reportStatusLabel.setFont(BOLD_FONT);
+        panel.add(reportStatusLabel, BorderLayout.SOUTH);
+
         return panel;
     }
     
+    private JPanel createAvailabilityPanel() {
+        JPanel panel = new newFormPanel();
+        panel.setLayout(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        JLabel title = new JLabel("When Students Can Book You", SwingConstants.CENTER);
+        title.setFont(new Font("SansSerif", Font.BOLD, 18));
+        title.setForeground(HEADER_BG);
+        gbc.gridwidth = 2;
+        gbc.gridx = 0; gbc.gridy = 0; panel.add(title, gbc);
+
+        gbc.gridwidth = 1;
+        gbc.gridx = 0; gbc.gridy = 1; panel.add(new JLabel("Availability:"), gbc);
+        availabilityField = new JTextField(30);
+        availabilityField.setToolTipText("e.g. Mon-Fri 5-8pm, Sat mornings");
+        gbc.gridx = 1; panel.add(availabilityField, gbc);
+
+        // Show what the search will understand while the mentor types
+        availabilityParsedLabel = new JLabel(" ");
+        availabilityField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { showParsedAvailability(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { showParsedAvailability(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { showParsedAvailability(); }
+        });
+        gbc.gridx = 0; gbc.gridy = 2; panel.add(new JLabel("Understood as:"), gbc);
+        gbc.gridx = 1; panel.add(availabilityParsedLabel, gbc);
+
+        saveAvailabilityBtn = new JButton("Save Availability");
+        saveAvailabilityBtn.setBackground(HEADER_BG);
+        saveAvailabilityBtn.setForeground(TEXT_COLOR);
+        saveAvailabilityBtn.setFont(BOLD_FONT);
+        saveAvailabilityBtn.addActionListener(e -> saveAvailability());
+        gbc.gridwidth = 2;
+        gbc.gridx = 0; gbc.gridy = 3; panel.add(saveAvailabilityBtn, gbc);
+
+        JPanel wrapper = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        wrapper.add(panel);
+        return wrapper;
+    }
+
+    private JPanel createApprovalPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JLabel title = new JLabel("Pending Student Activities (oldest first)", SwingConstants.CENTER);
+        title.setFont(new Font("SansSerif", Font.BOLD, 18));
+        panel.add(title, BorderLayout.NORTH);
+
+        String[] columnNames = {"Date", "Student", "Activity Name", "Type", "Certificate", "Remarks"};
+        pendingModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        pendingTable = new JTable(pendingModel);
+        pendingTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        pendingTable.getTableHeader().setFont(BOLD_FONT);
+        panel.add(new JScrollPane(pendingTable), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        JButton approveBtn = new JButton("Approve Selected");
+        approveBtn.addActionListener(e -> decideSelected(ApprovalQueue.APPROVED));
+        buttons.add(approveBtn);
+        JButton rejectBtn = new JButton("Reject Selected");
+        rejectBtn.addActionListener(e -> decideSelected(ApprovalQueue.REJECTED));
+        buttons.add(rejectBtn);
+        JButton viewCertificateBtn = new JButton("View Certificate");
+        viewCertificateBtn.addActionListener(e -> viewSelectedCertificate());
+        buttons.add(viewCertificateBtn);
+        JButton selectAllBtn = new JButton("Select All");
+        selectAllBtn.addActionListener(e -> pendingTable.selectAll());
+        buttons.add(selectAllBtn);
+        loadMorePendingBtn = new JButton("Load More");
+        loadMorePendingBtn.addActionListener(e -> loadPendingPage());
+        buttons.add(loadMorePendingBtn);
+        JButton refreshBtn = new JButton("Refresh");
+        refreshBtn.addActionListener(e -> reloadPendingActivities());
+        buttons.add(refreshBtn);
+        panel.add(buttons, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
     // --- Data/Action Methods ---
 
     private void saveActivity(ActionEvent e) {
@@ -246,285 +442,404 @@ public class MentorDashboardFrame extends JFrame {
             if (hours <= 0) throw new NumberFormatException();
             // Simple date validation (assumes YYYY-MM-DD format is correct)
             java.sql.Date.valueOf(dateStr); 
-        } catch (NumberFormatException | IllegalArgumentException ex) {
+        } catch (IllegalArgumentException ex) { // also covers NumberFormatException
             JOptionPane.showMessageDialog(this, "Please enter valid, positive hours and a date in YYYY-MM-DD format.", "Input Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        int points = hours * 10;
+        MentorActivity activity = MentorActivity.create(mentorEmail, name, type, java.sql.Date.valueOf(dateStr).toLocalDate(), hours);
+        int points = activity.points;
 
-        Connection conn = null;
-        PreparedStatement ps = null;
-        try {
-            conn = DatabaseManager.getConnection();
-            String query = "INSERT INTO MentorActivities (mentor_email, activity_name, activity_type, activity_date, hours, points) VALUES (?, ?, ?, ?, ?, ?)";
-            ps = conn.prepareStatement(query);
-            ps.setString(1, mentorEmail);
-            ps.setString(2, name);
-            ps.setString(3, type);
-            ps.setDate(4, java.sql.Date.valueOf(dateStr));
-            ps.setInt(5, hours);
-            ps.setInt(6, points);
-
-            ps.executeUpdate();
+        // Activity row and balance move together
+        saveActivityBtn.setEnabled(false);
+        BackgroundLoader.shared().submit(() -> ActivityService.addMentorActivity(activity, mentorName), saved -> {
+            saveActivityBtn.setEnabled(true);
             JOptionPane.showMessageDialog(this, "Activity saved successfully! Earned " + points + " points.", "Success", JOptionPane.INFORMATION_MESSAGE);
             activityNameField.setText("");
             activityTypeField.setText("");
             dateField.setText("");
             hoursField.setText("");
             pointsLabel.setText("Points: 0 (Hours x 10)");
-            
-            // Refresh dependent data
-            updateCurrentPointsLabel();
-            loadLeaderboardData((DefaultTableModel)((JTable)((JScrollPane)((JPanel)((JTabbedPane)this.getContentPane().getComponent(0)).getComponentAt(1)).getComponent(0)).getViewport().getView()).getModel());
-
-
-        } catch (SQLException ex) {
+            // Points and leaderboard follow through the ChangeBus
+        }, ex -> {
+            saveActivityBtn.setEnabled(true);
             JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
-        }
+        });
     }
 
     private void loadLeaderboardData(DefaultTableModel model) {
-        model.setRowCount(0); // Clear existing data
-        
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseManager.getConnection();
-            // SQL to calculate total points and hours for all mentors, sorted by points
-            String query = "SELECT m.name, SUM(ma.hours) AS total_hours, SUM(ma.points) AS total_points " +
-                           "FROM Mentors m JOIN MentorActivities ma ON m.email = ma.mentor_email " +
-                           "GROUP BY m.email, m.name ORDER BY total_points DESC";
-            
-            ps = conn.prepareStatement(query);
-            rs = ps.executeQuery();
-
-            int rank = 1;
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                    rank++,
-                    rs.getString("name"),
-                    rs.getInt("total_hours"),
-                    rs.getInt("total_points")
-                });
+        WindowedLeaderboard.Window window = (WindowedLeaderboard.Window) leaderboardWindowBox.getSelectedItem();
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":leaderboard", () -> queryLeaderboard(window), board -> {
+            // Update in place: only changed cells repaint and the selection survives
+            for (int r = 0; r < board.rows.size(); r++) {
+                Object[] row = board.rows.get(r);
+                if (r == model.getRowCount()) {
+                    model.addRow(row);
+                    continue;
+                }
+                for (int c = 0; c < row.length; c++) {
+                    if (!row[c].equals(model.getValueAt(r, c))) model.setValueAt(row[c], r, c);
+                }
             }
-        } catch (SQLException ex) {
+            model.setRowCount(board.rows.size());
+            leaderboardRankLabel.setText(board.myRank > 0
+                    ? "Your rank: #" + board.myRank + " of " + board.totalMentors
+                    : "You are not ranked yet - log an activity to join the leaderboard.");
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Error loading leaderboard: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
+        });
+    }
+
+    // Runs on a loader thread; must not touch Swing components.
+    private LeaderboardSnapshot queryLeaderboard(WindowedLeaderboard.Window window) throws SQLException {
+        WindowedLeaderboard boards = WindowedLeaderboard.shared();
+        boards.ensureSeeded(window); // Read from the rollups only on first use / periodic resync
+
+        LeaderboardSnapshot board = new LeaderboardSnapshot();
+        int rank = 1;
+        for (LeaderboardEngine.Entry entry : boards.top(window, LEADERBOARD_SIZE)) {
+            board.rows.add(new Object[]{rank++, entry.name, entry.hours, entry.points});
         }
+        board.myRank = boards.rankOf(window, mentorEmail);
+        board.totalMentors = boards.size(window);
+        return board;
     }
 
-    private int getCurrentPoints() {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        int totalPoints = 0;
-        int redeemedPoints = 0;
+    // --- Changes from the ChangeBus (on the EDT) ---
 
-        try {
-            conn = DatabaseManager.getConnection();
-            
-            // 1. Calculate total earned points
-            String pointsQuery = "SELECT SUM(points) FROM MentorActivities WHERE mentor_email = ?";
-            ps = conn.prepareStatement(pointsQuery);
-            ps.setString(1, mentorEmail);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                totalPoints = rs.getInt(1);
-            }
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-
-            // 2. Calculate total redeemed points
-            String redeemedQuery = "SELECT SUM(points_spent) FROM Redemptions WHERE mentor_email = ?";
-            ps = conn.prepareStatement(redeemedQuery);
-            ps.setString(1, mentorEmail);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                redeemedPoints = rs.getInt(1);
+    private void mentorActivitiesAdded(List<ChangeBus.MentorActivityAdded> added) {
+        // The in-process leaderboards already hold these; re-rank from memory and patch the rows
+        loadLeaderboardData(leaderboardModel);
+        if (added.stream().anyMatch(e -> e.activity.mentorEmail.equals(mentorEmail))) updateCurrentPointsLabel();
+    }
+
+    private void redemptionsMade(List<ChangeBus.RedemptionMade> made) {
+        for (ChangeBus.RedemptionMade e : made) {
+            if (e.mentorEmail.equals(mentorEmail)) currentPointsLabel.setText("Your Current Points: " + e.balance);
+        }
+    }
+
+    /** Inserts new Pending activities into the loaded part of the queue, in queue order. */
+    private void studentActivitiesAdded(List<ChangeBus.StudentActivityAdded> added) {
+        for (ChangeBus.StudentActivityAdded e : added) {
+            StudentActivity a = e.activity;
+            if (!ApprovalQueue.PENDING.equals(a.status)) continue;
+            if (pendingCount >= 0) pendingCount++;
+            if (pendingIds.contains(a.id)) continue; // already read with its page
+            if (pendingEnd != null && olderThan(pendingEnd, a)) {
+                if (!pendingComplete) continue; // a later page will bring it
+                pendingEnd = StudentActivityRepository.Cursor.of(a);
+            } else if (pendingEnd == null && !pendingComplete) {
+                continue; // the first page is still loading
             }
+            int row = 0;
+            while (row < pendingIds.size() && !olderThan(a, (LocalDate) pendingModel.getValueAt(row, 0), pendingIds.get(row))) row++;
+            pendingModel.insertRow(row, new Object[]{a.date, a.studentEmail, a.name, a.type,
+                    CertificateStore.label(a.certificate), a.remarks});
+            pendingIds.add(row, a.id);
+            pendingCertificates.add(row, a.certificate);
+            if (pendingEnd == null) pendingEnd = StudentActivityRepository.Cursor.of(a);
+        }
+        showPendingCount();
+    }
 
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error calculating points: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
+    /** Removes decided activities from the queue, whoever decided them. */
+    private void studentActivitiesDecided(List<ChangeBus.StudentActivitiesDecided> decided) {
+        Set<Long> gone = new HashSet<>();
+        for (ChangeBus.StudentActivitiesDecided e : decided) {
+            gone.addAll(e.ids);
+            if (pendingCount >= 0) pendingCount = Math.max(0, pendingCount - e.changed);
         }
-        
-        return totalPoints - redeemedPoints;
+        for (int row = pendingIds.size() - 1; row >= 0; row--) {
+            if (!gone.contains(pendingIds.get(row))) continue;
+            pendingModel.removeRow(row);
+            pendingIds.remove(row);
+            pendingCertificates.remove(row);
+        }
+        showPendingCount();
+    }
+
+    /** Queue order is oldest first: (log_date, log_id) ascending. */
+    private static boolean olderThan(StudentActivityRepository.Cursor c, StudentActivity a) {
+        return c.date.isBefore(a.date) || (c.date.equals(a.date) && c.id < a.id);
+    }
+
+    private static boolean olderThan(StudentActivity a, LocalDate date, long id) {
+        return a.date.isBefore(date) || (a.date.equals(date) && a.id < id);
+    }
+
+    /** Starts the queue over from the oldest Pending row and refreshes the tab's count. */
+    private void reloadPendingActivities() {
+        pendingModel.setRowCount(0);
+        pendingIds.clear();
+        pendingCertificates.clear();
+        pendingEnd = null;
+        pendingComplete = false;
+        loadPendingPage();
+        updatePendingCount();
+    }
+
+    /** Appends the next page of the queue. */
+    private void loadPendingPage() {
+        StudentActivityRepository.Cursor after = pendingEnd;
+        loadMorePendingBtn.setEnabled(false);
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":pending",
+                () -> Storage.current().pendingStudentActivities(after, PENDING_PAGE),
+                rows -> {
+                    if (after != pendingEnd) return; // the queue was reloaded meanwhile
+                    for (StudentActivity a : rows) {
+                        if (pendingIds.contains(a.id)) continue; // inserted from a ChangeBus event meanwhile
+                        pendingModel.addRow(new Object[]{a.date, a.studentEmail, a.name, a.type,
+                                CertificateStore.label(a.certificate), a.remarks});
+                        pendingIds.add(a.id);
+                        pendingCertificates.add(a.certificate);
+                    }
+                    if (!rows.isEmpty()) pendingEnd = StudentActivityRepository.Cursor.of(rows.get(rows.size() - 1));
+                    pendingComplete = rows.size() < PENDING_PAGE;
+                    loadMorePendingBtn.setEnabled(rows.size() == PENDING_PAGE);
+                }, ex -> {
+                    loadMorePendingBtn.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "Error loading pending activities: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
+    }
+
+    private void updatePendingCount() {
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":pendingCount",
+                () -> Storage.current().studentActivityStatusCounts().getOrDefault(ApprovalQueue.PENDING, 0L),
+                count -> {
+                    pendingCount = count;
+                    showPendingCount();
+                },
+                ex -> ex.printStackTrace()); // the badge is informational; the queue reports errors
+    }
+
+    private void showPendingCount() {
+        if (pendingCount >= 0) tabs.setTitleAt(approvalTab, "Approve Activities (" + pendingCount + ")");
+    }
+
+    /** Approves or rejects the selected rows in one transaction. */
+    private void decideSelected(String status) {
+        int[] selected = pendingTable.getSelectedRows();
+        if (selected.length == 0) {
+            JOptionPane.showMessageDialog(this, "Select one or more activities first.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        List<Long> ids = new ArrayList<>(selected.length);
+        for (int row : selected) ids.add(pendingIds.get(pendingTable.convertRowIndexToModel(row)));
+        String verb = ApprovalQueue.APPROVED.equals(status) ? "approved" : "rejected";
+        BackgroundLoader.shared().submit(() -> ActivityService.decideStudentActivities(ids, status),
+                changed -> {
+                    JOptionPane.showMessageDialog(this, changed + " activit" + (changed == 1 ? "y" : "ies") + " " + verb
+                            + (changed < ids.size() ? " (" + (ids.size() - changed) + " had already been reviewed)" : "") + ".",
+                            "Review Saved", JOptionPane.INFORMATION_MESSAGE);
+                    // The decided rows leave the queue through the ChangeBus
+                }, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error saving review: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
+    }
+
+    /** Opens the selected row's certificate in the desktop's viewer, from a temporary copy. */
+    private void viewSelectedCertificate() {
+        int row = pendingTable.getSelectedRow();
+        String reference = row < 0 ? null : pendingCertificates.get(pendingTable.convertRowIndexToModel(row));
+        if (!CertificateStore.isReference(reference)) {
+            JOptionPane.showMessageDialog(this, "Select an activity with an attached certificate.", "No Certificate", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":certificate", () -> {
+            CertificateStore store = CertificateStore.shared();
+            Path copy = Files.createTempFile("certificate", store.extension(reference));
+            copy.toFile().deleteOnExit();
+            store.copyTo(reference, copy);
+            return copy;
+        }, copy -> {
+            try {
+                Desktop.getDesktop().open(copy.toFile());
+            } catch (IOException | UnsupportedOperationException ex) {
+                JOptionPane.showMessageDialog(this, "No viewer available; the certificate was saved to " + copy,
+                        "View Certificate", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }, ex -> {
+            JOptionPane.showMessageDialog(this, "Error reading certificate: " + ex.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
+    }
+
+    private static class LeaderboardSnapshot {
+        final List<Object[]> rows = new ArrayList<>();
+        int myRank;
+        int totalMentors;
+    }
+
+    // Blocking; callers on the EDT should go through updateCurrentPointsLabel() instead.
+    private int getCurrentPoints() throws SQLException {
+        // Maintained balance row: a single primary-key lookup
+        return Storage.current().balance(mentorEmail);
     }
     
     private void updateCurrentPointsLabel() {
-        int points = getCurrentPoints();
-        currentPointsLabel.setText("Your Current Points: " + points);
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":points", this::getCurrentPoints,
+                points -> currentPointsLabel.setText("Your Current Points: " + points),
+                ex -> {
+                    currentPointsLabel.setText("Your Current Points: unavailable");
+                    JOptionPane.showMessageDialog(this, "Error calculating points: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
     }
 
     private void loadRewardsData() {
-        DefaultTableModel model = (DefaultTableModel) rewardsTable.getModel();
-        model.setRowCount(0);
-        rewardSelectBox.removeAllItems();
-        
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseManager.getConnection();
-            String query = "SELECT reward_id, reward_name, points_cost FROM Rewards ORDER BY points_cost ASC";
-            ps = conn.prepareStatement(query);
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                int id = rs.getInt("reward_id");
-                String name = rs.getString("reward_name");
-                int cost = rs.getInt("points_cost");
-                
-                model.addRow(new Object[]{id, name, cost});
-                rewardSelectBox.addItem(name + " (" + cost + " points)");
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":rewards", RewardCatalog.shared()::current, catalog -> {
+            DefaultTableModel model = (DefaultTableModel) rewardsTable.getModel();
+            model.setRowCount(0);
+            rewardSelectBox.removeAllItems();
+            for (Reward reward : catalog.rewards) {
+                model.addRow(new Object[]{reward.id, reward.name, reward.cost});
+                rewardSelectBox.addItem(reward);
             }
-        } catch (SQLException ex) {
+            rewardCatalogVersion = catalog.version;
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Error loading rewards: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
-        }
+        });
     }
-    
+
     private void redeemReward(ActionEvent e) {
-        String selectedItem = (String) rewardSelectBox.getSelectedItem();
-        if (selectedItem == null) {
+        Reward reward = (Reward) rewardSelectBox.getSelectedItem();
+        if (reward == null) {
             JOptionPane.showMessageDialog(this, "Please select a reward to redeem.", "Redemption Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
-
-        // Parse reward name and cost from the selected string
-        String rewardName = selectedItem.substring(0, selectedItem.indexOf(" ("));
-        int cost = Integer.parseInt(selectedItem.substring(selectedItem.indexOf("(") + 1, selectedItem.indexOf(" points)")));
-        
-        int currentPoints = getCurrentPoints();
-        if (currentPoints < cost) {
-            JOptionPane.showMessageDialog(this, "Insufficient points! You need " + cost + " points, but only have " + currentPoints + ".", "Redemption Failed", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Find the reward_id
-        int rewardId = -1;
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        try {
-            conn = DatabaseManager.getConnection();
-            String idQuery = "SELECT reward_id FROM Rewards WHERE reward_name = ?";
-            ps = conn.prepareStatement(idQuery);
-            ps.setString(1, rewardName);
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                rewardId = rs.getInt("reward_id");
-            }
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-
-            if (rewardId == -1) {
-                JOptionPane.showMessageDialog(this, "Selected reward not found in database.", "Redemption Error", JOptionPane.ERROR_MESSAGE);
-                return;
+        long catalogVersion = rewardCatalogVersion;
+        // Balance check, debit and ledger insert happen atomically, at the price that was shown.
+        // Off the EDT: under contention redeem() backs off and retries.
+        BackgroundLoader.shared().submit(() -> RewardRedemption.redeem(mentorEmail, reward, catalogVersion), result -> {
+            switch (result.status) {
+                case CATALOG_CHANGED:
+                    JOptionPane.showMessageDialog(this, "The reward catalog has changed. Please check the updated rewards and try again.", "Redemption Error", JOptionPane.WARNING_MESSAGE);
+                    RewardCatalog.shared().invalidate();
+                    loadRewardsData();
+                    return;
+                case INSUFFICIENT_POINTS:
+                    JOptionPane.showMessageDialog(this, "Insufficient points! You need " + reward.cost + " points, but only have " + result.balance + ".", "Redemption Failed", JOptionPane.ERROR_MESSAGE);
+                    return;
+                default:
+                    JOptionPane.showMessageDialog(this, "Redemption successful! Spent " + reward.cost + " points for " + reward.name + ".", "Success", JOptionPane.INFORMATION_MESSAGE);
             }
-
-            // Insert redemption record
-            String insertQuery = "INSERT INTO Redemptions (mentor_email, reward_id, points_spent) VALUES (?, ?, ?)";
-            ps = conn.prepareStatement(insertQuery);
-            ps.setString(1, mentorEmail);
-            ps.setInt(2, rewardId);
-            ps.setInt(3, cost);
-
-            ps.executeUpdate();
-            JOptionPane.showMessageDialog(this, "Redemption successful! Spent " + cost + " points for " + rewardName + ".", "Success", JOptionPane.INFORMATION_MESSAGE);
-            
-            // Refresh points
-            updateCurrentPointsLabel();
-
-        } catch (SQLException ex) {
+            currentPointsLabel.setText("Your Current Points: " + result.balance);
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Database error during redemption: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
-        }
+        });
     }
     
-    private void generateReport(String period) {
-        // Simple report generation logic for current mentor
-        String filename = mentorName.replaceAll(" ", "_") + "_" + period + "_Report.csv";
-        String dateFilter = "";
-        
-        if ("monthly".equals(period)) {
-            // Filter for the last 30 days
-            dateFilter = "AND activity_date >= DATE_SUB(CURDATE(), INTERVAL 30 DAY)";
-        } else if ("yearly".equals(period)) {
-            // Filter for the current year
-            dateFilter = "AND YEAR(activity_date) = YEAR(CURDATE())";
+    /** The custom range fields, inclusive on both ends; null (after telling the user) if they are not valid. */
+    private LocalDate[] readReportRange() {
+        LocalDate from, to;
+        try {
+            from = LocalDate.parse(reportFromField.getText().trim());
+            to = LocalDate.parse(reportToField.getText().trim());
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter both dates in YYYY-MM-DD format.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return null;
         }
+        if (to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this, "The end date must not be before the start date.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        return new LocalDate[]{from, to};
+    }
 
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseManager.getConnection();
-            String query = "SELECT activity_date, activity_name, activity_type, hours, points " +
-                           "FROM MentorActivities WHERE mentor_email = ? " + dateFilter + " ORDER BY activity_date DESC";
-            
-            ps = conn.prepareStatement(query);
-            ps.setString(1, mentorEmail);
-            rs = ps.executeQuery();
-
-            try (FileWriter fw = new FileWriter(filename)) {
-                fw.append("Date,Activity Name,Activity Type,Hours,Points\n");
-                int totalHours = 0;
-                int totalPoints = 0;
-                
-                while (rs.next()) {
-                    fw.append(rs.getString("activity_date")).append(",");
-                    fw.append("\"").append(rs.getString("activity_name")).append("\",");
-                    fw.append(rs.getString("activity_type")).append(",");
-                    fw.append(String.valueOf(rs.getInt("hours"))).append(",");
-                    fw.append(String.valueOf(rs.getInt("points"))).append("\n");
-                    
-                    totalHours += rs.getInt("hours");
-                    totalPoints += rs.getInt("points");
-                }
-                
-                fw.append("\nTotal Hours,").append(String.valueOf(totalHours)).append("\n");
-                fw.append("Total Points,").append(String.valueOf(totalPoints)).append("\n");
-                
-                JOptionPane.showMessageDialog(this, period.substring(0, 1).toUpperCase() + period.substring(1) + " Report generated successfully to " + filename, "Report Success", JOptionPane.INFORMATION_MESSAGE);
-                
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Error writing report to file: " + ex.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
-            }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error generating report: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+    private void showParsedAvailability() {
+        availabilityParsedLabel.setText(Availability.describe(Availability.parse(availabilityField.getText())));
+    }
+
+    private void loadAvailability() {
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":availability", () -> {
+            AvailabilityIndex index = AvailabilityIndex.shared();
+            index.ensureBuilt();
+            return index.availabilityOf(mentorEmail);
+        }, text -> availabilityField.setText(text == null ? "" : text), ex -> {
+            JOptionPane.showMessageDialog(this, "Error loading availability: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
+        });
+    }
+
+    private void saveAvailability() {
+        String text = availabilityField.getText().trim();
+        if (text.length() > MentorService.MAX_AVAILABILITY) {
+            JOptionPane.showMessageDialog(this, "Availability is limited to " + MentorService.MAX_AVAILABILITY + " characters.",
+                    "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
         }
+        saveAvailabilityBtn.setEnabled(false);
+        BackgroundLoader.shared().submit(() -> MentorService.updateAvailability(mentorEmail, text), saved -> {
+            saveAvailabilityBtn.setEnabled(true);
+            if (saved) {
+                JOptionPane.showMessageDialog(this, "Availability saved: " + Availability.describe(Availability.parse(text)),
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, "Your mentor account was not found; availability not saved.",
+                        "Save Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        }, ex -> {
+            saveAvailabilityBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
+    }
+
+    /**
+     * Shows the activity count, hours and points for [from, toExclusive) in the panel, read from the rollups.
+     */
+    private void showTotals(LocalDate from, LocalDate toExclusive) {
+        reportStatusLabel.setText("Adding up " + from + " to " + toExclusive.minusDays(1) + "...");
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":totals",
+                () -> ReportExporter.summarize(mentorEmail, from, toExclusive),
+                totals -> reportStatusLabel.setText(from + " to " + toExclusive.minusDays(1) + ": " + totals.activities
+                        + " activities, " + totals.hours + " hours, " + totals.points + " points"),
+                ex -> {
+                    reportStatusLabel.setText("Could not load totals.");
+                    JOptionPane.showMessageDialog(this, "Error loading totals: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
+    }
+
+    /**
+     * Exports activities dated within [from, toExclusive) on a loader thread, reporting progress in the panel.
+     */
+    private void generateReport(String label, LocalDate from, LocalDate toExclusive) {
+        boolean gzip = gzipReportCheckBox.isSelected();
+        String filename = mentorName.replaceAll(" ", "_") + "_" + label + "_Report.csv" + (gzip ? ".gz" : "");
+        Path file = Paths.get(filename);
+        String title = label.substring(0, 1).toUpperCase() + label.substring(1);
+
+        reportStatusLabel.setText("Generating " + title + " report...");
+        AtomicLong lastPublished = new AtomicLong();
+        BackgroundLoader.shared().load("mentor:" + mentorEmail + ":report",
+                () -> ReportExporter.export(mentorEmail, from, toExclusive, file, gzip, rows -> {
+                    // Only queue a label update once the previous one has been shown
+                    if (lastPublished.getAndSet(rows) == 0) {
+                        SwingUtilities.invokeLater(() -> reportStatusLabel.setText(
+                                "Generating " + title + " report... " + lastPublished.getAndSet(0) + " rows written"));
+                    }
+                }),
+                result -> {
+                    reportStatusLabel.setText(result.rows + " rows written to " + filename + " in " + result.elapsedMs + " ms");
+                    JOptionPane.showMessageDialog(this, title + " Report generated successfully to " + filename, "Report Success", JOptionPane.INFORMATION_MESSAGE);
+                },
+                ex -> {
+                    reportStatusLabel.setText("Report failed.");
+                    if (ex instanceof IOException) {
+                        JOptionPane.showMessageDialog(this, "Error writing report to file: " + ex.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Error generating report: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    ex.printStackTrace();
+                });
     }
     
     // Custom Panel for better form spacing
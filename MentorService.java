@@ -0,0 +1,46 @@
+import java.sql.SQLException;
+
+/**
+ * Mentor account writes that the in-process search indexes (SkillIndex, AvailabilityIndex)
+ * follow, shared by the dashboards and TimeBankServer so both keep the indexes in step.
+ */
+public final class MentorService {
+
+    /** Longest availability text the Mentors.availability column holds. */
+    public static final int MAX_AVAILABILITY = 100;
+
+    private MentorService() {
+    }
+
+    /** Starts building both indexes off the calling thread. */
+    public static void buildIndexesInBackground() {
+        SkillIndex.shared().buildInBackground();
+        AvailabilityIndex.shared().buildInBackground();
+    }
+
+    /**
+     * Registers a mentor, then adds them to the indexes.
+     * @param passwordHash a PasswordHasher hash
+     */
+    public static void register(String name, String email, String passwordHash, String skills, String availability,
+                                String contactNo) throws SQLException {
+        Storage.current().insertMentor(name, email, passwordHash, skills, availability, contactNo);
+        AccountRepository.MentorProfile profile = new AccountRepository.MentorProfile(name, email, skills, availability);
+        SkillIndex.shared().registered(profile);
+        AvailabilityIndex.shared().registered(profile);
+    }
+
+    /**
+     * Replaces a mentor's availability, then re-indexes it.
+     * @return false if there is no such mentor
+     */
+    public static boolean updateAvailability(String email, String availability) throws SQLException {
+        if (availability.length() > MAX_AVAILABILITY) {
+            throw new IllegalArgumentException("Availability is limited to " + MAX_AVAILABILITY + " characters.");
+        }
+        if (Storage.current().updateMentorAvailability(email, availability) == 0) return false;
+        AvailabilityIndex.shared().updated(email, availability);
+        SkillIndex.shared().availabilityChanged(email, availability);
+        return true;
+    }
+}
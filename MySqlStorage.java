@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage on the TimeBankDB MySQL schema, through DatabaseManager's connection pool and the
+ * repository classes.
+ */
+public final class MySqlStorage implements Storage {
+
+    @Override
+    public AccountRepository.Credentials findCredentials(AccountRepository.Role role, String email) throws SQLException {
+        return DatabaseManager.withConnection(conn -> AccountRepository.findCredentials(conn, role, email));
+    }
+
+    @Override
+    public int replacePassword(AccountRepository.Role role, String email, String expected, String replacement)
+            throws SQLException {
+        return DatabaseManager.withConnection(conn -> AccountRepository.replacePassword(conn, role, email, expected, replacement));
+    }
+
+    @Override
+    public void insertStudent(String name, String email, String password, String department, String year,
+                              String contactNo) throws SQLException {
+        DatabaseManager.withConnection(conn -> {
+            AccountRepository.insertStudent(conn, name, email, password, department, year, contactNo);
+            return null;
+        });
+    }
+
+    @Override
+    public void insertMentor(String name, String email, String password, String skills, String availability,
+                             String contactNo) throws SQLException {
+        DatabaseManager.withConnection(conn -> {
+            AccountRepository.insertMentor(conn, name, email, password, skills, availability, contactNo);
+            return null;
+        });
+    }
+
+    @Override
+    public int updateMentorAvailability(String email, String availability) throws SQLException {
+        return DatabaseManager.withConnection(conn -> AccountRepository.updateAvailability(conn, email, availability));
+    }
+
+    @Override
+    public List<AccountRepository.MentorProfile> mentorProfiles() throws SQLException {
+        return DatabaseManager.withConnection(AccountRepository::mentorProfiles);
+    }
+
+    @Override
+    public long addMentorActivity(MentorActivity activity) throws SQLException {
+        return DatabaseManager.inTransaction(conn -> {
+            long id = MentorActivityRepository.insert(conn, activity);
+            MentorBalances.credit(conn, activity.mentorEmail, activity.points);
+            ActivityRollups.add(conn, activity.withId(id));
+            return id;
+        });
+    }
+
+    @Override
+    public List<MentorActivityRepository.MentorTotals> mentorTotals() throws SQLException {
+        return DatabaseManager.withConnection(ActivityRollups::totalsByMentor);
+    }
+
+    @Override
+    public void forEachMentorActivity(String mentorEmail, LocalDate from, LocalDate toExclusive,
+                                      RowHandler<MentorActivity> handler) throws SQLException, IOException {
+        // Not withConnection(): the handler may throw IOException
+        Connection conn = DatabaseManager.getPool().getConnection();
+        try {
+            MentorActivityRepository.forEachInRange(conn, mentorEmail, from, toExclusive, handler);
+        } finally {
+            DatabaseManager.close(conn);
+        }
+    }
+
+    @Override
+    public ActivityRollups.Totals periodTotals(String mentorEmail, LocalDate from, LocalDate toExclusive) throws SQLException {
+        return DatabaseManager.withConnection(conn -> ActivityRollups.periodTotals(conn, mentorEmail, from, toExclusive));
+    }
+
+    @Override
+    public ActivityRollups.Recent recentDailyTotals(LocalDate from) throws SQLException {
+        return DatabaseManager.withConnection(conn -> ActivityRollups.recent(conn, from));
+    }
+
+    @Override
+    public int balance(String mentorEmail) throws SQLException {
+        return DatabaseManager.withConnection(conn -> MentorBalances.getBalance(conn, mentorEmail));
+    }
+
+    @Override
+    public long addStudentActivity(StudentActivity activity) throws SQLException {
+        return DatabaseManager.inTransaction(conn -> {
+            long id = StudentActivityRepository.insert(conn, activity);
+            ApprovalQueue.counted(conn, Collections.singletonList(activity));
+            StudentActivityRepository.counted(conn, Collections.singletonList(activity));
+            return id;
+        });
+    }
+
+    @Override
+    public int countStudentActivities(String studentEmail) throws SQLException {
+        return DatabaseManager.withConnection(conn -> StudentActivityRepository.countByStudent(conn, studentEmail));
+    }
+
+    @Override
+    public List<StudentActivity> studentActivityPage(String studentEmail, StudentActivityRepository.Cursor after, int limit)
+            throws SQLException {
+        return DatabaseManager.withConnection(conn -> StudentActivityRepository.pageByStudent(conn, studentEmail, after, limit));
+    }
+
+    @Override
+    public List<StudentActivityRepository.Cursor> studentActivityPageEnds(String studentEmail,
+            StudentActivityRepository.Cursor after, int pages, int pageSize) throws SQLException {
+        return DatabaseManager.withConnection(conn ->
+                StudentActivityRepository.pageEnds(conn, studentEmail, after, pages, pageSize));
+    }
+
+    @Override
+    public Map<String, Long> studentActivityStatusCounts() throws SQLException {
+        return DatabaseManager.withConnection(ApprovalQueue::counts);
+    }
+
+    @Override
+    public List<StudentActivity> pendingStudentActivities(StudentActivityRepository.Cursor after, int limit)
+            throws SQLException {
+        return DatabaseManager.withConnection(conn -> ApprovalQueue.page(conn, after, limit));
+    }
+
+    @Override
+    public int decideStudentActivities(List<Long> logIds, String status) throws SQLException {
+        return ApprovalQueue.decide(logIds, status);
+    }
+
+    @Override
+    public long rewardCatalogVersion() throws SQLException {
+        return DatabaseManager.withConnection(conn -> Jdbc.queryLong(conn, RewardCatalog.VERSION_SQL));
+    }
+
+    @Override
+    public List<Reward> rewards() throws SQLException {
+        return DatabaseManager.withConnection(RewardRepository::findAll);
+    }
+
+    @Override
+    public RewardRedemption.Result redeem(String mentorEmail, Reward reward, long catalogVersion)
+            throws SQLException, InterruptedException {
+        return RewardRedemption.redeemInMySql(mentorEmail, reward, catalogVersion);
+    }
+}
@@ -0,0 +1,89 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * PBKDF2-HMAC-SHA256 password hashes, stored as pbkdf2-sha256$iterations$salt$hash (Base64).
+ *
+ * Rows written before hashing was introduced still hold the plaintext password; verify()
+ * accepts those too so that AuthService can replace them with a hash on the next login.
+ * Hashing is deliberately slow: call it through AuthService, not on the EDT.
+ */
+final class PasswordHasher {
+
+    static final String PREFIX = "pbkdf2-sha256$";
+    static final int ITERATIONS = Integer.getInteger("timebank.auth.iterations", 310_000);
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    static String hash(char[] password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + ITERATIONS + "$" + b64.encodeToString(salt) + "$"
+                + b64.encodeToString(derive(password, salt, ITERATIONS));
+    }
+
+    /** Constant-time comparison against a stored hash, or against a legacy plaintext value. */
+    static boolean verify(char[] password, String stored) {
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(utf8(password), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) return false;
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            return MessageDigest.isEqual(derive(password, salt, iterations), expected);
+        } catch (IllegalArgumentException ex) { // also covers NumberFormatException
+            return false;
+        }
+    }
+
+    static boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+
+    /** True for plaintext rows and for hashes made with fewer iterations than currently configured. */
+    static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) return true;
+        String rest = stored.substring(PREFIX.length());
+        int end = rest.indexOf('$');
+        try {
+            return end < 0 || Integer.parseInt(rest.substring(0, end)) < ITERATIONS;
+        } catch (NumberFormatException ex) {
+            return true;
+        }
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] utf8(char[] chars) {
+        ByteBuffer buf = StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars));
+        byte[] bytes = Arrays.copyOfRange(buf.array(), buf.position(), buf.limit());
+        Arrays.fill(buf.array(), (byte) 0);
+        return bytes;
+    }
+}
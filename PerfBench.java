@@ -0,0 +1,359 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-benchmarks for the data paths behind the dashboards, run against a seeded scratch database.
+ *
+ * Each benchmark is warmed up, then driven from several threads for a fixed time; throughput and the
+ * latency distribution of individual calls are reported. Results are only comparable between runs on
+ * the same dataset size and machine.
+ *
+ * Usage:
+ *   java -Dtimebank.db.url=jdbc:mysql://localhost:3306/TimeBankBench PerfBench
+ *        [--rows=10k|1m|10m] [--threads=4] [--warmup=5] [--measure=10] [--only=login,report]
+ *
+ * The target database is created and seeded on first use; it must not be the live TimeBankDB.
+ */
+public class PerfBench {
+
+    /** One benchmarked call. */
+    interface Op {
+        void run(ThreadLocalRandom rnd) throws Exception;
+    }
+
+    private static final Map<String, Op> BENCHMARKS = new LinkedHashMap<>();
+
+    private static Dataset dataset;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        long rows = parseCount(opts.getOrDefault("rows", "10k"));
+        int threads = Integer.parseInt(opts.getOrDefault("threads", "4"));
+        int warmupSec = Integer.parseInt(opts.getOrDefault("warmup", "5"));
+        int measureSec = Integer.parseInt(opts.getOrDefault("measure", "10"));
+        List<String> only = opts.containsKey("only") ? Arrays.asList(opts.get("only").split(",")) : null;
+
+        String url = System.getProperty("timebank.db.url", "");
+        if (url.isEmpty() || url.matches(".*/TimeBankDB(\\?.*)?$")) {
+            System.err.println("Point -Dtimebank.db.url at a scratch database (e.g. .../TimeBankBench); "
+                    + "the benchmark seeds and writes to it.");
+            System.exit(2);
+        }
+
+        dataset = Dataset.ensure(rows);
+        registerBenchmarks();
+
+        System.out.printf("%nDataset: %,d mentor activities, %d mentors, %d students; %d threads, %ds warmup, %ds measured%n%n",
+                dataset.activityRows, dataset.mentors, dataset.students, threads, warmupSec, measureSec);
+        System.out.printf("%-22s %12s %10s %10s %10s %10s%n", "benchmark", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Op> b : BENCHMARKS.entrySet()) {
+            if (only != null && !only.contains(b.getKey())) continue;
+            run(b.getKey(), b.getValue(), threads, warmupSec, measureSec);
+        }
+        System.out.println();
+        System.out.println(DatabaseManager.getPoolStats());
+        System.out.println(AuthService.shared().getStats());
+        System.out.println();
+        System.out.print(QueryMetrics.report());
+        System.exit(0);
+    }
+
+    private static void registerBenchmarks() {
+        BENCHMARKS.put("login", rnd -> {
+            String email = dataset.studentEmail(rnd.nextInt(dataset.students));
+            AuthService.shared().authenticate(AccountRepository.Role.STUDENT, email, "password".toCharArray());
+        });
+        BENCHMARKS.put("leaderboard-sql", rnd -> query(
+                "SELECT m.name, SUM(ma.hours) AS total_hours, SUM(ma.points) AS total_points " +
+                "FROM Mentors m JOIN MentorActivities ma ON m.email = ma.mentor_email " +
+                "GROUP BY m.email, m.name ORDER BY total_points DESC"));
+        BENCHMARKS.put("leaderboard-engine", rnd -> {
+            LeaderboardEngine engine = LeaderboardEngine.shared();
+            engine.ensureSeeded();
+            engine.top(100);
+            engine.rankOf(dataset.mentorEmail(rnd.nextInt(dataset.mentors)));
+        });
+        // The dashboards' path: one benchmark per rolling window (all time is leaderboard-engine)
+        for (WindowedLeaderboard.Window window : WindowedLeaderboard.Window.values()) {
+            if (window == WindowedLeaderboard.Window.ALL_TIME) continue;
+            BENCHMARKS.put("leaderboard-" + window.name().toLowerCase(), rnd -> readWindow(window, rnd));
+        }
+        // Record an activity (in memory only), then read a window: includes the re-rank it forces
+        AtomicLong fakeIds = new AtomicLong(Long.MAX_VALUE / 2);
+        WindowedLeaderboard.Window[] windows = WindowedLeaderboard.Window.values();
+        BENCHMARKS.put("leaderboard-recompute", rnd -> {
+            int m = rnd.nextInt(dataset.mentors);
+            WindowedLeaderboard.shared().recordActivity(MentorActivity.create(dataset.mentorEmail(m), "bench", "Tutoring",
+                    LocalDate.now(), 1).withId(fakeIds.incrementAndGet()), "Bench Mentor " + m);
+            readWindow(windows[rnd.nextInt(windows.length - 1)], rnd); // not ALL_TIME
+        });
+        BENCHMARKS.put("points-ledger-sums", rnd -> {
+            String email = dataset.mentorEmail(rnd.nextInt(dataset.mentors));
+            DatabaseManager.withConnection(conn ->
+                    MentorActivityRepository.sumPoints(conn, email) - RedemptionRepository.sumSpent(conn, email));
+        });
+        BENCHMARKS.put("points-balance", rnd -> {
+            try (Connection conn = DatabaseManager.getPool().getConnection()) {
+                MentorBalances.getBalance(conn, dataset.mentorEmail(rnd.nextInt(dataset.mentors)));
+            }
+        });
+        BENCHMARKS.put("redeem", rnd -> {
+            String email = dataset.mentorEmail(rnd.nextInt(dataset.mentors));
+            RewardRedemption.redeem(email, new Reward(dataset.rewardId, "bench", 1), -1);
+        });
+        BENCHMARKS.put("report", rnd -> {
+            Path out = Files.createTempFile("timebank-bench", ".csv");
+            try {
+                ReportExporter.export(dataset.mentorEmail(rnd.nextInt(dataset.mentors)),
+                        LocalDate.now().minusYears(1), LocalDate.now().plusDays(1), out, false, null);
+            } finally {
+                Files.deleteIfExists(out);
+            }
+        });
+    }
+
+    /** What MentorDashboardFrame.queryLeaderboard does for one window. */
+    private static void readWindow(WindowedLeaderboard.Window window, ThreadLocalRandom rnd) throws SQLException {
+        WindowedLeaderboard boards = WindowedLeaderboard.shared();
+        boards.ensureSeeded(window);
+        boards.top(window, 100);
+        boards.rankOf(window, dataset.mentorEmail(rnd.nextInt(dataset.mentors)));
+        boards.size(window);
+    }
+
+    private static void query(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseManager.getPool().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // drain
+                }
+            }
+        }
+    }
+
+    static void run(String name, Op op, int threads, int warmupSec, int measureSec) throws Exception {
+        drive(op, threads, warmupSec, null);
+        LatencyHistogram latency = new LatencyHistogram();
+        long ops = drive(op, threads, measureSec, latency);
+        System.out.printf("%-22s %12.1f %10.3f %10.3f %10.3f %10.3f%n", name, ops / (double) measureSec,
+                latency.getPercentileMicros(50) / 1000.0, latency.getPercentileMicros(95) / 1000.0,
+                latency.getPercentileMicros(99) / 1000.0, latency.getMaxMicros() / 1000.0);
+    }
+
+    /** Calls {@code op} from {@code threads} threads for {@code seconds}; returns the number of completed calls. */
+    private static long drive(Op op, int threads, int seconds, LatencyHistogram latency) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong completed = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    op.run(rnd);
+                    if (latency != null) latency.recordNanos(System.nanoTime() - start);
+                    completed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : workers) f.get();
+        pool.shutdown();
+        return completed.get();
+    }
+
+    // --- Dataset ---
+
+    /**
+     * Deterministic synthetic data: rows/1000 mentors (at least 100), five students per mentor,
+     * activities spread over the last three years and half as many student log rows.
+     */
+    static final class Dataset {
+        final long activityRows;
+        final int mentors;
+        final int students;
+        int rewardId;
+
+        private Dataset(long activityRows) {
+            this.activityRows = activityRows;
+            this.mentors = (int) Math.max(100, activityRows / 1000);
+            this.students = mentors * 5;
+        }
+
+        String mentorEmail(int i) {
+            return "mentor" + i + "@bench.timebank";
+        }
+
+        String studentEmail(int i) {
+            return "student" + i + "@bench.timebank";
+        }
+
+        static Dataset ensure(long rows) throws Exception {
+            Dataset d = new Dataset(rows);
+            try (Connection conn = DatabaseManager.getPool().getConnection()) {
+                SchemaMigrator.migrate(conn);
+                long existing = count(conn, "SELECT COUNT(*) FROM MentorActivities");
+                if (existing != rows) {
+                    System.out.printf("Seeding %,d activity rows (found %,d)...%n", rows, existing);
+                    d.seed(conn);
+                }
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT MIN(reward_id) FROM Rewards")) {
+                    rs.next();
+                    d.rewardId = rs.getInt(1);
+                }
+            }
+            return d;
+        }
+
+        private void seed(Connection conn) throws SQLException {
+            long start = System.currentTimeMillis();
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET FOREIGN_KEY_CHECKS = 0");
+                for (String table : new String[]{"Redemptions", "MentorBalances", "MentorDailyRollups", "MentorMonthlyRollups", "StudentActivityCounts", "StudentActivityTotals", "StudentsActivity", "MentorActivities", "Students", "Mentors"}) {
+                    st.execute("TRUNCATE TABLE " + table);
+                }
+                st.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+            conn.setAutoCommit(false);
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            LocalDate today = LocalDate.now();
+
+            MultiRowInsert mentorInsert = new MultiRowInsert(conn,
+                    "INSERT INTO Mentors (name, email, password, skills, availability, contact_no) VALUES ", 6);
+            for (int i = 0; i < mentors; i++) {
+                mentorInsert.add("Mentor " + i, mentorEmail(i), "password", "java, sql", "Weekdays", "555-0100");
+            }
+            mentorInsert.flush();
+
+            MultiRowInsert studentInsert = new MultiRowInsert(conn,
+                    "INSERT INTO Students (name, email, password, department, year, contact_no) VALUES ", 6);
+            for (int i = 0; i < students; i++) {
+                studentInsert.add("Student " + i, studentEmail(i), "password", "CS", "2025", "555-0101");
+            }
+            studentInsert.flush();
+
+            MultiRowInsert activityInsert = new MultiRowInsert(conn,
+                    "INSERT INTO MentorActivities (mentor_email, activity_name, activity_type, activity_date, hours, points) VALUES ", 6);
+            for (long i = 0; i < activityRows; i++) {
+                int hours = 1 + rnd.nextInt(8);
+                activityInsert.add(mentorEmail(rnd.nextInt(mentors)), "Activity " + i, "Tutoring",
+                        java.sql.Date.valueOf(today.minusDays(rnd.nextInt(3 * 365))), hours, hours * 10);
+                if (i % 1_000_000 == 999_999) System.out.printf("  %,d activities%n", i + 1);
+            }
+            activityInsert.flush();
+
+            MultiRowInsert logInsert = new MultiRowInsert(conn,
+                    "INSERT INTO StudentsActivity (student_email, activity_name, activity_type, log_date, status, certificate_path, remarks) VALUES ", 7);
+            for (long i = 0; i < activityRows / 2; i++) {
+                logInsert.add(studentEmail(rnd.nextInt(students)), "Workshop " + i, "Workshop",
+                        java.sql.Date.valueOf(today.minusDays(rnd.nextInt(3 * 365))), i % 3 == 0 ? "Pending" : "Completed", "No", "");
+            }
+            logInsert.flush();
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO MentorBalances (mentor_email, points_earned, points_spent) " +
+                        "SELECT mentor_email, SUM(points), 0 FROM MentorActivities GROUP BY mentor_email");
+                st.execute("INSERT INTO MentorDailyRollups (mentor_email, day, activities, hours, points) " +
+                        "SELECT mentor_email, activity_date, COUNT(*), SUM(hours), SUM(points) " +
+                        "FROM MentorActivities GROUP BY mentor_email, activity_date");
+                st.execute("INSERT INTO MentorMonthlyRollups (mentor_email, month, activities, hours, points, last_activity_id) " +
+                        "SELECT mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01'), COUNT(*), SUM(hours), SUM(points), " +
+                        "MAX(activity_id) FROM MentorActivities GROUP BY mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01')");
+                st.execute("INSERT INTO StudentActivityCounts (status, slot, row_count) " +
+                        "SELECT status, 0, COUNT(*) FROM StudentsActivity GROUP BY status");
+                st.execute("INSERT INTO StudentActivityTotals (student_email, row_count) " +
+                        "SELECT student_email, COUNT(*) FROM StudentsActivity GROUP BY student_email");
+                st.execute("ANALYZE TABLE Mentors, Students, MentorActivities, StudentsActivity, MentorBalances, " +
+                        "MentorDailyRollups, MentorMonthlyRollups");
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            System.out.printf("Seeded in %.1f s%n", (System.currentTimeMillis() - start) / 1000.0);
+        }
+
+        private static long count(Connection conn, String sql) throws SQLException {
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Accumulates rows into one multi-row INSERT of up to 1000 rows, committing every flush.
+     */
+    static final class MultiRowInsert {
+        private static final int ROWS_PER_STATEMENT = 1000;
+
+        private final Connection conn;
+        private final String prefix;
+        private final int columns;
+        private final List<Object> values = new ArrayList<>();
+
+        MultiRowInsert(Connection conn, String prefix, int columns) {
+            this.conn = conn;
+            this.prefix = prefix;
+            this.columns = columns;
+        }
+
+        void add(Object... row) throws SQLException {
+            values.addAll(Arrays.asList(row));
+            if (values.size() / columns >= ROWS_PER_STATEMENT) flush();
+        }
+
+        void flush() throws SQLException {
+            int rows = values.size() / columns;
+            if (rows == 0) return;
+            StringBuilder sql = new StringBuilder(prefix);
+            String tuple = "(" + String.join(", ", java.util.Collections.nCopies(columns, "?")) + ")";
+            for (int r = 0; r < rows; r++) sql.append(r == 0 ? "" : ", ").append(tuple);
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < values.size(); i++) ps.setObject(i + 1, values.get(i));
+                ps.executeUpdate();
+            }
+            conn.commit();
+            values.clear();
+        }
+    }
+
+    // --- Arguments ---
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unknown argument: " + arg);
+            int eq = arg.indexOf('=');
+            opts.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        return opts;
+    }
+
+    /** Parses counts such as 10k, 1m or 10m. */
+    static long parseCount(String s) {
+        String v = s.trim().toLowerCase();
+        long multiplier = 1;
+        if (v.endsWith("k")) multiplier = 1_000;
+        else if (v.endsWith("m")) multiplier = 1_000_000;
+        if (multiplier != 1) v = v.substring(0, v.length() - 1);
+        return Long.parseLong(v) * multiplier;
+    }
+}
@@ -0,0 +1,468 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Per-query timing for every statement run on a pooled connection.
+ *
+ * ConnectionPool hands statements out through wrap(), which times each execute call and counts
+ * rows and errors against the statement's logical query name. The name is taken from a leading
+ * comment holding just the name (e.g. balance.get) when the SQL has one, otherwise from the verb
+ * and first table ("select MentorBalances"), with a #2, #3 suffix for further statements on the
+ * same table.
+ *
+ * Executions slower than timebank.metrics.slowMs (default 200) are logged to stderr, or appended
+ * to timebank.metrics.slowLog, with bind values redacted to their type and length. Each query is
+ * registered as a JMX MBean under "timebank:type=Query"; with timebank.metrics.prometheusFile set,
+ * a Prometheus text-format snapshot is rewritten every timebank.metrics.dumpMs (default 15000).
+ *
+ * Recording costs a few atomic increments per execution, so it stays on by default;
+ * -Dtimebank.metrics.enabled=false hands out the driver's statements unwrapped.
+ */
+public final class QueryMetrics {
+
+    static final boolean ENABLED = !"false".equals(System.getProperty("timebank.metrics.enabled"));
+    private static final String SLOW_LOG = System.getProperty("timebank.metrics.slowLog");
+    private static final String PROMETHEUS_FILE = System.getProperty("timebank.metrics.prometheusFile");
+    private static final long DUMP_MS = Long.getLong("timebank.metrics.dumpMs", 15_000L);
+    // Dynamic SQL (e.g. multi-row INSERTs of varying width) past this many names is pooled under "other"
+    private static final int MAX_QUERIES = Integer.getInteger("timebank.metrics.maxQueries", 500);
+
+    private static volatile long slowNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("timebank.metrics.slowMs", 200L));
+
+    private static final Pattern NAME_COMMENT = Pattern.compile("^\\s*/\\*\\s*([\\w.:-]+)\\s*\\*/");
+    private static final Pattern TABLE = Pattern.compile(
+            "(?i)\\b(?:from|into|update|table)\\s+`?(\\w+)`?");
+
+    private static final Map<String, Query> BY_SQL = new ConcurrentHashMap<>();
+    private static final Map<String, Query> BY_NAME = new ConcurrentHashMap<>();
+    private static final Query OTHER = new Query("other", "(unnamed dynamic SQL)");
+
+    static {
+        if (ENABLED) {
+            register(OTHER);
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(new StandardMBean(new Control(), ControlMBean.class),
+                        new ObjectName("timebank:type=QueryMetrics"));
+            } catch (JMException ex) {
+                ex.printStackTrace();
+            }
+            if (PROMETHEUS_FILE != null) {
+                ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "timebank-metrics-dump");
+                    t.setDaemon(true);
+                    return t;
+                });
+                dumper.scheduleWithFixedDelay(() -> {
+                    try {
+                        writePrometheus(Paths.get(PROMETHEUS_FILE));
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                    }
+                }, DUMP_MS, DUMP_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private QueryMetrics() {
+    }
+
+    // --- Per-query statistics ---
+
+    /**
+     * JMX view of one logical query.
+     */
+    public interface QueryMBean {
+        String getName();
+        String getSql();
+        long getCount();
+        long getErrors();
+        long getRows();
+        long getSlow();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP95Millis();
+        double getP99Millis();
+        double getMaxMillis();
+        void reset();
+    }
+
+    /**
+     * Latency, rows and errors of one logical query.
+     */
+    public static final class Query implements QueryMBean {
+        final String name;
+        final String sql;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong slow = new AtomicLong();
+
+        Query(String name, String sql) {
+            this.name = name;
+            this.sql = sql;
+        }
+
+        @Override public String getName() { return name; }
+        @Override public String getSql() { return sql; }
+        @Override public long getCount() { return latency.getCount(); }
+        @Override public long getErrors() { return errors.get(); }
+        @Override public long getRows() { return rows.get(); }
+        @Override public long getSlow() { return slow.get(); }
+        @Override public double getMeanMillis() { return latency.getMeanMicros() / 1000.0; }
+        @Override public double getP50Millis() { return latency.getPercentileMicros(50) / 1000.0; }
+        @Override public double getP95Millis() { return latency.getPercentileMicros(95) / 1000.0; }
+        @Override public double getP99Millis() { return latency.getPercentileMicros(99) / 1000.0; }
+        @Override public double getMaxMillis() { return latency.getMaxMicros() / 1000.0; }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            errors.set(0);
+            rows.set(0);
+            slow.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-34s %9d %6d %10d %9.2f %9.2f %9.2f %9.2f", name, getCount(), getErrors(), getRows(),
+                    getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis());
+        }
+    }
+
+    /**
+     * JMX controls for the whole query set.
+     */
+    public interface ControlMBean {
+        long getSlowThresholdMillis();
+        void setSlowThresholdMillis(long millis);
+        int getQueryCount();
+        String report();
+        void resetAll();
+    }
+
+    private static final class Control implements ControlMBean {
+        @Override public long getSlowThresholdMillis() { return TimeUnit.NANOSECONDS.toMillis(slowNanos); }
+        @Override public void setSlowThresholdMillis(long millis) { slowNanos = TimeUnit.MILLISECONDS.toNanos(millis); }
+        @Override public int getQueryCount() { return BY_NAME.size(); }
+        @Override public String report() { return QueryMetrics.report(); }
+        @Override public void resetAll() { for (Query q : BY_NAME.values()) q.reset(); }
+    }
+
+    /** All queries seen so far, busiest (by total time) first. */
+    public static List<Query> all() {
+        List<Query> list = new ArrayList<>(BY_NAME.values());
+        list.sort(Comparator.comparingDouble((Query q) -> q.getMeanMillis() * q.getCount()).reversed());
+        return list;
+    }
+
+    /** A table of every query with executions, busiest first. */
+    public static String report() {
+        StringBuilder sb = new StringBuilder(String.format("%-34s %9s %6s %10s %9s %9s %9s %9s%n",
+                "query", "count", "errors", "rows", "mean ms", "p50 ms", "p99 ms", "max ms"));
+        for (Query q : all()) {
+            if (q.getCount() > 0) sb.append(q).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    static Query forSql(String sql) {
+        Query q = BY_SQL.get(sql);
+        return q != null ? q : create(sql);
+    }
+
+    private static synchronized Query create(String sql) {
+        Query q = BY_SQL.get(sql);
+        if (q != null) return q;
+        if (BY_SQL.size() >= MAX_QUERIES) return OTHER;
+
+        String base = nameOf(sql);
+        String name = base;
+        for (int n = 2; BY_NAME.containsKey(name); n++) name = base + "#" + n;
+        q = new Query(name, sql.trim().replaceAll("\\s+", " "));
+        register(q);
+        BY_SQL.put(sql, q);
+        return q;
+    }
+
+    static String nameOf(String sql) {
+        Matcher comment = NAME_COMMENT.matcher(sql);
+        if (comment.find()) return comment.group(1);
+        String trimmed = sql.trim();
+        int space = trimmed.indexOf(' ');
+        String verb = (space < 0 ? trimmed : trimmed.substring(0, space)).toLowerCase(Locale.ROOT);
+        Matcher table = TABLE.matcher(trimmed);
+        return table.find() ? verb + " " + table.group(1) : verb;
+    }
+
+    private static void register(Query q) {
+        BY_NAME.put(q.name, q);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(q, QueryMBean.class),
+                    new ObjectName("timebank:type=Query,name=" + ObjectName.quote(q.name)));
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // --- Recording ---
+
+    private static void record(Query q, long nanos, long rows, SQLException error, Object[] binds, int bindCount, int batch) {
+        q.latency.recordNanos(nanos);
+        if (rows > 0) q.rows.addAndGet(rows);
+        if (error != null) q.errors.incrementAndGet();
+        if (nanos >= slowNanos) {
+            q.slow.incrementAndGet();
+            logSlow(q, nanos, rows, error, binds, bindCount, batch);
+        }
+    }
+
+    private static void logSlow(Query q, long nanos, long rows, SQLException error, Object[] binds, int bindCount, int batch) {
+        StringBuilder line = new StringBuilder(256);
+        line.append(LocalDateTime.now()).append(" [slow-query] ").append(q.name)
+                .append(String.format(" %.1f ms", nanos / 1e6));
+        if (rows >= 0) line.append(" rows=").append(rows);
+        if (batch > 0) line.append(" batch=").append(batch);
+        if (error != null) line.append(" error=").append(error.getErrorCode()).append('/').append(error.getSQLState());
+        line.append(" binds=").append(redact(binds, bindCount)).append(" sql=\"").append(q.sql).append('"');
+        if (SLOW_LOG == null) {
+            System.err.println(line);
+            return;
+        }
+        synchronized (QueryMetrics.class) {
+            try {
+                Files.write(Paths.get(SLOW_LOG), (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                System.err.println(line);
+            }
+        }
+    }
+
+    /** Bind values as type and size only, e.g. [String(24), Date, Integer, null]. */
+    static String redact(Object[] binds, int count) {
+        if (binds == null) return "[]";
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            Object v = binds[i];
+            if (v == null) {
+                sb.append("null");
+            } else if (v instanceof CharSequence) {
+                sb.append("String(").append(((CharSequence) v).length()).append(')');
+            } else if (v instanceof byte[]) {
+                sb.append("bytes(").append(((byte[]) v).length).append(')');
+            } else {
+                sb.append(v.getClass().getSimpleName());
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    // --- Prometheus text format ---
+
+    /** Writes every query's figures in Prometheus text exposition format, replacing {@code file} atomically. */
+    public static void writePrometheus(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            List<Query> queries = all();
+            out.write("# HELP timebank_query_seconds Execution time of each logical query.\n");
+            out.write("# TYPE timebank_query_seconds summary\n");
+            for (Query q : queries) {
+                String label = "query=\"" + q.name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+                for (double quantile : new double[]{0.5, 0.95, 0.99}) {
+                    out.write(String.format(Locale.ROOT, "timebank_query_seconds{%s,quantile=\"%s\"} %.6f%n",
+                            label, quantile, q.latency.getPercentileMicros(quantile * 100) / 1e6));
+                }
+                out.write(String.format(Locale.ROOT, "timebank_query_seconds_sum{%s} %.6f%n",
+                        label, q.latency.getMeanMicros() * q.getCount() / 1e6));
+                out.write(String.format(Locale.ROOT, "timebank_query_seconds_count{%s} %d%n", label, q.getCount()));
+            }
+            counter(out, queries, "timebank_query_rows_total", "Rows read or affected.", Query::getRows);
+            counter(out, queries, "timebank_query_errors_total", "Executions that threw SQLException.", Query::getErrors);
+            counter(out, queries, "timebank_query_slow_total", "Executions over the slow-query threshold.", Query::getSlow);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private interface Figure {
+        long of(Query q);
+    }
+
+    private static void counter(Writer out, List<Query> queries, String metric, String help, Figure figure) throws IOException {
+        out.write("# HELP " + metric + " " + help + "\n# TYPE " + metric + " counter\n");
+        for (Query q : queries) {
+            out.write(metric + "{query=\"" + q.name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"} " + figure.of(q) + "\n");
+        }
+    }
+
+    // --- JDBC wrappers ---
+
+    /**
+     * Wraps a statement returned by a pooled connection so its executions are timed.
+     * @param sql the SQL a PreparedStatement was prepared with; null for a plain Statement
+     */
+    static Object wrap(Statement statement, String sql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(statement, sql == null ? null : forSql(sql)));
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Query prepared;
+        private Object[] binds;
+        private int bindCount;
+        private int batch;
+        private String batchSql; // plain Statement.addBatch(sql)
+
+        StatementHandler(Statement target, Query prepared) {
+            this.target = target;
+            this.prepared = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) return execute(method, args);
+            if (prepared != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                bindCount = 0;
+            } else if (name.equals("addBatch")) {
+                batch++;
+                if (args != null && args.length == 1) batchSql = (String) args[0];
+            } else if (name.equals("clearBatch")) {
+                batch = 0;
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        private void bind(int index, Object value) {
+            if (binds == null) binds = new Object[Math.max(8, index)];
+            else if (index > binds.length) binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+            binds[index - 1] = value;
+            bindCount = Math.max(bindCount, index);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean isBatch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+            Query q = args != null && args.length > 0 && args[0] instanceof String ? forSql((String) args[0])
+                    : prepared != null ? prepared : forSql(batchSql != null ? batchSql : "statement batch");
+            int batchSize = isBatch ? batch : 0;
+            if (isBatch) batch = 0;
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                Throwable cause = ex.getCause();
+                record(q, System.nanoTime() - start, -1, cause instanceof SQLException ? (SQLException) cause : null,
+                        binds, bindCount, batchSize);
+                throw cause;
+            }
+            long nanos = System.nanoTime() - start;
+
+            if (result instanceof ResultSet) {
+                // Rows are counted as the caller reads them; latency is the execute call alone
+                record(q, nanos, -1, null, binds, bindCount, batchSize);
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new RowCounter((ResultSet) result, q));
+            }
+            long rows = -1;
+            if (result instanceof Integer || result instanceof Long) {
+                rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                rows = 0;
+                for (int n : (int[]) result) if (n > 0) rows += n;
+            } else if (result instanceof long[]) {
+                rows = 0;
+                for (long n : (long[]) result) if (n > 0) rows += n;
+            }
+            record(q, nanos, rows, null, binds, bindCount, batchSize);
+            return result;
+        }
+    }
+
+    /** Counts rows read from a result set, adding them to the query once it is exhausted or closed. */
+    private static final class RowCounter implements InvocationHandler {
+        private final ResultSet target;
+        private final Query query;
+        private long rows;
+        private boolean counted;
+
+        RowCounter(ResultSet target, Query query) {
+            this.target = target;
+            this.query = query;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if (name.equals("next")) {
+                if ((Boolean) result) rows++;
+                else flush();
+            } else if (name.equals("close")) {
+                flush();
+            }
+            return result;
+        }
+
+        private void flush() {
+            if (counted) return;
+            counted = true;
+            if (rows > 0) query.rows.addAndGet(rows);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+import java.time.LocalDateTime;
+
+/**
+ * A row of Redemptions: points a mentor spent on a reward.
+ */
+public final class Redemption {
+
+    public final long id; // 0 until inserted
+    public final String mentorEmail;
+    public final int rewardId;
+    public final int pointsSpent;
+    public final LocalDateTime date; // null until inserted; set by the database
+
+    public Redemption(long id, String mentorEmail, int rewardId, int pointsSpent, LocalDateTime date) {
+        this.id = id;
+        this.mentorEmail = mentorEmail;
+        this.rewardId = rewardId;
+        this.pointsSpent = pointsSpent;
+        this.date = date;
+    }
+}
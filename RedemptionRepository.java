@@ -0,0 +1,24 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Data access for Redemptions.
+ */
+public final class RedemptionRepository {
+
+    static final String INSERT_SQL = "INSERT INTO Redemptions (mentor_email, reward_id, points_spent) VALUES (?, ?, ?)";
+    static final String SUM_SPENT_SQL =
+            "SELECT COALESCE(SUM(points_spent), 0) FROM Redemptions WHERE mentor_email = ?";
+
+    private RedemptionRepository() {
+    }
+
+    /** @return the new redemption_id */
+    public static long insert(Connection conn, Redemption r) throws SQLException {
+        return Jdbc.insert(conn, INSERT_SQL, r.mentorEmail, r.rewardId, r.pointsSpent);
+    }
+
+    public static long sumSpent(Connection conn, String mentorEmail) throws SQLException {
+        return Jdbc.queryLong(conn, SUM_SPENT_SQL, mentorEmail);
+    }
+}
@@ -0,0 +1,131 @@
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Concurrency check for RewardRedemption against a scratch database.
+ *
+ * Creates a few fresh mentors with a known balance, then fires many more redemptions at them
+ * from a thread pool than their balances can cover, all mentors at once. Afterwards every
+ * mentor must have exactly balance / cost successful redemptions, a matching Redemptions ledger
+ * and a balance row that never went negative. Throughput and latency under contention are
+ * reported alongside.
+ *
+ * Usage:
+ *   java -Dtimebank.db.url=jdbc:mysql://localhost:3306/TimeBankBench -Dtimebank.pool.maxSize=32 RedemptionStress
+ *        [--mentors=4] [--attempts=5000] [--threads=32] [--points=10000] [--cost=10]
+ *
+ * Exits with status 1 if any invariant is violated.
+ */
+public class RedemptionStress {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unknown argument: " + arg);
+            int eq = arg.indexOf('=');
+            opts.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        int mentors = Integer.parseInt(opts.getOrDefault("mentors", "4"));
+        int attempts = Integer.parseInt(opts.getOrDefault("attempts", "5000"));
+        int threads = Integer.parseInt(opts.getOrDefault("threads", "32"));
+        int points = Integer.parseInt(opts.getOrDefault("points", "10000"));
+        int cost = Integer.parseInt(opts.getOrDefault("cost", "10"));
+
+        String url = System.getProperty("timebank.db.url", "");
+        if (url.isEmpty() || url.matches(".*/TimeBankDB(\\?.*)?$")) {
+            System.err.println("Point -Dtimebank.db.url at a scratch database (e.g. .../TimeBankBench); "
+                    + "the stress test creates mentors and redemptions in it.");
+            System.exit(2);
+        }
+
+        // Fresh mentors per run, each credited exactly `points`
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        String[] emails = new String[mentors];
+        int rewardId;
+        try (Connection conn = DatabaseManager.getPool().getConnection()) {
+            SchemaMigrator.migrate(conn);
+            rewardId = (int) Jdbc.queryLong(conn, "SELECT MIN(reward_id) FROM Rewards");
+        }
+        for (int m = 0; m < mentors; m++) {
+            String email = "stress-" + run + "-" + m + "@stress.timebank";
+            emails[m] = email;
+            DatabaseManager.inTransaction(conn -> {
+                AccountRepository.insertMentor(conn, "Stress Mentor", email, "password", "", "", "");
+                MentorActivity a = MentorActivity.create(email, "Stress credit", "Stress", LocalDate.now(),
+                        points / MentorActivity.POINTS_PER_HOUR);
+                long id = MentorActivityRepository.insert(conn, a);
+                MentorBalances.credit(conn, email, a.points);
+                ActivityRollups.add(conn, a.withId(id));
+                return null;
+            });
+        }
+        int credited = (points / MentorActivity.POINTS_PER_HOUR) * MentorActivity.POINTS_PER_HOUR;
+        Reward reward = new Reward(rewardId, "stress", cost);
+
+        System.out.printf("%,d redemptions of %d points against %d mentors with %,d points each, %d threads%n",
+                attempts, cost, mentors, credited, threads);
+        AtomicIntegerArray redeemed = new AtomicIntegerArray(mentors);
+        AtomicIntegerArray refused = new AtomicIntegerArray(mentors);
+        AtomicInteger errors = new AtomicInteger();
+        LatencyHistogram latency = new LatencyHistogram();
+        long retriesBefore = RewardRedemption.retryCount();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < attempts; i++) {
+            int m = i % mentors;
+            pool.execute(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    RewardRedemption.Result r = RewardRedemption.redeem(emails[m], reward, -1);
+                    if (r.status == RewardRedemption.Status.REDEEMED) redeemed.incrementAndGet(m);
+                    else refused.incrementAndGet(m);
+                } catch (Exception ex) {
+                    errors.incrementAndGet();
+                    System.err.println("  " + emails[m] + ": " + ex);
+                } finally {
+                    latency.recordNanos(System.nanoTime() - t0);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Invariants
+        boolean ok = errors.get() == 0;
+        for (int m = 0; m < mentors; m++) {
+            String email = emails[m];
+            int tries = attempts / mentors + (m < attempts % mentors ? 1 : 0);
+            int expected = Math.min(tries, credited / cost);
+            long[] ledger = DatabaseManager.withConnection(conn -> ledger(conn, email));
+            boolean mentorOk = redeemed.get(m) == expected
+                    && ledger[0] == (long) expected * cost
+                    && ledger[1] == credited - ledger[0]
+                    && ledger[1] >= 0;
+            System.out.printf("  %s %s: %d redeemed (expected %d), %d refused, ledger spent %d, balance %d%n",
+                    mentorOk ? "OK  " : "FAIL", email, redeemed.get(m), expected, refused.get(m), ledger[0], ledger[1]);
+            ok &= mentorOk;
+        }
+
+        System.out.printf("%nThroughput: %,.0f redemptions/s (%,d attempts in %.2fs), %d retried, %d errors%n",
+                attempts / seconds, attempts, seconds, RewardRedemption.retryCount() - retriesBefore, errors.get());
+        System.out.printf("Latency ms: p50 %.2f  p95 %.2f  p99 %.2f  max %.2f%n",
+                latency.getPercentileMicros(50) / 1000.0, latency.getPercentileMicros(95) / 1000.0,
+                latency.getPercentileMicros(99) / 1000.0, latency.getMaxMicros() / 1000.0);
+        System.out.println(ok ? "PASS: no overspend, ledgers and balances agree." : "FAIL: see mentors marked FAIL above.");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /** @return {points spent per the Redemptions ledger, stored balance} */
+    private static long[] ledger(Connection conn, String email) throws java.sql.SQLException {
+        return new long[]{RedemptionRepository.sumSpent(conn, email), MentorBalances.getBalance(conn, email)};
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a mentor's activities for a date range straight from the result set into a CSV file.
+ *
+ * The range predicate compares activity_date against two bound dates (no functions on the
+ * column), so it can use the (mentor_email, activity_date) index. The driver streams rows one
+ * at a time instead of buffering the whole result, and output goes through a buffered,
+ * optionally gzipped stream, so memory use stays flat regardless of the report size.
+ */
+public class ReportExporter {
+
+    private static final int OUTPUT_BUFFER = 64 * 1024;
+    private static final int PROGRESS_EVERY = 5_000;
+
+    /** toExclusive for a report with no end date; the last day a MySQL DATE can hold, so only that day is left out. */
+    public static final LocalDate NO_END = LocalDate.of(9999, 12, 31);
+
+    /**
+     * Summary of a finished export.
+     */
+    public static final class Result {
+        public final Path file;
+        public final long rows;
+        public final long totalHours;
+        public final long totalPoints;
+        public final long elapsedMs;
+
+        Result(Path file, long rows, long totalHours, long totalPoints, long elapsedMs) {
+            this.file = file;
+            this.rows = rows;
+            this.totalHours = totalHours;
+            this.totalPoints = totalPoints;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    private ReportExporter() {
+    }
+
+    /**
+     * Writes the report. Blocking; run it on a loader thread.
+     * @param from first day included
+     * @param toExclusive first day no longer included
+     * @param progress receives the running row count every few thousand rows (on the calling thread); may be null
+     */
+    public static Result export(String mentorEmail, LocalDate from, LocalDate toExclusive, Path file, boolean gzip,
+                                LongConsumer progress) throws SQLException, IOException {
+        boolean finished = false;
+        try (BufferedWriter out = openWriter(file, gzip)) {
+            Result r = write(mentorEmail, from, toExclusive, out, progress);
+            finished = true;
+            return new Result(file, r.rows, r.totalHours, r.totalPoints, r.elapsedMs);
+        } finally {
+            if (!finished) Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Streams the report to {@code out}, which the caller buffers and closes; used for file exports
+     * and by TimeBankServer to write straight into an HTTP response.
+     * @return the totals; {@code file} is null
+     */
+    public static Result write(String mentorEmail, LocalDate from, LocalDate toExclusive, Writer out,
+                               LongConsumer progress) throws SQLException, IOException {
+        if (!from.isBefore(toExclusive)) {
+            throw new IllegalArgumentException("Report start date must be before its end date.");
+        }
+        long start = System.currentTimeMillis();
+        long[] totals = new long[3]; // rows, hours, points
+
+        out.write("Date,Activity Name,Activity Type,Hours,Points\n");
+        StringBuilder line = new StringBuilder(128);
+        Storage.current().forEachMentorActivity(mentorEmail, from, toExclusive, a -> {
+            line.setLength(0);
+            line.append(a.date).append(',');
+            appendCsv(line, a.name).append(',');
+            appendCsv(line, a.type).append(',');
+            line.append(a.hours).append(',').append(a.points).append('\n');
+            out.append(line);
+
+            totals[1] += a.hours;
+            totals[2] += a.points;
+            if (++totals[0] % PROGRESS_EVERY == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Report export cancelled.");
+                }
+                if (progress != null) progress.accept(totals[0]);
+            }
+        });
+        out.write("\nTotal Hours," + totals[1] + "\n");
+        out.write("Total Points," + totals[2] + "\n");
+        if (progress != null) progress.accept(totals[0]);
+        return new Result(null, totals[0], totals[1], totals[2], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Activity count, hours and points for the range, read from the activity rollups instead of
+     * the activities themselves. Blocking; run it on a loader thread.
+     */
+    public static ActivityRollups.Totals summarize(String mentorEmail, LocalDate from, LocalDate toExclusive)
+            throws SQLException {
+        if (!from.isBefore(toExclusive)) {
+            throw new IllegalArgumentException("Report start date must be before its end date.");
+        }
+        return Storage.current().periodTotals(mentorEmail, from, toExclusive);
+    }
+
+    private static BufferedWriter openWriter(Path file, boolean gzip) throws IOException {
+        OutputStream os = Files.newOutputStream(file);
+        if (gzip) os = new GZIPOutputStream(os, OUTPUT_BUFFER);
+        return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), OUTPUT_BUFFER);
+    }
+
+    /** Appends a CSV field, quoting it only when it contains a separator, quote or line break. */
+    static StringBuilder appendCsv(StringBuilder sb, String value) {
+        if (value == null) return sb;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) return sb.append(value);
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * A row of Rewards.
+ */
+public final class Reward {
+
+    public final int id;
+    public final String name;
+    public final int cost;
+
+    public Reward(int id, String name, int cost) {
+        this.id = id;
+        this.name = name;
+        this.cost = cost;
+    }
+
+    /** Label used in the reward selection combo box. */
+    @Override
+    public String toString() {
+        return name + " (" + cost + " points)";
+    }
+}
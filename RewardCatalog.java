@@ -0,0 +1,86 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared in-memory copy of the Rewards catalog, keyed by reward_id.
+ *
+ * Triggers on Rewards bump the 'Rewards' stamp in CatalogVersions on every insert, update and
+ * delete. The cache remembers the stamp it was loaded at and re-reads the catalog only when the
+ * stamp has moved; the stamp itself is a primary-key read, made at most once per
+ * timebank.rewards.checkMs (default 10 seconds).
+ */
+public class RewardCatalog {
+
+    private static final long CHECK_MS = Long.getLong("timebank.rewards.checkMs", 10_000L);
+
+    static final String VERSION_SQL = "SELECT version FROM CatalogVersions WHERE catalog = 'Rewards'";
+
+    private static final RewardCatalog SHARED = new RewardCatalog();
+
+    private volatile Snapshot snapshot;
+    private volatile long checkedAt = 0;
+
+    public static RewardCatalog shared() {
+        return SHARED;
+    }
+
+    /**
+     * An immutable catalog as of one version stamp.
+     */
+    public static final class Snapshot {
+        public final long version;
+        public final List<Reward> rewards; // cheapest first
+        private final Map<Integer, Reward> byId;
+
+        Snapshot(long version, List<Reward> rewards) {
+            this.version = version;
+            this.rewards = Collections.unmodifiableList(rewards);
+            Map<Integer, Reward> index = new LinkedHashMap<>();
+            for (Reward r : rewards) index.put(r.id, r);
+            this.byId = Collections.unmodifiableMap(index);
+        }
+
+        /** @return the reward, or null if it is not in this catalog */
+        public Reward get(int rewardId) {
+            return byId.get(rewardId);
+        }
+    }
+
+    /**
+     * The current catalog. Blocking when the stamp is due for a check or the catalog must be
+     * (re)loaded; call from a loader thread.
+     */
+    public Snapshot current() throws SQLException {
+        Snapshot s = snapshot;
+        if (s != null && System.currentTimeMillis() - checkedAt < CHECK_MS) return s;
+        return refresh();
+    }
+
+    /** Re-checks the stamp now and reloads if it moved. */
+    public synchronized Snapshot refresh() throws SQLException {
+        Storage storage = Storage.current();
+        long version = storage.rewardCatalogVersion();
+        Snapshot s = snapshot;
+        if (s == null || s.version != version) {
+            // Stamp read before the rows: an edit racing with the load shows up as a newer stamp next time.
+            s = new Snapshot(version, storage.rewards());
+            snapshot = s;
+        }
+        checkedAt = System.currentTimeMillis();
+        return s;
+    }
+
+    /** True if {@code version} is still the catalog's stamp, as seen by {@code conn}. */
+    public static boolean isCurrent(Connection conn, long version) throws SQLException {
+        return Jdbc.queryLong(conn, VERSION_SQL) == version;
+    }
+
+    /** Forces the next current() call to re-check the stamp. */
+    public void invalidate() {
+        checkedAt = 0;
+    }
+}
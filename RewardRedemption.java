@@ -0,0 +1,86 @@
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redeems a reward for a mentor as one atomic check-and-debit.
+ *
+ * The balance check is the WHERE clause of the UPDATE that spends the points
+ * (MentorBalances.tryDebit), so two redemptions racing for the same mentor serialise on the
+ * balance row and the second one sees the first one's debit; a balance can never go negative.
+ * The Redemptions insert happens in the same transaction, after the row lock is held.
+ *
+ * A transaction that loses a deadlock or times out waiting for the lock is retried a bounded
+ * number of times (timebank.redeem.retries, default 3) with a short randomised back-off.
+ */
+public class RewardRedemption {
+
+    private static final int MAX_RETRIES = Integer.getInteger("timebank.redeem.retries", 3);
+    private static final long BACKOFF_MS = 20;
+
+    private static final AtomicLong retries = new AtomicLong();
+
+    public enum Status { REDEEMED, INSUFFICIENT_POINTS, CATALOG_CHANGED }
+
+    /**
+     * Outcome of one redemption attempt.
+     */
+    public static final class Result {
+        public final Status status;
+        public final int balance; // after the redemption, or the balance that was too low
+
+        Result(Status status, int balance) {
+            this.status = status;
+            this.balance = balance;
+        }
+    }
+
+    private RewardRedemption() {
+    }
+
+    /**
+     * Redeems {@code reward} at the price of catalog version {@code catalogVersion}, on the configured Storage.
+     * @param catalogVersion stamp of the catalog the reward was picked from; -1 to skip the check
+     */
+    public static Result redeem(String mentorEmail, Reward reward, long catalogVersion)
+            throws SQLException, InterruptedException {
+        Result result = Storage.current().redeem(mentorEmail, reward, catalogVersion);
+        if (result.status == Status.REDEEMED) {
+            ChangeBus.shared().publish(new ChangeBus.RedemptionMade(mentorEmail, reward, result.balance));
+        }
+        return result;
+    }
+
+    /** The MySQL implementation of redeem(), used by MySqlStorage. */
+    static Result redeemInMySql(String mentorEmail, Reward reward, long catalogVersion)
+            throws SQLException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return DatabaseManager.inTransaction(conn -> {
+                    if (catalogVersion >= 0 && !RewardCatalog.isCurrent(conn, catalogVersion)) {
+                        return new Result(Status.CATALOG_CHANGED, MentorBalances.getBalance(conn, mentorEmail));
+                    }
+                    if (!MentorBalances.tryDebit(conn, mentorEmail, reward.cost)) {
+                        return new Result(Status.INSUFFICIENT_POINTS, MentorBalances.getBalance(conn, mentorEmail));
+                    }
+                    RedemptionRepository.insert(conn, new Redemption(0, mentorEmail, reward.id, reward.cost, null));
+                    return new Result(Status.REDEEMED, MentorBalances.getBalance(conn, mentorEmail));
+                });
+            } catch (SQLException ex) {
+                if (attempt >= MAX_RETRIES || !isTransient(ex)) throw ex;
+                retries.incrementAndGet();
+                Thread.sleep(ThreadLocalRandom.current().nextLong(BACKOFF_MS << attempt) + 1);
+            }
+        }
+    }
+
+    /** Deadlock victim, lock wait timeout, or a serialization failure reported by SQLState. */
+    static boolean isTransient(SQLException ex) {
+        return ex.getErrorCode() == 1213 || ex.getErrorCode() == 1205 || "40001".equals(ex.getSQLState());
+    }
+
+    /** Number of transactions retried since startup. */
+    public static long retryCount() {
+        return retries.get();
+    }
+}
@@ -0,0 +1,21 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Data access for the Rewards catalog.
+ */
+public final class RewardRepository {
+
+    static final String ALL_SQL = "SELECT reward_id, reward_name, points_cost FROM Rewards ORDER BY points_cost ASC";
+
+    static final RowMapper<Reward> MAPPER = rs -> new Reward(rs.getInt(1), rs.getString(2), rs.getInt(3));
+
+    private RewardRepository() {
+    }
+
+    /** The whole catalog, cheapest first. Read through RewardCatalog rather than directly. */
+    public static List<Reward> findAll(Connection conn) throws SQLException {
+        return Jdbc.queryList(conn, ALL_SQL, MAPPER);
+    }
+}
@@ -0,0 +1,8 @@
+import java.io.IOException;
+
+/**
+ * Receives rows one at a time from a streaming query, e.g. to write them to a file.
+ */
+public interface RowHandler<T> {
+    void handle(T row) throws IOException;
+}
@@ -0,0 +1,10 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object.
+ * Implementations read columns by position, in the order of the SELECT they belong to.
+ */
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the numbered scripts in migrations/ (V001__name.sql, V002__name.sql, ...) to TimeBankDB.
+ *
+ * Applied versions are recorded in schema_migrations together with a SHA-256 of the script;
+ * a script that changed after being applied is reported and stops the run. MySQL DDL is not
+ * transactional, so "already exists" errors are tolerated, and so is "doesn't exist" when a DROP
+ * hits it: re-running a half-applied script, or migrating a database created from schema.sql,
+ * converges instead of failing.
+ *
+ * Usage: java SchemaMigrator [--check-indexes]
+ */
+public class SchemaMigrator {
+
+    private static final Path MIGRATIONS_DIR = Paths.get(System.getProperty("timebank.migrations.dir", "migrations"));
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    // MySQL error codes meaning the object a statement creates is already there.
+    private static final List<Integer> ALREADY_APPLIED_ERRORS = Arrays.asList(
+            1050, // table already exists
+            1060, // duplicate column name
+            1061, // duplicate key name
+            1359  // trigger already exists
+    );
+
+    // MySQL error codes meaning the object a DROP statement removes is already gone; only
+    // tolerated for DROP, where a schema.sql database never had what a later migration removes.
+    private static final List<Integer> ALREADY_DROPPED_ERRORS = Arrays.asList(
+            1091  // can't drop, key or column doesn't exist
+    );
+
+    private static final String CREATE_HISTORY_SQL =
+            "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version INT PRIMARY KEY, description VARCHAR(200) NOT NULL, checksum CHAR(64) NOT NULL, " +
+            "applied_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, execution_ms BIGINT NOT NULL)";
+    private static final String HISTORY_SQL = "SELECT version, checksum FROM schema_migrations";
+    private static final String RECORD_SQL =
+            "INSERT INTO schema_migrations (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+
+    /**
+     * One migration script on disk.
+     */
+    static final class Migration {
+        final int version;
+        final String description;
+        final String checksum;
+        final List<String> statements;
+
+        Migration(int version, String description, String checksum, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Applies every pending migration in version order.
+     * @return number of migrations applied
+     */
+    public static int migrate(Connection conn) throws SQLException, IOException {
+        TreeMap<Integer, Migration> migrations = loadMigrations(MIGRATIONS_DIR);
+
+        try (Statement st = conn.createStatement()) {
+            st.execute(CREATE_HISTORY_SQL);
+        }
+        Map<Integer, String> applied = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(HISTORY_SQL); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) applied.put(rs.getInt(1), rs.getString(2));
+        }
+
+        // Verify history before changing anything
+        for (Map.Entry<Integer, String> entry : applied.entrySet()) {
+            Migration m = migrations.get(entry.getKey());
+            if (m == null) {
+                throw new SQLException("Database has migration V" + entry.getKey() + " that is missing from " + MIGRATIONS_DIR);
+            }
+            if (!m.checksum.equals(entry.getValue())) {
+                throw new SQLException("Checksum mismatch for applied migration V" + m.version + "__" + m.description
+                        + ": the script was edited after it ran. Add a new migration instead.");
+            }
+        }
+
+        int count = 0;
+        for (Migration m : migrations.values()) {
+            if (applied.containsKey(m.version)) continue;
+            long start = System.currentTimeMillis();
+            System.out.println("Applying V" + m.version + "__" + m.description + " (" + m.statements.size() + " statements)");
+            try (Statement st = conn.createStatement()) {
+                for (String sql : m.statements) {
+                    try {
+                        st.execute(sql);
+                    } catch (SQLException ex) {
+                        if (!alreadyApplied(sql, ex.getErrorCode())) {
+                            throw new SQLException("V" + m.version + " failed: " + ex.getMessage(), ex.getSQLState(), ex.getErrorCode(), ex);
+                        }
+                        System.out.println("  skipped (already applied): " + ex.getMessage());
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(RECORD_SQL)) {
+                ps.setInt(1, m.version);
+                ps.setString(2, m.description);
+                ps.setString(3, m.checksum);
+                ps.setLong(4, System.currentTimeMillis() - start);
+                ps.executeUpdate();
+            }
+            count++;
+        }
+        return count;
+    }
+
+    static boolean alreadyApplied(String sql, int errorCode) {
+        if (ALREADY_APPLIED_ERRORS.contains(errorCode)) return true;
+        return ALREADY_DROPPED_ERRORS.contains(errorCode) && sql.trim().toUpperCase().startsWith("DROP ");
+    }
+
+    static TreeMap<Integer, Migration> loadMigrations(Path dir) throws IOException {
+        TreeMap<Integer, Migration> migrations = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "V*.sql")) {
+            for (Path file : files) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (!m.matches()) {
+                    throw new IOException("Migration file name must look like V001__description.sql: " + file);
+                }
+                int version = Integer.parseInt(m.group(1));
+                // Line endings are normalised so a CRLF checkout does not change the checksum
+                String script = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).replace("\r\n", "\n");
+                Migration previous = migrations.put(version, new Migration(version, m.group(2), sha256(script), split(script)));
+                if (previous != null) throw new IOException("Duplicate migration version " + version + " in " + dir);
+            }
+        }
+        return migrations;
+    }
+
+    /** Splits a script into statements on ';' at end of line, dropping '--' comment lines. */
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) continue;
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) statements.add(current.toString().trim());
+        return statements;
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // --- Index check ---
+
+    /**
+     * A dashboard query together with the table alias whose access must go through an index.
+     */
+    static final class CheckedQuery {
+        final String name;
+        final String sql;
+        final String table;
+        final Object[] params;
+
+        CheckedQuery(String name, String sql, String table, Object... params) {
+            this.name = name;
+            this.sql = sql;
+            this.table = table;
+            this.params = params;
+        }
+    }
+
+    static List<CheckedQuery> dashboardQueries() {
+        java.sql.Date today = new java.sql.Date(System.currentTimeMillis());
+        List<CheckedQuery> queries = new ArrayList<>();
+        queries.add(new CheckedQuery("login (student)",
+                AccountRepository.Role.STUDENT.credentialsSql, "Students", "probe@example.com"));
+        queries.add(new CheckedQuery("login (mentor)",
+                AccountRepository.Role.MENTOR.credentialsSql, "Mentors", "probe@example.com"));
+        queries.add(new CheckedQuery("leaderboard seed", ActivityRollups.TOTALS_BY_MENTOR_SQL, "r"));
+        queries.add(new CheckedQuery("current points", MentorBalances.BALANCE_SQL, "MentorBalances", "probe@example.com"));
+        queries.add(new CheckedQuery("earned points ledger",
+                MentorActivityRepository.SUM_POINTS_SQL, "MentorActivities", "probe@example.com"));
+        queries.add(new CheckedQuery("spent points ledger",
+                RedemptionRepository.SUM_SPENT_SQL, "Redemptions", "probe@example.com"));
+        queries.add(new CheckedQuery("reward catalog version", RewardCatalog.VERSION_SQL, "CatalogVersions"));
+        queries.add(new CheckedQuery("report export", MentorActivityRepository.RANGE_SQL, "MentorActivities",
+                "probe@example.com", today, today));
+        queries.add(new CheckedQuery("period totals (days)", ActivityRollups.PERIOD_SQL, "MentorDailyRollups",
+                "probe@example.com", today, today, "probe@example.com", today, today, "probe@example.com", today, today));
+        queries.add(new CheckedQuery("period totals (months)", ActivityRollups.PERIOD_SQL, "MentorMonthlyRollups",
+                "probe@example.com", today, today, "probe@example.com", today, today, "probe@example.com", today, today));
+        queries.add(new CheckedQuery("windowed leaderboard seed", ActivityRollups.RECENT_SQL, "d", today));
+        queries.add(new CheckedQuery("approval queue page",
+                ApprovalQueue.PAGE_AFTER_SQL, "StudentsActivity", today, today, 1L, 200));
+        queries.add(new CheckedQuery("approval queue counts", ApprovalQueue.COUNTS_SQL, "StudentActivityCounts"));
+        queries.add(new CheckedQuery("student performance count",
+                StudentActivityRepository.COUNT_BY_STUDENT_SQL, "StudentActivityTotals", "probe@example.com"));
+        queries.add(new CheckedQuery("student performance page",
+                StudentActivityRepository.PAGE_AFTER_SQL, "StudentsActivity", "probe@example.com", today, today, 1L, 100));
+        queries.add(new CheckedQuery("student performance seek",
+                StudentActivityRepository.KEYS_AFTER_SQL, "StudentsActivity", "probe@example.com", today, today, 1L, 1000));
+        return queries;
+    }
+
+    /**
+     * Runs EXPLAIN for each dashboard query and reports any whose checked table is not read through an index.
+     * Meaningful on a database with realistic data: on near-empty tables the optimizer may prefer a scan.
+     * @return the names of the failing queries
+     */
+    public static List<String> checkIndexes(Connection conn) throws SQLException {
+        List<String> failures = new ArrayList<>();
+        for (CheckedQuery q : dashboardQueries()) {
+            String key = null;
+            String type = null;
+            boolean found = false;
+            try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + q.sql)) {
+                for (int i = 0; i < q.params.length; i++) ps.setObject(i + 1, q.params[i]);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (q.table.equalsIgnoreCase(rs.getString("table"))) {
+                            found = true;
+                            key = rs.getString("key");
+                            type = rs.getString("type");
+                        }
+                    }
+                }
+            }
+            boolean ok = found && key != null && !"ALL".equals(type);
+            System.out.println((ok ? "  OK    " : "  FAIL  ") + q.name + ": " + q.table + " type=" + type + " key=" + key);
+            if (!ok) failures.add(q.name);
+        }
+        return failures;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean checkIndexes = args.length > 0 && "--check-indexes".equals(args[0]);
+        Connection conn = null;
+        try {
+            conn = DatabaseManager.getPool().getConnection();
+            int applied = migrate(conn);
+            System.out.println(applied == 0 ? "Schema is up to date." : "Applied " + applied + " migration(s).");
+            if (checkIndexes) {
+                System.out.println("Checking index usage of dashboard queries:");
+                List<String> failures = checkIndexes(conn);
+                if (!failures.isEmpty()) {
+                    System.out.println(failures.size() + " query(ies) not using an index: " + failures);
+                    System.exit(1);
+                }
+            }
+        } finally {
+            DatabaseManager.close(conn);
+        }
+        System.exit(0);
+    }
+}
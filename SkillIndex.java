@@ -0,0 +1,342 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index of mentor skills, behind the students' mentor search.
+ *
+ * A mentor's skills field is split into lower-case words (letters and digits, plus '+' and '#'
+ * so "C++" and "C#" survive). Each word maps to the ascending ids of the mentors listing it, and
+ * the words are kept sorted, so a query word also matches every word it is a prefix of ("java"
+ * finds "java" and "javascript"). A query needs either all of its words (AND) or any of them
+ * (OR). Results rank by words matched, exact matches ahead of prefix-only ones, then by fewer
+ * listed skills (the narrower specialist first), then by who registered first.
+ *
+ * An AND query starts from its rarest word and, once few candidates are left, checks them by
+ * binary search in the longer postings instead of scanning them. The best results are kept in a
+ * small heap of packed rank keys, so a query over 100k mentors allocates next to nothing.
+ *
+ * Built from the Mentors table on first use (buildInBackground() at startup) and kept current
+ * by registered(). Mentors registered by other clients are picked up by a periodic rebuild
+ * (timebank.skillIndex.resyncMs, default 5 minutes).
+ */
+public class SkillIndex {
+
+    private static final long RESYNC_MS = Long.getLong("timebank.skillIndex.resyncMs", 300_000L);
+    private static final int MAX_QUERY_WORDS = 16;
+
+    private static final SkillIndex SHARED = new SkillIndex();
+
+    /** One search hit. */
+    public static final class Match {
+        public final AccountRepository.MentorProfile mentor;
+        public final int matchedWords;
+
+        Match(AccountRepository.MentorProfile mentor, int matchedWords) {
+            this.mentor = mentor;
+            this.matchedWords = matchedWords;
+        }
+    }
+
+    /** Ids of the mentors listing one word, ascending (ids are handed out in order). */
+    private static final class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    /** Per-thread scoring arrays indexed by mentor id; only the touched entries are reset after a query. */
+    private static final class Scratch {
+        int[] score = new int[0];    // 2 per exactly matched word, 1 per prefix-only match
+        int[] matched = new int[0];  // query words matched
+        int[] lastWord = new int[0]; // 1 + index of the last query word that matched
+        int[] touched = new int[0];
+        int touchedCount;
+
+        void ensure(int n) {
+            if (score.length >= n) return;
+            int size = Math.max(n, score.length * 2);
+            score = new int[size];
+            matched = new int[size];
+            lastWord = new int[size];
+            touched = new int[size];
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                int id = touched[i];
+                score[id] = 0;
+                matched[id] = 0;
+                lastWord[id] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<AccountRepository.MentorProfile> mentors = new ArrayList<>(); // by id
+    private int[] skillCounts = new int[16];
+    private final Map<String, Integer> idByEmail = new HashMap<>();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    // Registrations seen since the last build; replayed if the build query raced with them.
+    private final List<AccountRepository.MentorProfile> sinceBuild = new ArrayList<>();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private long builtAt = 0;
+    private boolean built = false;
+
+    public static SkillIndex shared() {
+        return SHARED;
+    }
+
+    /**
+     * Builds the index if it has never been built or the last build is older than the resync interval.
+     * Blocking; call from a loader thread.
+     */
+    public void ensureBuilt() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (built && System.currentTimeMillis() - builtAt < RESYNC_MS) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        rebuild();
+    }
+
+    /** Starts the first build on a daemon thread, so the first search does not wait for it. */
+    public void buildInBackground() {
+        Thread t = new Thread(() -> {
+            try {
+                ensureBuilt();
+            } catch (SQLException | RuntimeException ex) {
+                ex.printStackTrace(); // the first search retries
+            }
+        }, "timebank-skill-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Rebuilds the whole index from the stored mentor profiles. */
+    public void rebuild() throws SQLException {
+        load(Storage.current().mentorProfiles());
+    }
+
+    /** Replaces the index with the given mentors, then re-adds any registered since that are not among them. */
+    void load(List<AccountRepository.MentorProfile> profiles) {
+        lock.writeLock().lock();
+        try {
+            mentors.clear();
+            idByEmail.clear();
+            postings.clear();
+            for (AccountRepository.MentorProfile p : profiles) add(p);
+            List<AccountRepository.MentorProfile> replay = new ArrayList<>(sinceBuild);
+            sinceBuild.clear();
+            for (AccountRepository.MentorProfile p : replay) {
+                if (add(p)) sinceBuild.add(p);
+            }
+            built = true;
+            builtAt = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds a newly registered (committed) mentor. */
+    public void registered(AccountRepository.MentorProfile profile) {
+        lock.writeLock().lock();
+        try {
+            sinceBuild.add(profile);
+            if (built) add(profile);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Shows a mentor's new availability in later results; the skills, and so the postings, are unchanged. */
+    public void availabilityChanged(String email, String availability) {
+        lock.writeLock().lock();
+        try {
+            Integer id = idByEmail.get(email);
+            if (id == null) return;
+            AccountRepository.MentorProfile old = mentors.get(id);
+            mentors.set(id, new AccountRepository.MentorProfile(old.name, old.email, old.skills, availability));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Indexes one mentor unless the email is already there. Caller holds the write lock. */
+    private boolean add(AccountRepository.MentorProfile p) {
+        if (idByEmail.containsKey(p.email)) return false;
+        int id = mentors.size();
+        mentors.add(p);
+        idByEmail.put(p.email, id);
+        List<String> words = words(p.skills);
+        if (id == skillCounts.length) skillCounts = Arrays.copyOf(skillCounts, id * 2);
+        skillCounts[id] = words.size();
+        for (String w : words) postings.computeIfAbsent(w, k -> new Postings()).add(id);
+        return true;
+    }
+
+    /** The distinct lower-case words of a skills field or query, in order of appearance. */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && !isWordChar(text.charAt(i))) i++;
+            int start = i;
+            boolean alnum = false;
+            for (; i < n && isWordChar(text.charAt(i)); i++) alnum |= Character.isLetterOrDigit(text.charAt(i));
+            if (alnum) {
+                String w = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!words.contains(w)) words.add(w);
+            }
+        }
+        return words;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '+' || c == '#';
+    }
+
+    /**
+     * The best {@code limit} mentors for the query, best first.
+     * @param matchAll true to require every query word (AND), false for any of them (OR)
+     */
+    public List<Match> search(String query, boolean matchAll, int limit) {
+        return search(query, matchAll, limit, null);
+    }
+
+    /** As search(query, matchAll, limit), keeping only mentors {@code filter} accepts (e.g. free at a given time). */
+    public List<Match> search(String query, boolean matchAll, int limit, Predicate<AccountRepository.MentorProfile> filter) {
+        List<String> words = words(query);
+        if (words.size() > MAX_QUERY_WORDS) words = words.subList(0, MAX_QUERY_WORDS);
+        List<Match> out = new ArrayList<>();
+        if (words.isEmpty() || limit <= 0) return out;
+
+        lock.readLock().lock();
+        Scratch s = scratch.get();
+        try {
+            s.ensure(mentors.size());
+            int n = words.size();
+            List<Postings> exact = new ArrayList<>(n);
+            List<Collection<Postings>> prefixed = new ArrayList<>(n);
+            long[] order = new long[n]; // postings count << 8 | word index
+            for (int w = 0; w < n; w++) {
+                String word = words.get(w);
+                exact.add(postings.get(word));
+                prefixed.add(postings.subMap(word, false, word + Character.MAX_VALUE, true).values());
+                long count = exact.get(w) == null ? 0 : exact.get(w).size;
+                for (Postings p : prefixed.get(w)) count += p.size;
+                if (matchAll && count == 0) return out;
+                order[w] = count << 8 | w;
+            }
+            if (matchAll) Arrays.sort(order); // rarest word first: it bounds the candidates
+
+            int alive = Integer.MAX_VALUE; // AND: mentors that matched every word so far
+            for (int k = 0; k < n; k++) {
+                int w = (int) (order[k] & 0xff);
+                int hits = 0;
+                // Exact word first, so a mentor matching both ways scores as exact
+                if (exact.get(w) != null) hits += mark(s, exact.get(w), k, 2, matchAll, alive);
+                for (Postings p : prefixed.get(w)) hits += mark(s, p, k, 1, matchAll, alive);
+                if (matchAll && hits == 0) return out;
+                alive = hits;
+            }
+
+            // Min-heap of the best `limit` rank keys (higher key ranks first)
+            long[] heap = new long[Math.min(limit, s.touchedCount)];
+            int size = 0;
+            for (int i = 0; i < s.touchedCount; i++) {
+                int id = s.touched[i];
+                if (matchAll && s.matched[id] != n) continue;
+                if (filter != null && !filter.test(mentors.get(id))) continue;
+                long key = (long) s.score[id] << 52 | (long) (0xfff - Math.min(skillCounts[id], 0xfff)) << 32
+                        | (Integer.MAX_VALUE - id);
+                if (size < heap.length) {
+                    heap[size++] = key;
+                    if (size == heap.length) Arrays.sort(heap);
+                } else if (key > heap[0]) {
+                    siftDown(heap, key);
+                }
+            }
+            if (size < heap.length) heap = Arrays.copyOf(heap, size);
+            Arrays.sort(heap);
+            for (int i = heap.length - 1; i >= 0; i--) {
+                int id = Integer.MAX_VALUE - (int) (heap[i] & 0xffffffffL);
+                out.add(new Match(mentors.get(id), s.matched[id]));
+            }
+            return out;
+        } finally {
+            s.reset();
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Replaces the smallest key of a min-heap with {@code key}. */
+    private static void siftDown(long[] heap, long key) {
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= heap.length) break;
+            if (c + 1 < heap.length && heap[c + 1] < heap[c]) c++;
+            if (heap[c] >= key) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = key;
+    }
+
+    /**
+     * Credits the {@code k}th processed query word to the mentors of {@code p}; returns how many it newly matched.
+     * For AND after the first word only the {@code alive} candidates can match, so when they are few
+     * they are looked up in {@code p} rather than {@code p} being scanned.
+     */
+    private static int mark(Scratch s, Postings p, int k, int points, boolean matchAll, int alive) {
+        int hits = 0;
+        if (matchAll && k > 0 && (long) alive * 20 < p.size) {
+            for (int i = 0; i < s.touchedCount; i++) {
+                int id = s.touched[i];
+                if (s.matched[id] != k || Arrays.binarySearch(p.ids, 0, p.size, id) < 0) continue;
+                s.lastWord[id] = k + 1;
+                s.matched[id]++;
+                s.score[id] += points;
+                hits++;
+            }
+            return hits;
+        }
+        for (int i = 0; i < p.size; i++) {
+            int id = p.ids[i];
+            if (s.lastWord[id] == k + 1) continue;            // already matched this word
+            if (matchAll && s.matched[id] != k) continue;     // missed an earlier word
+            if (s.matched[id] == 0) s.touched[s.touchedCount++] = id;
+            s.lastWord[id] = k + 1;
+            s.matched[id]++;
+            s.score[id] += points;
+            hits++;
+        }
+        return hits;
+    }
+
+    /** Number of indexed mentors. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return mentors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Query latency of the mentor skill index over a synthetic directory; no database needed.
+ *
+ * Usage: java SkillIndexBench [--mentors=100k] [--threads=4] [--warmup=3] [--measure=5] [--only=and-2,prefix-1]
+ *
+ * Each mentor lists two to six skills drawn from a skewed vocabulary of common skills and a long
+ * tail of rarer made-up ones, so popular words have tens of thousands of postings and rare ones a
+ * hundred or so. Queries pick their words from the same distribution; prefix queries type the
+ * first three to five letters. Results are capped at 20.
+ */
+public class SkillIndexBench {
+
+    private static final String[] COMMON = {
+            "Java", "Python", "JavaScript", "C++", "C#", "SQL", "Data Structures", "Algorithms",
+            "Machine Learning", "Statistics", "Calculus", "Linear Algebra", "Physics", "Chemistry",
+            "Biology", "Economics", "Accounting", "Public Speaking", "Writing", "Spanish", "French",
+            "German", "Web Development", "Android", "iOS", "Networking", "Linux", "Git", "Excel",
+            "Graphic Design", "Photography", "Music Theory", "Guitar", "Piano", "Career Advice",
+            "Resume Review", "Interview Prep", "Robotics", "Electronics", "Cloud Computing"
+    };
+    private static final int RARE = 2000;
+    private static final int LIMIT = 20;
+
+    private static String[] vocabulary;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = PerfBench.parseArgs(args);
+        int mentors = (int) PerfBench.parseCount(opts.getOrDefault("mentors", "100k"));
+        int threads = Integer.parseInt(opts.getOrDefault("threads", "4"));
+        int warmupSec = Integer.parseInt(opts.getOrDefault("warmup", "3"));
+        int measureSec = Integer.parseInt(opts.getOrDefault("measure", "5"));
+        List<String> only = opts.containsKey("only") ? Arrays.asList(opts.get("only").split(",")) : null;
+
+        vocabulary = new String[COMMON.length + RARE];
+        System.arraycopy(COMMON, 0, vocabulary, 0, COMMON.length);
+        Random seeded = new Random(42);
+        for (int i = 0; i < RARE; i++) {
+            char[] word = new char[5 + seeded.nextInt(6)];
+            for (int c = 0; c < word.length; c++) word[c] = (char) ('a' + seeded.nextInt(26));
+            vocabulary[COMMON.length + i] = new String(word);
+        }
+
+        List<AccountRepository.MentorProfile> profiles = new ArrayList<>(mentors);
+        for (int m = 0; m < mentors; m++) {
+            StringBuilder skills = new StringBuilder();
+            for (int k = 2 + seeded.nextInt(5); k > 0; k--) {
+                if (skills.length() > 0) skills.append(", ");
+                skills.append(skill(seeded));
+            }
+            profiles.add(new AccountRepository.MentorProfile("Bench Mentor " + m, "mentor" + m + "@skillbench.example",
+                    skills.toString(), "Weekends"));
+        }
+
+        SkillIndex index = SkillIndex.shared();
+        long start = System.nanoTime();
+        index.load(profiles);
+        System.out.printf("%nIndexed %,d mentors in %.1f ms; %d threads, %ds warmup, %ds measured, limit %d%n%n",
+                index.size(), (System.nanoTime() - start) / 1e6, threads, warmupSec, measureSec, LIMIT);
+
+        Map<String, PerfBench.Op> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("exact-1", rnd -> index.search(skill(rnd), true, LIMIT));
+        benchmarks.put("prefix-1", rnd -> {
+            String word = SkillIndex.words(skill(rnd)).get(0);
+            index.search(word.substring(0, Math.min(word.length(), 3 + rnd.nextInt(3))), true, LIMIT);
+        });
+        benchmarks.put("and-2", rnd -> index.search(skill(rnd) + ", " + skill(rnd), true, LIMIT));
+        benchmarks.put("or-3", rnd -> index.search(skill(rnd) + ", " + skill(rnd) + ", " + skill(rnd), false, LIMIT));
+        benchmarks.put("register", rnd -> index.registered(new AccountRepository.MentorProfile("New Mentor",
+                "new" + rnd.nextLong() + "@skillbench.example", skill(rnd) + ", " + skill(rnd), "Weekdays")));
+
+        System.out.printf("%-22s %12s %10s %10s %10s %10s%n", "benchmark", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, PerfBench.Op> b : benchmarks.entrySet()) {
+            if (only != null && !only.contains(b.getKey())) continue;
+            PerfBench.run(b.getKey(), b.getValue(), threads, warmupSec, measureSec);
+        }
+        System.exit(0);
+    }
+
+    /** Half the picks from the common skills (skewed to the first few), half from the long tail. */
+    private static String skill(Random rnd) {
+        if (rnd.nextBoolean()) {
+            double u = rnd.nextDouble();
+            return vocabulary[(int) (u * u * COMMON.length)];
+        }
+        return vocabulary[COMMON.length + rnd.nextInt(RARE)];
+    }
+}
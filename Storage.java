@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The operations the dashboards and TimeBankServer perform on the six application tables
+ * (Students, Mentors, MentorActivities, StudentsActivity, Rewards, Redemptions and the balances
+ * derived from them), independent of where they are stored.
+ *
+ * The backend is chosen once per process with -Dtimebank.storage:
+ *   mysql     (default) MySqlStorage, the TimeBankDB schema through DatabaseManager's pool
+ *   embedded  EmbeddedStorage, a local log-structured store in timebank.storage.dir; no server needed
+ *
+ * Both report failures as SQLException, with MySQL's error codes where the callers look at them
+ * (1062 duplicate email, 1452 unknown parent row), so error handling is the same either way.
+ * Maintenance tools (SchemaMigrator, StudentActivityImporter, PerfBench, the stress and load
+ * tools, the write-behind journal) work on MySQL only.
+ */
+public interface Storage {
+
+    /** The process-wide backend, opened on first use. */
+    static Storage current() {
+        return Selected.INSTANCE;
+    }
+
+    /** Holder for the backend selected by timebank.storage. */
+    final class Selected {
+        static final Storage INSTANCE = open(System.getProperty("timebank.storage", "mysql"));
+
+        private Selected() {
+        }
+
+        private static Storage open(String name) {
+            switch (name) {
+                case "mysql":
+                    return new MySqlStorage();
+                case "embedded":
+                    try {
+                        return EmbeddedStorage.open(java.nio.file.Paths.get(
+                                System.getProperty("timebank.storage.dir", "timebank-data")));
+                    } catch (IOException ex) {
+                        throw new IllegalStateException("Could not open the embedded store: " + ex.getMessage(), ex);
+                    }
+                default:
+                    throw new IllegalArgumentException("Unknown timebank.storage '" + name + "'; use mysql or embedded");
+            }
+        }
+    }
+
+    // --- Accounts ---
+
+    /** Name and stored password of an account; null if the email is not registered. */
+    AccountRepository.Credentials findCredentials(AccountRepository.Role role, String email) throws SQLException;
+
+    /**
+     * Swaps the stored password for a new one, but only if it still holds {@code expected}.
+     * @return 1 if replaced, 0 otherwise
+     */
+    int replacePassword(AccountRepository.Role role, String email, String expected, String replacement) throws SQLException;
+
+    void insertStudent(String name, String email, String password, String department, String year, String contactNo)
+            throws SQLException;
+
+    void insertMentor(String name, String email, String password, String skills, String availability, String contactNo)
+            throws SQLException;
+
+    /**
+     * Replaces a mentor's free-text availability.
+     * @return 1 if replaced, 0 if there is no such mentor
+     */
+    int updateMentorAvailability(String email, String availability) throws SQLException;
+
+    /** Name, email, skills and availability of every mentor. */
+    List<AccountRepository.MentorProfile> mentorProfiles() throws SQLException;
+
+    // --- Mentor activities and balances ---
+
+    /**
+     * Saves a mentor activity and credits its points atomically.
+     * @return the new activity id
+     */
+    long addMentorActivity(MentorActivity activity) throws SQLException;
+
+    /** Hours and points per mentor with at least one activity. */
+    List<MentorActivityRepository.MentorTotals> mentorTotals() throws SQLException;
+
+    /** A mentor's activities dated within [from, toExclusive), newest first. */
+    void forEachMentorActivity(String mentorEmail, LocalDate from, LocalDate toExclusive,
+                               RowHandler<MentorActivity> handler) throws SQLException, IOException;
+
+    /** Number, hours and points of a mentor's activities dated within [from, toExclusive), from the rollups. */
+    ActivityRollups.Totals periodTotals(String mentorEmail, LocalDate from, LocalDate toExclusive) throws SQLException;
+
+    /** Every mentor's daily totals for days from {@code from} on, with the highest activity id counted in them. */
+    ActivityRollups.Recent recentDailyTotals(LocalDate from) throws SQLException;
+
+    /** Points earned minus points spent. */
+    int balance(String mentorEmail) throws SQLException;
+
+    // --- Student activities ---
+
+    /** @return the new log id */
+    long addStudentActivity(StudentActivity activity) throws SQLException;
+
+    int countStudentActivities(String studentEmail) throws SQLException;
+
+    /** Up to {@code limit} activities, newest first, right after {@code after} (null for the newest). */
+    List<StudentActivity> studentActivityPage(String studentEmail, StudentActivityRepository.Cursor after, int limit)
+            throws SQLException;
+
+    /** The cursor at the end of each of the next {@code pages} full pages after {@code after}. */
+    List<StudentActivityRepository.Cursor> studentActivityPageEnds(String studentEmail, StudentActivityRepository.Cursor after,
+                                                                   int pages, int pageSize) throws SQLException;
+
+    /** Number of student activities per status. */
+    Map<String, Long> studentActivityStatusCounts() throws SQLException;
+
+    /** Up to {@code limit} Pending student activities, oldest first, right after {@code after} (null for the oldest). */
+    List<StudentActivity> pendingStudentActivities(StudentActivityRepository.Cursor after, int limit) throws SQLException;
+
+    /**
+     * Approves (ApprovalQueue.APPROVED) or rejects the given Pending activities atomically.
+     * @return the number changed; activities no longer Pending are skipped
+     */
+    int decideStudentActivities(List<Long> logIds, String status) throws SQLException;
+
+    // --- Rewards ---
+
+    /** Stamp that changes whenever the reward catalog does. */
+    long rewardCatalogVersion() throws SQLException;
+
+    /** The reward catalog, cheapest first. */
+    List<Reward> rewards() throws SQLException;
+
+    /**
+     * Spends a reward's cost if the balance covers it, recording the redemption, as one atomic step.
+     * @param catalogVersion stamp the reward was picked from; -1 to skip the check
+     */
+    RewardRedemption.Result redeem(String mentorEmail, Reward reward, long catalogVersion)
+            throws SQLException, InterruptedException;
+}
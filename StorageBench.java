@@ -0,0 +1,113 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The same workload against either Storage backend, so MySQL and the embedded store can be
+ * compared call for call. Data is seeded through the Storage interface itself on first use.
+ *
+ * Usage:
+ *   java -Dtimebank.storage=embedded -Dtimebank.storage.dir=/tmp/tb-bench StorageBench [options]
+ *   java -Dtimebank.storage=mysql -Dtimebank.db.url=jdbc:mysql://localhost:3306/TimeBankBench StorageBench [options]
+ * Options as for PerfBench: [--rows=10k] [--threads=4] [--warmup=5] [--measure=10] [--only=balance,report-scan]
+ *
+ * Seeded accounts use the @storagebench.example domain. Run both backends with the same options
+ * on the same machine; the MySQL target must be a scratch database.
+ */
+public class StorageBench {
+
+    private static final String DOMAIN = "@storagebench.example";
+
+    private static int mentors;
+    private static int students;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = PerfBench.parseArgs(args);
+        long rows = PerfBench.parseCount(opts.getOrDefault("rows", "10k"));
+        int threads = Integer.parseInt(opts.getOrDefault("threads", "4"));
+        int warmupSec = Integer.parseInt(opts.getOrDefault("warmup", "5"));
+        int measureSec = Integer.parseInt(opts.getOrDefault("measure", "10"));
+        List<String> only = opts.containsKey("only") ? Arrays.asList(opts.get("only").split(",")) : null;
+
+        String backend = System.getProperty("timebank.storage", "mysql");
+        String url = System.getProperty("timebank.db.url", "");
+        if (backend.equals("mysql") && (url.isEmpty() || url.matches(".*/TimeBankDB(\\?.*)?$"))) {
+            System.err.println("Point -Dtimebank.db.url at a scratch database (e.g. .../TimeBankBench); "
+                    + "the benchmark seeds and writes to it.");
+            System.exit(2);
+        }
+
+        Storage storage = Storage.current();
+        mentors = (int) Math.max(100, rows / 1000);
+        students = mentors * 5;
+        seed(storage, rows);
+        Reward reward = storage.rewards().get(0);
+
+        Map<String, PerfBench.Op> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("login-lookup", rnd ->
+                storage.findCredentials(AccountRepository.Role.STUDENT, studentEmail(rnd.nextInt(students))));
+        benchmarks.put("add-mentor-activity", rnd ->
+                storage.addMentorActivity(MentorActivity.create(mentorEmail(rnd.nextInt(mentors)), "Bench shift",
+                        "Tutoring", LocalDate.now().minusDays(rnd.nextInt(1095)), 1 + rnd.nextInt(4))));
+        benchmarks.put("log-student-activity", rnd ->
+                storage.addStudentActivity(new StudentActivity(0, studentEmail(rnd.nextInt(students)), "Bench workshop",
+                        "Workshop", LocalDate.now().minusDays(rnd.nextInt(1095)), "Completed", "No", "")));
+        benchmarks.put("balance", rnd -> storage.balance(mentorEmail(rnd.nextInt(mentors))));
+        benchmarks.put("mentor-totals", rnd -> storage.mentorTotals());
+        benchmarks.put("report-scan", rnd -> {
+            long[] n = new long[1];
+            storage.forEachMentorActivity(mentorEmail(rnd.nextInt(mentors)), LocalDate.now().minusYears(1),
+                    LocalDate.now().plusDays(1), a -> n[0]++);
+        });
+        benchmarks.put("student-page", rnd -> {
+            String email = studentEmail(rnd.nextInt(students));
+            List<StudentActivityRepository.Cursor> ends = storage.studentActivityPageEnds(email, null, 1, 20);
+            storage.studentActivityPage(email, ends.isEmpty() ? null : ends.get(0), 20);
+        });
+        benchmarks.put("redeem", rnd -> storage.redeem(mentorEmail(rnd.nextInt(mentors)), reward, -1));
+
+        System.out.printf("%nBackend: %s; %,d seeded mentor activities, %d mentors, %d students; %d threads, %ds warmup, %ds measured%n%n",
+                backend, rows, mentors, students, threads, warmupSec, measureSec);
+        System.out.printf("%-22s %12s %10s %10s %10s %10s%n", "benchmark", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, PerfBench.Op> b : benchmarks.entrySet()) {
+            if (only != null && !only.contains(b.getKey())) continue;
+            PerfBench.run(b.getKey(), b.getValue(), threads, warmupSec, measureSec);
+        }
+        if (storage instanceof EmbeddedStorage) ((EmbeddedStorage) storage).close();
+        System.exit(0);
+    }
+
+    /** Accounts and {@code rows} mentor activities (half as many student log rows), unless already there. */
+    private static void seed(Storage storage, long rows) throws Exception {
+        if (storage.findCredentials(AccountRepository.Role.MENTOR, mentorEmail(mentors - 1)) != null) return;
+        System.out.printf("Seeding %,d activities...%n", rows);
+        for (int m = 0; m < mentors; m++) {
+            storage.insertMentor("Bench Mentor " + m, mentorEmail(m), "password", "Tutoring", "Weekends", "0000000000");
+        }
+        for (int s = 0; s < students; s++) {
+            storage.insertStudent("Bench Student " + s, studentEmail(s), "password", "CS", "2", "0000000000");
+        }
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        LocalDate today = LocalDate.now();
+        for (long i = 0; i < rows; i++) {
+            LocalDate date = today.minusDays(rnd.nextInt(1095));
+            storage.addMentorActivity(MentorActivity.create(mentorEmail((int) (i % mentors)), "Seeded shift " + i,
+                    "Tutoring", date, 1 + rnd.nextInt(4)));
+            if (i % 2 == 0) {
+                storage.addStudentActivity(new StudentActivity(0, studentEmail((int) (i / 2 % students)),
+                        "Seeded workshop " + i, "Workshop", date, "Completed", "No", ""));
+            }
+        }
+    }
+
+    private static String mentorEmail(int i) {
+        return "mentor" + i + DOMAIN;
+    }
+
+    private static String studentEmail(int i) {
+        return "student" + i + DOMAIN;
+    }
+}
@@ -0,0 +1,36 @@
+import java.time.LocalDate;
+
+/**
+ * A row of StudentsActivity: an activity logged by a student.
+ */
+public final class StudentActivity {
+
+    public final long id; // 0 until inserted
+    public final String studentEmail;
+    public final String name;
+    public final String type;
+    public final LocalDate date;
+    public final String status;
+    public final String certificate;
+    public final String remarks;
+
+    public StudentActivity(long id, String studentEmail, String name, String type, LocalDate date,
+                           String status, String certificate, String remarks) {
+        this.id = id;
+        this.studentEmail = studentEmail;
+        this.name = name;
+        this.type = type;
+        this.date = date;
+        this.status = status;
+        this.certificate = certificate;
+        this.remarks = remarks;
+    }
+
+    public StudentActivity withId(long newId) {
+        return new StudentActivity(newId, studentEmail, name, type, date, status, certificate, remarks);
+    }
+
+    public StudentActivity withStatus(String newStatus) {
+        return new StudentActivity(id, studentEmail, name, type, date, newStatus, certificate, remarks);
+    }
+}
@@ -0,0 +1,468 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk loads student activity logs from a CSV file into StudentsActivity.
+ *
+ * Records are read in chunks. Chunks are validated in parallel on a small worker pool while
+ * earlier chunks are being written; each chunk's valid rows go in with one batched INSERT
+ * (rewritten into multi-row statements by the driver) in a transaction of its own. That
+ * transaction also advances the file's row in ImportCheckpoints, so after a crash running the
+ * same command again resumes at the first uncommitted chunk. Invalid rows never stop the load:
+ * they are written to an error report with their record number, line and reason.
+ *
+ * Input: a header naming the columns (any order, case-insensitive)
+ *   student_email, activity_name, activity_type, log_date, status [, certificate_path] [, remarks]
+ * then one record per activity. Fields may be quoted; quoted fields may hold commas, doubled
+ * quotes and line breaks.
+ *
+ * Usage: java StudentActivityImporter file.csv [--chunk=1000] [--threads=4] [--errors=file.csv.errors.csv]
+ */
+public class StudentActivityImporter {
+
+    static final List<String> STATUSES = Arrays.asList("Pending", "Completed", "Rejected");
+
+    private static final List<String> COLUMNS = Arrays.asList(
+            "student_email", "activity_name", "activity_type", "log_date", "status", "certificate_path", "remarks");
+    private static final int REQUIRED_COLUMNS = 5; // the first five above
+
+    private static final String CHECKPOINT_SQL =
+            "SELECT records_done, rows_imported, rows_rejected, completed FROM ImportCheckpoints WHERE import_key = ?";
+    private static final String ADVANCE_SQL =
+            "INSERT INTO ImportCheckpoints (import_key, source_name, records_done, rows_imported, rows_rejected, completed) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "records_done = ?, rows_imported = ?, rows_rejected = ?, completed = ?";
+
+    /**
+     * Progress of one input file as recorded in ImportCheckpoints.
+     */
+    static final class Checkpoint {
+        final long recordsDone;
+        final long imported;
+        final long rejected;
+        final boolean completed;
+
+        Checkpoint(long recordsDone, long imported, long rejected, boolean completed) {
+            this.recordsDone = recordsDone;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.completed = completed;
+        }
+    }
+
+    /**
+     * Totals of a finished (or previously completed) import.
+     */
+    public static final class Result {
+        public final long records;
+        public final long imported;
+        public final long rejected;
+        public final long resumedAfter; // records skipped because an earlier run committed them
+        public final long elapsedMs;
+
+        Result(long records, long imported, long rejected, long resumedAfter, long elapsedMs) {
+            this.records = records;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.resumedAfter = resumedAfter;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    /** A raw CSV record and where it came from. */
+    static final class Record {
+        final long number;  // 1-based, header excluded
+        final long line;    // physical line the record starts on
+        final List<String> fields;
+
+        Record(long number, long line, List<String> fields) {
+            this.number = number;
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    /** A record that could not be imported. */
+    static final class RowError {
+        final Record record;
+        final String message;
+
+        RowError(Record record, String message) {
+            this.record = record;
+            this.message = message;
+        }
+    }
+
+    /** One chunk after validation. */
+    static final class Chunk {
+        final long lastRecord;
+        final List<StudentActivity> rows = new ArrayList<>();
+        final List<Record> sources = new ArrayList<>(); // parallel to rows
+        final List<RowError> errors = new ArrayList<>();
+
+        Chunk(long lastRecord) {
+            this.lastRecord = lastRecord;
+        }
+    }
+
+    private final Path file;
+    private final int chunkSize;
+    private final int threads;
+    private final Path errorFile;
+
+    public StudentActivityImporter(Path file, int chunkSize, int threads, Path errorFile) {
+        this.file = file;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.errorFile = errorFile;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path file = null;
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                opts.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+            } else if (file == null) {
+                file = Paths.get(arg);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+        }
+        if (file == null) {
+            System.err.println("Usage: java StudentActivityImporter file.csv [--chunk=1000] [--threads=4] [--errors=report.csv]");
+            System.exit(2);
+        }
+        int chunk = Integer.parseInt(opts.getOrDefault("chunk", "1000"));
+        int threads = Math.max(1, Integer.parseInt(opts.getOrDefault("threads", "4")));
+        Path errors = Paths.get(opts.getOrDefault("errors", file + ".errors.csv"));
+
+        Result r = new StudentActivityImporter(file, chunk, threads, errors).run();
+        System.out.printf("Imported %,d of %,d records (%,d rejected) in %.1fs", r.imported, r.records, r.rejected, r.elapsedMs / 1000.0);
+        if (r.resumedAfter > 0) System.out.printf(", resumed after record %,d", r.resumedAfter);
+        System.out.println();
+        if (r.rejected > 0) System.out.println("Rejected rows are listed in " + errors);
+        System.exit(0);
+    }
+
+    /**
+     * Runs (or resumes) the import. Blocking.
+     */
+    public Result run() throws IOException, SQLException, InterruptedException {
+        long start = System.currentTimeMillis();
+        String key = sha256(file);
+        Checkpoint cp = DatabaseManager.withConnection(conn -> loadCheckpoint(conn, key));
+        if (cp.completed) {
+            System.out.println(file + " was already imported completely; nothing to do.");
+            return new Result(cp.recordsDone, cp.imported, cp.rejected, cp.recordsDone, System.currentTimeMillis() - start);
+        }
+        Set<String> students = DatabaseManager.withConnection(conn -> AccountRepository.emails(conn, AccountRepository.Role.STUDENT));
+        if (cp.recordsDone > 0) {
+            System.out.printf("Resuming %s after record %,d (%,d imported so far)%n", file, cp.recordsDone, cp.imported);
+        }
+
+        long records = cp.recordsDone;
+        long imported = cp.imported;
+        long rejected = cp.rejected;
+        long sessionRows = 0;
+
+        ExecutorService validators = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "timebank-import-validate");
+            t.setDaemon(true);
+            return t;
+        });
+        // Append when resuming: the report already holds the rejections of the committed chunks.
+        boolean append = cp.recordsDone > 0 && Files.exists(errorFile) && Files.size(errorFile) > 0;
+        StandardOpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (CsvReader in = new CsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+             BufferedWriter report = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            if (!append) report.write("Record,Line,Error,Fields\n");
+            int[] columns = mapHeader(in.next());
+
+            // Read ahead at most two chunks per validator; chunks are committed strictly in file order.
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+            long number = 0;
+            boolean eof = false;
+            while (!eof || !pending.isEmpty()) {
+                while (!eof && pending.size() < threads * 2) {
+                    List<Record> batch = new ArrayList<>(chunkSize);
+                    List<String> fields;
+                    while (batch.size() < chunkSize && (fields = in.next()) != null) {
+                        if (++number <= cp.recordsDone) continue; // committed by an earlier run
+                        batch.add(new Record(number, in.recordLine(), fields));
+                    }
+                    eof = batch.size() < chunkSize;
+                    if (!batch.isEmpty()) pending.add(validators.submit(() -> validate(batch, columns, students)));
+                }
+                if (pending.isEmpty()) break;
+
+                Chunk chunk = await(pending.poll());
+                commit(key, chunk, imported, rejected);
+                records = chunk.lastRecord;
+                imported += chunk.rows.size();
+                rejected += chunk.errors.size();
+                sessionRows += chunk.rows.size();
+                writeErrors(report, chunk.errors);
+
+                double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+                System.out.printf("  %,d records, %,d imported, %,d rejected (%,.0f rows/s)%n",
+                        records, imported, rejected, sessionRows / seconds);
+            }
+            long doneRecords = records, doneImported = imported, doneRejected = rejected;
+            DatabaseManager.withConnection(conn -> advance(conn, key, doneRecords, doneImported, doneRejected, true));
+        } finally {
+            validators.shutdownNow();
+        }
+        return new Result(records, imported, rejected, cp.recordsDone, System.currentTimeMillis() - start);
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Validation failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Writes a chunk and advances the checkpoint in one transaction. If the batch is refused as a whole
+     * (a constraint the validator cannot see), the chunk is retried row by row so only the offending
+     * rows are rejected.
+     */
+    private void commit(String key, Chunk chunk, long imported, long rejected) throws SQLException {
+        try {
+            DatabaseManager.inTransaction(conn -> {
+                if (!chunk.rows.isEmpty()) {
+                    StudentActivityRepository.insertBatch(conn, chunk.rows);
+                    ApprovalQueue.counted(conn, chunk.rows);
+                    StudentActivityRepository.counted(conn, chunk.rows);
+                }
+                return advance(conn, key, chunk.lastRecord, imported + chunk.rows.size(),
+                        rejected + chunk.errors.size(), false);
+            });
+            return;
+        } catch (SQLException batchFailure) {
+            if (isConnectionFailure(batchFailure)) throw batchFailure;
+        }
+
+        List<StudentActivity> accepted = new ArrayList<>();
+        DatabaseManager.inTransaction(conn -> {
+            for (int i = 0; i < chunk.rows.size(); i++) {
+                try {
+                    StudentActivityRepository.insert(conn, chunk.rows.get(i));
+                    accepted.add(chunk.rows.get(i));
+                } catch (SQLException ex) {
+                    // MySQL rolls back just the failed statement; the transaction carries on.
+                    if (isConnectionFailure(ex)) throw ex;
+                    chunk.errors.add(new RowError(chunk.sources.get(i), ex.getMessage()));
+                }
+            }
+            ApprovalQueue.counted(conn, accepted);
+            StudentActivityRepository.counted(conn, accepted);
+            return advance(conn, key, chunk.lastRecord, imported + accepted.size(),
+                    rejected + chunk.errors.size(), false);
+        });
+        chunk.rows.retainAll(accepted);
+        chunk.errors.sort((a, b) -> Long.compare(a.record.number, b.record.number));
+    }
+
+    private static boolean isConnectionFailure(SQLException ex) {
+        return ex.getSQLState() != null && ex.getSQLState().startsWith("08");
+    }
+
+    private static Checkpoint loadCheckpoint(Connection conn, String key) throws SQLException {
+        Checkpoint cp = Jdbc.queryOne(conn, CHECKPOINT_SQL,
+                rs -> new Checkpoint(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getBoolean(4)), key);
+        return cp != null ? cp : new Checkpoint(0, 0, 0, false);
+    }
+
+    private Void advance(Connection conn, String key, long recordsDone, long imported, long rejected, boolean completed)
+            throws SQLException {
+        Jdbc.update(conn, ADVANCE_SQL, key, file.getFileName().toString(), recordsDone, imported, rejected, completed,
+                recordsDone, imported, rejected, completed);
+        return null;
+    }
+
+    // --- Validation ---
+
+    /** Maps each known column to its position in the file; fails if a required one is missing. */
+    static int[] mapHeader(List<String> header) throws IOException {
+        if (header == null) throw new IOException("The file is empty.");
+        int[] positions = new int[COLUMNS.size()];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < header.size(); i++) {
+            int c = COLUMNS.indexOf(header.get(i).trim().toLowerCase());
+            if (c >= 0) positions[c] = i;
+        }
+        for (int c = 0; c < REQUIRED_COLUMNS; c++) {
+            if (positions[c] < 0) throw new IOException("Missing column '" + COLUMNS.get(c) + "' in the header row.");
+        }
+        return positions;
+    }
+
+    static Chunk validate(List<Record> batch, int[] columns, Set<String> students) {
+        Chunk chunk = new Chunk(batch.get(batch.size() - 1).number);
+        for (Record r : batch) {
+            String[] v = new String[COLUMNS.size()];
+            for (int c = 0; c < v.length; c++) {
+                int pos = columns[c];
+                v[c] = pos >= 0 && pos < r.fields.size() ? r.fields.get(pos).trim() : "";
+            }
+            String error = check(v, students);
+            if (error != null) {
+                chunk.errors.add(new RowError(r, error));
+                continue;
+            }
+            chunk.rows.add(new StudentActivity(0, v[0], v[1], v[2], java.sql.Date.valueOf(v[3]).toLocalDate(), v[4],
+                    v[5].isEmpty() ? "No" : v[5], v[6].isEmpty() ? null : v[6]));
+            chunk.sources.add(r);
+        }
+        return chunk;
+    }
+
+    /** @return why the row cannot be imported, or null if it is fine */
+    private static String check(String[] v, Set<String> students) {
+        if (v[0].isEmpty()) return "student_email is empty";
+        if (!students.contains(v[0])) return "no student registered with email " + v[0];
+        if (v[1].isEmpty()) return "activity_name is empty";
+        if (v[1].length() > 255) return "activity_name is longer than 255 characters";
+        if (v[2].isEmpty()) return "activity_type is empty";
+        if (v[2].length() > 100) return "activity_type is longer than 100 characters";
+        try {
+            LocalDate date = java.sql.Date.valueOf(v[3]).toLocalDate();
+            if (date.isAfter(LocalDate.now())) return "log_date " + v[3] + " is in the future";
+        } catch (IllegalArgumentException ex) {
+            return "log_date '" + v[3] + "' is not a YYYY-MM-DD date";
+        }
+        if (!STATUSES.contains(v[4])) return "status must be one of " + STATUSES;
+        if (v[5].length() > 255) return "certificate_path is longer than 255 characters";
+        if (v[6].getBytes(StandardCharsets.UTF_8).length > 65_535) return "remarks are longer than 64 KB";
+        return null;
+    }
+
+    private static void writeErrors(BufferedWriter report, List<RowError> errors) throws IOException {
+        if (errors.isEmpty()) return;
+        StringBuilder line = new StringBuilder(256);
+        for (RowError e : errors) {
+            line.setLength(0);
+            line.append(e.record.number).append(',').append(e.record.line).append(',');
+            ReportExporter.appendCsv(line, e.message);
+            for (String field : e.record.fields) ReportExporter.appendCsv(line.append(','), field);
+            report.append(line).append('\n');
+        }
+        report.flush();
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[64 * 1024];
+            for (int n; (n = in.read(buf)) > 0; ) md.update(buf, 0, n);
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : md.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // --- CSV ---
+
+    /**
+     * Minimal RFC 4180 reader: comma separated, optional double quotes, "" inside quotes,
+     * and line breaks inside quoted fields.
+     */
+    static final class CsvReader implements AutoCloseable {
+        private final BufferedReader in;
+        private long line = 1;
+        private long recordLine;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /** @return the next record's fields, or null at end of input; blank lines are skipped */
+        List<String> next() throws IOException {
+            int c = in.read();
+            while (c == '\r' || c == '\n') {
+                if (c == '\n') line++;
+                c = in.read();
+            }
+            if (c < 0) return null;
+            recordLine = line;
+            if (c == 0xFEFF) c = in.read(); // byte order mark
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) throw new IOException("Unterminated quoted field in the record starting on line " + recordLine);
+                    if (c == '"') {
+                        in.mark(1);
+                        int n = in.read();
+                        if (n == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            in.reset();
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c < 0) {
+                    if (c == '\r') {
+                        in.mark(1);
+                        if (in.read() != '\n') in.reset();
+                    }
+                    if (c >= 0) line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+
+        long recordLine() {
+            return recordLine;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Data access for StudentsActivity.
+ */
+public final class StudentActivityRepository {
+
+    static final String INSERT_SQL =
+            "INSERT INTO StudentsActivity (student_email, activity_name, activity_type, log_date, status, certificate_path, remarks) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final String COUNT_BY_STUDENT_SQL = "SELECT row_count FROM StudentActivityTotals WHERE student_email = ?";
+    private static final String ADD_TO_TOTAL_SQL =
+            "INSERT INTO StudentActivityTotals (student_email, row_count) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE row_count = row_count + ?";
+
+    // Keyset pages, newest first. (student_email, log_date) plus the implicit log_id is the
+    // idx_sa_student_date index, read backwards; a page never skips rows it does not return.
+    private static final String COLUMNS =
+            "SELECT log_id, student_email, activity_name, activity_type, log_date, status, certificate_path, remarks " +
+            "FROM StudentsActivity ";
+    private static final String PAGE_ORDER = " ORDER BY log_date DESC, log_id DESC LIMIT ?";
+    private static final String AFTER = " AND (log_date < ? OR (log_date = ? AND log_id < ?))";
+    static final String FIRST_PAGE_SQL = COLUMNS + "WHERE student_email = ?" + PAGE_ORDER;
+    static final String PAGE_AFTER_SQL = COLUMNS + "WHERE student_email = ?" + AFTER + PAGE_ORDER;
+    static final String KEYS_SQL = "SELECT log_date, log_id FROM StudentsActivity WHERE student_email = ?" + PAGE_ORDER;
+    static final String KEYS_AFTER_SQL = "SELECT log_date, log_id FROM StudentsActivity WHERE student_email = ?" + AFTER + PAGE_ORDER;
+
+    static final RowMapper<StudentActivity> MAPPER = rs -> new StudentActivity(
+            rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+            rs.getDate(5).toLocalDate(), rs.getString(6), rs.getString(7), rs.getString(8));
+
+    /**
+     * Position of a row in (log_date, log_id) order, descending for a student's log and ascending
+     * for the approval queue; a page starts right after it.
+     */
+    public static final class Cursor {
+        final LocalDate date;
+        final long id;
+
+        Cursor(LocalDate date, long id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        static Cursor of(StudentActivity a) {
+            return new Cursor(a.date, a.id);
+        }
+    }
+
+    private StudentActivityRepository() {
+    }
+
+    /** @return the new log_id */
+    public static long insert(Connection conn, StudentActivity a) throws SQLException {
+        return Jdbc.insert(conn, INSERT_SQL, params(a));
+    }
+
+    /**
+     * Inserts all rows with one batched statement (sent as multi-row INSERTs by the driver).
+     * @return the rows with their generated ids, in input order
+     */
+    public static List<StudentActivity> insertBatch(Connection conn, List<StudentActivity> rows) throws SQLException {
+        List<StudentActivity> inserted = new ArrayList<>(rows.size());
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (StudentActivity a : rows) {
+                Jdbc.bind(ps, params(a));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (StudentActivity a : rows) {
+                    inserted.add(keys.next() ? a.withId(keys.getLong(1)) : a);
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /** Number of activities a student has logged, from StudentActivityTotals: one row, however long the history. */
+    public static int countByStudent(Connection conn, String studentEmail) throws SQLException {
+        return (int) Jdbc.queryLong(conn, COUNT_BY_STUDENT_SQL, studentEmail);
+    }
+
+    /** Adds newly inserted rows to their students' totals; call in the inserting transaction. */
+    public static void counted(Connection conn, List<StudentActivity> inserted) throws SQLException {
+        Map<String, Integer> byStudent = new TreeMap<>(); // fixed order: total rows are locked in sequence
+        for (StudentActivity a : inserted) byStudent.merge(a.studentEmail, 1, Integer::sum);
+        for (Map.Entry<String, Integer> e : byStudent.entrySet()) {
+            Jdbc.update(conn, ADD_TO_TOTAL_SQL, e.getKey(), e.getValue(), e.getValue());
+        }
+    }
+
+    /**
+     * Up to {@code limit} of a student's activities, newest first, starting right after {@code after}
+     * (null for the newest).
+     */
+    public static List<StudentActivity> pageByStudent(Connection conn, String studentEmail, Cursor after, int limit)
+            throws SQLException {
+        if (after == null) return Jdbc.queryList(conn, FIRST_PAGE_SQL, MAPPER, studentEmail, limit);
+        java.sql.Date date = java.sql.Date.valueOf(after.date);
+        return Jdbc.queryList(conn, PAGE_AFTER_SQL, MAPPER, studentEmail, date, date, after.id, limit);
+    }
+
+    /**
+     * Walks {@code pages * pageSize} rows past {@code after} reading only the index and returns the
+     * cursor at the end of each full page, so a page far down the list can be fetched without its predecessors.
+     */
+    public static List<Cursor> pageEnds(Connection conn, String studentEmail, Cursor after, int pages, int pageSize)
+            throws SQLException {
+        List<Cursor> ends = new ArrayList<>(pages);
+        String sql = after == null ? KEYS_SQL : KEYS_AFTER_SQL;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (after == null) {
+                Jdbc.bind(ps, studentEmail, pages * pageSize);
+            } else {
+                java.sql.Date date = java.sql.Date.valueOf(after.date);
+                Jdbc.bind(ps, studentEmail, date, date, after.id, pages * pageSize);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                int n = 0;
+                while (rs.next()) {
+                    if (++n % pageSize == 0) ends.add(new Cursor(rs.getDate(1).toLocalDate(), rs.getLong(2)));
+                }
+            }
+        }
+        return ends;
+    }
+
+    private static Object[] params(StudentActivity a) {
+        return new Object[]{a.studentEmail, a.name, a.type, java.sql.Date.valueOf(a.date), a.status, a.certificate, a.remarks};
+    }
+}
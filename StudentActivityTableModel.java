@@ -0,0 +1,283 @@
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Lazy table model for a student's activity log, newest first.
+ *
+ * Only the row count and the first page are read on refresh. Further pages are fetched on a
+ * loader thread the first time the table asks for one of their cells, using keyset pagination
+ * on (log_date, log_id), and kept in a small LRU cache. The end cursor of every page seen so far
+ * is remembered, so scrolling back and forth is one indexed seek per page; jumping far ahead walks
+ * the intermediate keys on the index only.
+ *
+ * Changes published on the ChangeBus are applied to the cached pages as row inserts and updates
+ * (activityAdded(), decided()); pages the change shifts but that are not cached are dropped from
+ * the known page ends and read again if they are scrolled to.
+ *
+ * All state is touched on the EDT only.
+ */
+public class StudentActivityTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int PAGE_SIZE = Integer.getInteger("timebank.performance.pageSize", 100);
+    private static final int CACHED_PAGES = Integer.getInteger("timebank.performance.cachedPages", 20);
+    private static final String[] COLUMNS = {"Date", "Activity Name", "Type", "Status", "Certificate", "Remarks"};
+
+    private final String studentEmail;
+    private final Consumer<Exception> onError;
+
+    private int rowCount = 0;
+    private int generation = 0; // bumped on refresh; results of older fetches are dropped
+    private final List<StudentActivityRepository.Cursor> pageEnds = new ArrayList<>(); // pageEnds.get(p): last row of page p
+    private final Map<Integer, List<StudentActivity>> pages = new LinkedHashMap<Integer, List<StudentActivity>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<StudentActivity>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> wanted = new TreeSet<>();
+    private Set<Integer> fetching = new HashSet<>();
+    private boolean fetchScheduled = false;
+
+    public StudentActivityTableModel(String studentEmail, Consumer<Exception> onError) {
+        this.studentEmail = studentEmail;
+        this.onError = onError;
+    }
+
+    /** Re-reads the row count and the first page; the current rows stay visible until they arrive. */
+    public void refresh() {
+        BackgroundLoader.shared().load(loaderKey("count"), () -> {
+            Storage storage = Storage.current();
+            int count = storage.countStudentActivities(studentEmail);
+            return new Fetch(count, storage.studentActivityPage(studentEmail, null, PAGE_SIZE));
+        }, first -> {
+            generation++;
+            pages.clear();
+            pageEnds.clear();
+            wanted.clear();
+            fetching = new HashSet<>();
+            rowCount = first.count;
+            accept(0, first.rows);
+            fireTableDataChanged();
+        }, onError);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int p = row / PAGE_SIZE;
+        List<StudentActivity> page = pages.get(p);
+        if (page == null) {
+            want(p);
+            return column == 1 ? "Loading..." : "";
+        }
+        int i = row % PAGE_SIZE;
+        if (i >= page.size()) return ""; // rows deleted since the count was taken
+        StudentActivity a = page.get(i);
+        switch (column) {
+            case 0: return a.date.toString();
+            case 1: return a.name;
+            case 2: return a.type;
+            case 3: return a.status;
+            case 4: return CertificateStore.label(a.certificate);
+            default: return a.remarks;
+        }
+    }
+
+    /** The activity shown in a row, or null while its page is still loading. */
+    public StudentActivity activityAt(int row) {
+        List<StudentActivity> page = pages.get(row / PAGE_SIZE);
+        int i = row % PAGE_SIZE;
+        return page == null || i >= page.size() ? null : page.get(i);
+    }
+
+    // --- Changes ---
+
+    /** Inserts a newly logged activity of this student at its place in the log. */
+    public void activityAdded(StudentActivity a) {
+        int p = 0;
+        while (p < pageEnds.size() && newerThan(pageEnds.get(p), a)) p++; // a belongs in page p
+        int row = p * PAGE_SIZE;
+        int stale = p; // first page whose rows moved while it was not cached
+        List<StudentActivity> rows = pages.get(p);
+        if (rows != null) {
+            int i = 0;
+            while (i < rows.size() && newerThan(rows.get(i), a)) i++;
+            if (i < rows.size() && rows.get(i).id == a.id) return; // already read with its page
+            rows.add(i, a);
+            row += i;
+            // Every later row moves down one: carry the last row of each cached page into the next
+            int q = p;
+            while (rows.size() > PAGE_SIZE) {
+                StudentActivity carried = rows.remove(rows.size() - 1);
+                if (q < pageEnds.size()) pageEnds.set(q, StudentActivityRepository.Cursor.of(rows.get(PAGE_SIZE - 1)));
+                q++;
+                rows = pages.get(q);
+                if (rows == null && q * PAGE_SIZE >= rowCount) pages.put(q, rows = new ArrayList<>()); // a new last page
+                if (rows == null) break;
+                rows.add(0, carried);
+            }
+            if (rows != null) {
+                if (rows.size() == PAGE_SIZE && pageEnds.size() == q) {
+                    pageEnds.add(StudentActivityRepository.Cursor.of(rows.get(PAGE_SIZE - 1)));
+                }
+                stale = Integer.MAX_VALUE;
+            } else {
+                stale = q;
+            }
+        }
+        final int from = stale;
+        while (pageEnds.size() > from) pageEnds.remove(pageEnds.size() - 1);
+        pages.keySet().removeIf(page -> page >= from);
+
+        // Page reads under way were keyed to the old positions
+        generation++;
+        fetching = new HashSet<>();
+        rowCount++;
+        fireTableRowsInserted(row, row);
+    }
+
+    /** Sets the status of the cached rows among {@code ids} that were still Pending. */
+    public void decided(List<Long> ids, String status) {
+        Set<Long> decided = new HashSet<>(ids);
+        for (Map.Entry<Integer, List<StudentActivity>> e : pages.entrySet()) {
+            List<StudentActivity> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                StudentActivity a = rows.get(i);
+                if (ApprovalQueue.PENDING.equals(a.status) && decided.contains(a.id)) {
+                    rows.set(i, a.withStatus(status));
+                    fireTableRowsUpdated(e.getKey() * PAGE_SIZE + i, e.getKey() * PAGE_SIZE + i);
+                }
+            }
+        }
+    }
+
+    /** Log order is newest first: (log_date, log_id) descending. */
+    private static boolean newerThan(StudentActivityRepository.Cursor c, StudentActivity a) {
+        return c.date.isAfter(a.date) || (c.date.equals(a.date) && c.id > a.id);
+    }
+
+    private static boolean newerThan(StudentActivity a, StudentActivity b) {
+        return a.date.isAfter(b.date) || (a.date.equals(b.date) && a.id > b.id);
+    }
+
+    // --- Fetching ---
+
+    /** Result of a background read: the pages loaded and the page-end cursors known afterwards. */
+    private static final class Fetch {
+        final int count;
+        final List<StudentActivity> rows; // first page, for a refresh
+        final Map<Integer, List<StudentActivity>> loaded = new LinkedHashMap<>();
+        List<StudentActivityRepository.Cursor> ends;
+
+        Fetch(int count, List<StudentActivity> rows) {
+            this.count = count;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Notes a missing page. The pages a paint asks for are collected and fetched together once the
+     * paint is over; a fetch for a newer viewport supersedes one still running for an older one.
+     */
+    private void want(int page) {
+        wanted.add(page);
+        if (!fetchScheduled) {
+            fetchScheduled = true;
+            SwingUtilities.invokeLater(this::fetchWanted);
+        }
+    }
+
+    private void fetchWanted() {
+        fetchScheduled = false;
+        List<Integer> need = new ArrayList<>(wanted);
+        wanted.clear();
+        need.removeIf(pages::containsKey);
+        // Still being read for the same viewport: let that fetch finish rather than restarting it.
+        if (need.isEmpty() || fetching.containsAll(need)) return;
+
+        int gen = generation;
+        Set<Integer> batch = new HashSet<>(need);
+        fetching = batch;
+        List<StudentActivityRepository.Cursor> known = new ArrayList<>(pageEnds);
+        BackgroundLoader.shared().load(loaderKey("page"), () -> {
+            Storage storage = Storage.current();
+            Fetch fetch = new Fetch(-1, null);
+            List<StudentActivityRepository.Cursor> ends = new ArrayList<>(known);
+            for (int p : need) {
+                if (ends.size() < p) {
+                    // Seek: walk the index from the last known page end to the page before p
+                    StudentActivityRepository.Cursor from = ends.isEmpty() ? null : ends.get(ends.size() - 1);
+                    ends.addAll(storage.studentActivityPageEnds(studentEmail, from, p - ends.size(), PAGE_SIZE));
+                    if (ends.size() < p) { // past the end of the log (rows deleted since the count)
+                        fetch.loaded.put(p, new ArrayList<>());
+                        continue;
+                    }
+                }
+                StudentActivityRepository.Cursor after = p == 0 ? null : ends.get(p - 1);
+                List<StudentActivity> rows = storage.studentActivityPage(studentEmail, after, PAGE_SIZE);
+                if (ends.size() == p && rows.size() == PAGE_SIZE) {
+                    ends.add(StudentActivityRepository.Cursor.of(rows.get(rows.size() - 1)));
+                }
+                fetch.loaded.put(p, rows);
+            }
+            fetch.ends = ends;
+            return fetch;
+        }, fetch -> {
+            if (fetching == batch) fetching = new HashSet<>();
+            if (gen != generation) return;
+            if (fetch.ends.size() > pageEnds.size()) {
+                pageEnds.clear();
+                pageEnds.addAll(fetch.ends);
+            }
+            for (Map.Entry<Integer, List<StudentActivity>> e : fetch.loaded.entrySet()) {
+                accept(e.getKey(), e.getValue());
+                int first = e.getKey() * PAGE_SIZE;
+                int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+                if (first <= last) fireTableRowsUpdated(first, last);
+            }
+        }, ex -> {
+            if (fetching == batch) fetching = new HashSet<>();
+            onError.accept(ex);
+        });
+    }
+
+    private void accept(int page, List<StudentActivity> rows) {
+        pages.put(page, rows);
+        if (pageEnds.size() == page && rows.size() == PAGE_SIZE) {
+            pageEnds.add(StudentActivityRepository.Cursor.of(rows.get(rows.size() - 1)));
+        }
+    }
+
+    private String loaderKey(String what) {
+        return "student:" + studentEmail + ":performance:" + what;
+    }
+}
@@ -2,10 +2,13 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Vector;
 
 public class StudentDashboardFrame extends JFrame {
@@ -15,8 +18,22 @@ public class StudentDashboardFrame extends JFrame {
     
     // UI Components for Log Activity
     private JTextField activityNameField, activityTypeField, dateField, remarksField;
-    private JComboBox<String> statusComboBox;
-    private JCheckBox certificateCheckBox;
+    private JLabel certificateLabel;
+    private Path certificateFile; // chosen for the next logged activity; null for none
+
+    // View Performance: rows are paged in lazily as the table scrolls
+    private StudentActivityTableModel performanceModel;
+    private JTable activityTable;
+
+    // Find a Mentor: answered from the in-memory SkillIndex
+    private static final int MENTOR_RESULTS = 50;
+    private JTextField skillSearchField;
+    private JComboBox<String> skillMatchBox;
+    private JComboBox<String> freeDayBox;
+    private JTextField freeFromField, freeToField;
+    private JCheckBox freeWholeCheckBox;
+    private DefaultTableModel mentorModel;
+    private JLabel mentorStatusLabel;
     
     // Constants for aesthetics
     private static final Color HEADER_BG = new Color(46, 204, 113); // Green
@@ -41,11 +58,35 @@ public class StudentDashboardFrame extends JFrame {
         // 2. View Performance Tab
         tabbedPane.addTab("View Performance", createPerformancePanel());
 
+        // 3. Find a Mentor Tab
+        tabbedPane.addTab("Find a Mentor", createMentorSearchPanel());
+
         add(tabbedPane, BorderLayout.CENTER);
         setVisible(true);
         
         // Initial data load for performance view
-        loadPerformanceData((DefaultTableModel)((JTable)((JScrollPane)((JPanel)tabbedPane.getComponentAt(1)).getComponent(0)).getViewport().getView()).getModel());
+        loadPerformanceData();
+        subscribeToChanges();
+    }
+
+    /** Applies this student's new activities and their reviews to the log as they commit. */
+    private void subscribeToChanges() {
+        ChangeBus bus = ChangeBus.shared();
+        ChangeBus.Subscription<?> added = bus.subscribe(ChangeBus.StudentActivityAdded.class, SwingUtilities::invokeLater, events -> {
+            for (ChangeBus.StudentActivityAdded e : events) {
+                if (e.activity.studentEmail.equals(studentEmail)) performanceModel.activityAdded(e.activity);
+            }
+        });
+        ChangeBus.Subscription<?> decided = bus.subscribe(ChangeBus.StudentActivitiesDecided.class, SwingUtilities::invokeLater, events -> {
+            for (ChangeBus.StudentActivitiesDecided e : events) performanceModel.decided(e.ids, e.status);
+        });
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                added.close();
+                decided.close();
+            }
+        });
     }
 
     // --- Panel Creation Methods ---
@@ -78,18 +119,18 @@ public class StudentDashboardFrame extends JFrame {
         gbc.gridx = 0; gbc.gridy = 3; panel.add(new JLabel("Date (YYYY-MM-DD):"), gbc);
         gbc.gridx = 1; dateField = new JTextField(20); panel.add(dateField, gbc);
         
-        // Status (Dropdown)
-        gbc.gridx = 0; gbc.gridy = 4; panel.add(new JLabel("Status:"), gbc);
-        statusComboBox = new JComboBox<>(new String[]{"Pending", "Completed"});
-        gbc.gridx = 1; panel.add(statusComboBox, gbc);
-        
-        // Certificate (Checkbox)
-        gbc.gridx = 0; gbc.gridy = 5; panel.add(new JLabel("Certificate Available:"), gbc);
-        certificateCheckBox = new JCheckBox("Yes");
-        gbc.gridx = 1; panel.add(certificateCheckBox, gbc);
+        // Certificate (optional file, uploaded with the activity)
+        gbc.gridx = 0; gbc.gridy = 4; panel.add(new JLabel("Certificate:"), gbc);
+        JPanel certificatePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        JButton chooseCertificateBtn = new JButton("Choose File...");
+        chooseCertificateBtn.addActionListener(e -> chooseCertificate());
+        certificatePanel.add(chooseCertificateBtn);
+        certificateLabel = new JLabel("None");
+        certificatePanel.add(certificateLabel);
+        gbc.gridx = 1; panel.add(certificatePanel, gbc);
 
         // Remarks
-        gbc.gridx = 0; gbc.gridy = 6; panel.add(new JLabel("Remarks:"), gbc);
+        gbc.gridx = 0; gbc.gridy = 5; panel.add(new JLabel("Remarks:"), gbc);
         remarksField = new JTextField(20); 
         gbc.gridx = 1; panel.add(remarksField, gbc);
 
@@ -100,7 +141,7 @@ public class StudentDashboardFrame extends JFrame {
         logButton.setFont(BOLD_FONT);
         logButton.addActionListener(this::logStudentActivity);
         gbc.gridwidth = 2;
-        gbc.gridx = 0; gbc.gridy = 7; panel.add(logButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 6; panel.add(logButton, gbc);
         
         // Wrap the form panel in a center alignment
         JPanel wrapper = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -115,32 +156,87 @@ public class StudentDashboardFrame extends JFrame {
         title.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
         panel.add(title, BorderLayout.NORTH);
 
-        String[] columnNames = {"Date", "Activity Name", "Type", "Status", "Certificate", "Remarks"};
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
-        JTable activityTable = new JTable(model);
+        performanceModel = new StudentActivityTableModel(studentEmail, ex -> {
+            JOptionPane.showMessageDialog(this, "Error loading performance data: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
+        activityTable = new JTable(performanceModel);
         activityTable.getTableHeader().setFont(BOLD_FONT);
         panel.add(new JScrollPane(activityTable), BorderLayout.CENTER);
         
         JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         JButton refreshBtn = new JButton("Refresh Performance Data");
-        refreshBtn.addActionListener(e -> loadPerformanceData(model));
+        refreshBtn.addActionListener(e -> loadPerformanceData());
         controlPanel.add(refreshBtn);
+        JButton saveCertificateBtn = new JButton("Save Certificate...");
+        saveCertificateBtn.addActionListener(e -> saveSelectedCertificate());
+        controlPanel.add(saveCertificateBtn);
         panel.add(controlPanel, BorderLayout.SOUTH);
         
         return panel;
     }
 
+    private JPanel createMentorSearchPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        searchPanel.add(new JLabel("Skills:"));
+        skillSearchField = new JTextField(25);
+        skillSearchField.setToolTipText("e.g. java, sql - a word also matches skills it starts with");
+        skillSearchField.addActionListener(e -> searchMentors());
+        searchPanel.add(skillSearchField);
+        skillMatchBox = new JComboBox<>(new String[]{"All skills", "Any skill"});
+        searchPanel.add(skillMatchBox);
+        JButton searchBtn = new JButton("Search");
+        searchBtn.setBackground(HEADER_BG);
+        searchBtn.setForeground(TEXT_COLOR);
+        searchBtn.addActionListener(e -> searchMentors());
+        searchPanel.add(searchBtn);
+
+        // Optional time slot: only mentors whose availability covers it
+        JPanel slotPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        slotPanel.add(new JLabel("Free on:"));
+        freeDayBox = new JComboBox<>(new String[]{"Any time", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday",
+                "Saturday", "Sunday"});
+        slotPanel.add(freeDayBox);
+        slotPanel.add(new JLabel("From (HH:MM):"));
+        freeFromField = new JTextField("09:00", 5);
+        slotPanel.add(freeFromField);
+        slotPanel.add(new JLabel("To:"));
+        freeToField = new JTextField("10:00", 5);
+        slotPanel.add(freeToField);
+        freeWholeCheckBox = new JCheckBox("Free the whole time", true);
+        slotPanel.add(freeWholeCheckBox);
+
+        JPanel north = new JPanel(new GridLayout(2, 1));
+        north.add(searchPanel);
+        north.add(slotPanel);
+        panel.add(north, BorderLayout.NORTH);
+
+        mentorModel = new DefaultTableModel(new String[]{"Name", "Email", "Skills", "Availability", "Matched"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable mentorTable = new JTable(mentorModel);
+        mentorTable.getTableHeader().setFont(BOLD_FONT);
+        panel.add(new JScrollPane(mentorTable), BorderLayout.CENTER);
+
+        mentorStatusLabel = new JLabel("Enter one or more skills, a time slot, or both.", SwingConstants.CENTER);
+        mentorStatusLabel.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
+        panel.add(mentorStatusLabel, BorderLayout.SOUTH);
+        return panel;
+    }
+
     // --- Data/Action Methods ---
 
     private void logStudentActivity(ActionEvent e) {
         String name = activityNameField.getText();
         String type = activityTypeField.getText();
         String dateStr = dateField.getText();
-        String status = (String) statusComboBox.getSelectedItem();
-        String certificate = certificateCheckBox.isSelected() ? "Yes" : "No";
+        String status = ApprovalQueue.PENDING; // a mentor approves or rejects it
+        Path certificate = certificateFile;
         String remarks = remarksField.getText();
 
         if (name.isEmpty() || type.isEmpty() || dateStr.isEmpty()) {
@@ -156,76 +252,117 @@ public class StudentDashboardFrame extends JFrame {
         }
 
 
-        Connection conn = null;
-        PreparedStatement ps = null;
-        try {
-            conn = DatabaseManager.getConnection();
-            String query = "INSERT INTO StudentsActivity (student_email, activity_name, activity_type, log_date, status, certificate_path, remarks) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            ps = conn.prepareStatement(query);
-            ps.setString(1, studentEmail);
-            ps.setString(2, name);
-            ps.setString(3, type);
-            ps.setDate(4, java.sql.Date.valueOf(dateStr));
-            ps.setString(5, status);
-            ps.setString(6, certificate); // Storing Yes/No for simplicity
-            ps.setString(7, remarks);
-
-            ps.executeUpdate();
-            JOptionPane.showMessageDialog(this, "Activity logged successfully! Status: " + status, "Success", JOptionPane.INFORMATION_MESSAGE);
+        // The certificate is streamed into the store first; the row keeps its digest reference
+        BackgroundLoader.shared().submit(() -> {
+            String reference = certificate == null ? "No" : CertificateStore.shared().put(certificate);
+            return ActivityService.logStudentActivity(new StudentActivity(0, studentEmail, name, type,
+                    java.sql.Date.valueOf(dateStr).toLocalDate(), status, reference, remarks));
+        }, saved -> {
+            JOptionPane.showMessageDialog(this, "Activity logged successfully! A mentor will review it.", "Success", JOptionPane.INFORMATION_MESSAGE);
             
             activityNameField.setText("");
             activityTypeField.setText("");
             dateField.setText("");
             remarksField.setText("");
-            certificateCheckBox.setSelected(false);
-            
-            // Refresh performance data
-            loadPerformanceData((DefaultTableModel)((JTable)((JScrollPane)((JPanel)((JTabbedPane)this.getContentPane().getComponent(0)).getComponentAt(1)).getComponent(0)).getViewport().getView()).getModel());
+            certificateFile = null;
+            certificateLabel.setText("None");
+            // The new row reaches the performance view through the ChangeBus
+        }, ex -> {
+            JOptionPane.showMessageDialog(this, "Could not log the activity: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
+    }
 
+    private void chooseCertificate() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        if (file.toFile().length() > CertificateStore.MAX_BYTES) {
+            JOptionPane.showMessageDialog(this, "Certificates are limited to " + (CertificateStore.MAX_BYTES >> 20) + " MB.",
+                    "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        certificateFile = file;
+        certificateLabel.setText(file.getFileName().toString());
+    }
 
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
+    private void saveSelectedCertificate() {
+        int row = activityTable.getSelectedRow();
+        StudentActivity a = row < 0 ? null : performanceModel.activityAt(row);
+        if (a == null || !CertificateStore.isReference(a.certificate)) {
+            JOptionPane.showMessageDialog(this, "Select an activity with an attached certificate.", "No Certificate", JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
+        BackgroundLoader.shared().load("certificate-type", () -> CertificateStore.shared().extension(a.certificate), extension -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new java.io.File(a.name.replaceAll("[^A-Za-z0-9_-]+", "_") + "_certificate" + extension));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            Path target = chooser.getSelectedFile().toPath();
+            BackgroundLoader.shared().submit(() -> {
+                CertificateStore.shared().copyTo(a.certificate, target);
+                return target;
+            }, saved -> JOptionPane.showMessageDialog(this, "Certificate saved to " + saved, "Success", JOptionPane.INFORMATION_MESSAGE),
+                    this::showCertificateError);
+        }, this::showCertificateError);
     }
 
-    private void loadPerformanceData(DefaultTableModel model) {
-        model.setRowCount(0); // Clear existing data
-        
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseManager.getConnection();
-            String query = "SELECT log_date, activity_name, activity_type, status, certificate_path, remarks " +
-                           "FROM StudentsActivity WHERE student_email = ? ORDER BY log_date DESC";
-            
-            ps = conn.prepareStatement(query);
-            ps.setString(1, studentEmail);
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                model.addRow(new Object[]{
-                    rs.getDate("log_date").toString(),
-                    rs.getString("activity_name"),
-                    rs.getString("activity_type"),
-                    rs.getString("status"),
-                    rs.getString("certificate_path"),
-                    rs.getString("remarks")
-                });
+    private void showCertificateError(Exception ex) {
+        JOptionPane.showMessageDialog(this, "Error reading certificate: " + ex.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
+        ex.printStackTrace();
+    }
+
+    private void searchMentors() {
+        String query = skillSearchField.getText();
+        boolean matchAll = skillMatchBox.getSelectedIndex() == 0;
+        DayOfWeek day = freeDayBox.getSelectedIndex() == 0 ? null : DayOfWeek.of(freeDayBox.getSelectedIndex());
+        boolean whole = freeWholeCheckBox.isSelected();
+        if (query.trim().isEmpty() && day == null) {
+            JOptionPane.showMessageDialog(this, "Enter at least one skill or pick a day to search for.", "Input Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        LocalTime from = null, to = null;
+        if (day != null) {
+            try {
+                from = LocalTime.parse(freeFromField.getText().trim());
+                to = LocalTime.parse(freeToField.getText().trim());
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(this, "Please enter times as HH:MM, e.g. 09:00.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading performance data: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
         }
+        LocalTime slotFrom = from, slotTo = to;
+        BackgroundLoader.shared().load("mentor-search", () -> {
+            // Both builds only wait if the startup build has not finished
+            AvailabilityIndex free = AvailabilityIndex.shared();
+            if (day != null) free.ensureBuilt();
+            List<Object[]> rows = new java.util.ArrayList<>();
+            if (query.trim().isEmpty()) {
+                for (AccountRepository.MentorProfile p : free.freeDuring(day, slotFrom, slotTo, whole, MENTOR_RESULTS)) {
+                    rows.add(new Object[]{p.name, p.email, p.skills, p.availability, ""});
+                }
+                return rows;
+            }
+            SkillIndex skills = SkillIndex.shared();
+            skills.ensureBuilt();
+            for (SkillIndex.Match m : skills.search(query, matchAll, MENTOR_RESULTS,
+                    day == null ? null : p -> free.isFree(p.email, day, slotFrom, slotTo, whole))) {
+                rows.add(new Object[]{m.mentor.name, m.mentor.email, m.mentor.skills, m.mentor.availability, m.matchedWords});
+            }
+            return rows;
+        }, matches -> {
+            mentorModel.setRowCount(0);
+            for (Object[] row : matches) mentorModel.addRow(row);
+            mentorStatusLabel.setText(matches.isEmpty() ? "No mentors match."
+                    : matches.size() == MENTOR_RESULTS ? "Showing the best " + MENTOR_RESULTS + " matches."
+                    : matches.size() + " mentor(s) match.");
+        }, ex -> {
+            JOptionPane.showMessageDialog(this, "Error searching mentors: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
+    }
+
+    private void loadPerformanceData() {
+        performanceModel.refresh();
     }
     
     // Custom Panel for better form spacing
@@ -1,9 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 
 /**
@@ -98,48 +95,53 @@ public class TimeBankApp extends JFrame {
      */
     private void handleLogin(ActionEvent e) {
         String email = emailField.getText().trim();
-        String password = new String(passwordField.getPassword());
         boolean isStudent = studentRadio.isSelected();
 
-        if (email.isEmpty() || password.isEmpty()) {
+        if (email.isEmpty() || passwordField.getPassword().length == 0) {
             JOptionPane.showMessageDialog(this, "Please enter both email and password.", "Input Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        String tableName = isStudent ? "Students" : "Mentors";
-
-        try {
-            conn = DatabaseManager.getConnection();
-            String query = "SELECT * FROM " + tableName + " WHERE email = ? AND password = ?";
-            ps = conn.prepareStatement(query);
-            ps.setString(1, email);
-            ps.setString(2, password); // Note: Simple password check, use secure hashing in production!
-            
-            rs = ps.executeQuery();
+        AccountRepository.Role role = isStudent ? AccountRepository.Role.STUDENT : AccountRepository.Role.MENTOR;
+        char[] password = passwordField.getPassword();
 
-            if (rs.next()) {
-                JOptionPane.showMessageDialog(this, "Login successful! Welcome, " + rs.getString("name") + "!", "Success", JOptionPane.INFORMATION_MESSAGE);
+        // Hash verification is slow by design; keep it off the EDT
+        loginButton.setEnabled(false);
+        BackgroundLoader.shared().load("login", () -> AuthService.shared().authenticate(role, email, password), login -> {
+            loginButton.setEnabled(true);
+            if (login != null) {
+                JOptionPane.showMessageDialog(this, "Login successful! Welcome, " + login.name + "!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 this.dispose(); // Close login window
 
                 if (isStudent) {
-                    new StudentDashboardFrame(email, rs.getString("name"));
+                    new StudentDashboardFrame(email, login.name);
                 } else {
-                    new MentorDashboardFrame(email, rs.getString("name"));
+                    new MentorDashboardFrame(email, login.name);
                 }
             } else {
                 JOptionPane.showMessageDialog(this, "Invalid credentials or user type.", "Login Failed", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database error during login: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        } finally {
-            DatabaseManager.close(rs);
-            DatabaseManager.close(ps);
-            DatabaseManager.close(conn);
+        }, ex -> {
+            loginButton.setEnabled(true);
+            if (ex instanceof AuthService.BusyException) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Login Busy", JOptionPane.WARNING_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, "Database error during login: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Reports a failed registration; a duplicate key means the email is taken.
+     */
+    private static void showRegistrationError(Component parent, Exception ex) {
+        if (ex instanceof SQLException && ((SQLException) ex).getErrorCode() == 1062) { // MySQL error code for duplicate entry
+            JOptionPane.showMessageDialog(parent, "Email already registered.", "Registration Failed", JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(parent, "Database error: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
         }
+        ex.printStackTrace();
     }
 
     /**
@@ -155,7 +157,14 @@ public class TimeBankApp extends JFrame {
     }
     
     // Main method
-    public static void main(String[] args) {
+    public static void main(String[] args) throws java.io.IOException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            // Headless mode: same operations over HTTP/JSON, no windows
+            TimeBankServer.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        ActivityJournal.active(); // write-behind mode: replay anything left from the last run
+        MentorService.buildIndexesInBackground(); // ready by the time a student opens mentor search
         // Use the event-dispatching thread for GUI operations
         SwingUtilities.invokeLater(TimeBankApp::new);
     }
@@ -215,36 +224,16 @@ public class TimeBankApp extends JFrame {
                 return;
             }
 
-            Connection conn = null;
-            PreparedStatement ps = null;
-            try {
-                conn = DatabaseManager.getConnection();
-                String query = "INSERT INTO Students (name, email, password, department, year, contact_no) VALUES (?, ?, ?, ?, ?, ?)";
-                ps = conn.prepareStatement(query);
-                ps.setString(1, name);
-                ps.setString(2, email);
-                ps.setString(3, password);
-                ps.setString(4, department);
-                ps.setString(5, year);
-                ps.setString(6, contact);
-
-                ps.executeUpdate();
+            BackgroundLoader.shared().submit(() -> {
+                String hash = AuthService.shared().hash(password.toCharArray());
+                Storage.current().insertStudent(name, email, hash, department, year, contact);
+                return null;
+            }, done -> {
                 JOptionPane.showMessageDialog(this, "Student Registration successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 
                 this.dispose(); // Close registration and go back to login
                 new TimeBankApp();
-
-            } catch (SQLException ex) {
-                if (ex.getErrorCode() == 1062) { // MySQL error code for duplicate entry
-                    JOptionPane.showMessageDialog(this, "Email already registered.", "Registration Failed", JOptionPane.ERROR_MESSAGE);
-                } else {
-                    JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-                }
-                ex.printStackTrace();
-            } finally {
-                DatabaseManager.close(ps);
-                DatabaseManager.close(conn);
-            }
+            }, ex -> showRegistrationError(this, ex));
         }
     }
     
@@ -301,36 +290,16 @@ public class TimeBankApp extends JFrame {
                 return;
             }
 
-            Connection conn = null;
-            PreparedStatement ps = null;
-            try {
-                conn = DatabaseManager.getConnection();
-                String query = "INSERT INTO Mentors (name, email, password, skills, availability, contact_no) VALUES (?, ?, ?, ?, ?, ?)";
-                ps = conn.prepareStatement(query);
-                ps.setString(1, name);
-                ps.setString(2, email);
-                ps.setString(3, password);
-                ps.setString(4, skills);
-                ps.setString(5, availability);
-                ps.setString(6, contact);
-
-                ps.executeUpdate();
+            BackgroundLoader.shared().submit(() -> {
+                String hash = AuthService.shared().hash(password.toCharArray());
+                MentorService.register(name, email, hash, skills, availability, contact);
+                return null;
+            }, done -> {
                 JOptionPane.showMessageDialog(this, "Mentor Registration successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 
                 this.dispose(); // Close registration and go back to login
                 new TimeBankApp();
-
-            } catch (SQLException ex) {
-                if (ex.getErrorCode() == 1062) { // MySQL error code for duplicate entry
-                    JOptionPane.showMessageDialog(this, "Email already registered.", "Registration Failed", JOptionPane.ERROR_MESSAGE);
-                } else {
-                    JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-                }
-                ex.printStackTrace();
-            } finally {
-                DatabaseManager.close(ps);
-                DatabaseManager.close(conn);
-            }
+            }, ex -> showRegistrationError(this, ex));
         }
     }
 }
@@ -0,0 +1,701 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Headless HTTP/JSON front end for the dashboard operations, so many desktop or web clients
+ * share this process's single connection pool instead of each opening its own.
+ *
+ * Runs on the JDK's built-in HTTP server. Each request gets a virtual thread when the JDK has
+ * them (21+); older JDKs fall back to a fixed pool of timebank.server.threads platform threads.
+ * Either way the database sees at most timebank.pool.maxSize connections.
+ *
+ *   POST /api/login                {"role":"student|mentor","email":..,"password":..} -> {"token":..,"name":..}
+ *   POST /api/logout
+ *   POST /api/student/activities   {"name","type","date":"YYYY-MM-DD","certificate":bool|"sha256:..","remarks"}  (always Pending)
+ *   PUT  /api/student/certificates (raw file bytes, up to timebank.certificates.maxBytes) -> {"certificate":"sha256:.."}
+ *   GET  /api/certificates?ref=sha256:..  the stored file (PDF, PNG, JPEG or octet-stream)
+ *   POST /api/mentor/activities    {"name","type","date":"YYYY-MM-DD","hours":n}
+ *   GET  /api/leaderboard?limit=100&window=week|month|term|all
+ *   GET  /api/mentor/balance
+ *   GET  /api/rewards
+ *   POST /api/mentor/redemptions   {"rewardId":n,"catalogVersion":n}
+ *   GET  /api/mentor/report?from=YYYY-MM-DD&to=YYYY-MM-DD  (CSV, to exclusive; gzip if accepted)
+ *   GET  /api/mentor/summary?from=YYYY-MM-DD&to=YYYY-MM-DD -> {"activities","hours","points"} (to exclusive)
+ *   GET  /api/mentor/queue?limit=200&afterDate=YYYY-MM-DD&afterId=n  Pending student activities, oldest first
+ *   POST /api/mentor/queue/decisions  {"ids":[n,..],"decision":"approve|reject"} -> {"changed","pending"}
+ *   GET  /api/mentors/search?q=java,sql&match=all|any&limit=20  mentors by skill, best match first
+ *        &day=mon..sun&from=HH:MM&to=HH:MM&whole=true|false  only mentors free then (q optional with day)
+ *   POST /api/mentor/availability  {"availability":"Mon-Fri 5-8pm"} -> {"availability","understood"}
+ *
+ * Every call but login needs "Authorization: Bearer <token>". Tokens expire after
+ * timebank.server.sessionTtlMs of inactivity (default 8 hours). Passwords travel in the request
+ * body, so expose the server only behind a TLS-terminating proxy.
+ *
+ * Usage: java TimeBankServer   (or java TimeBankApp --server)
+ */
+public class TimeBankServer {
+
+    private static final String HOST = System.getProperty("timebank.server.host", "0.0.0.0");
+    private static final int PORT = Integer.getInteger("timebank.server.port", 8080);
+    private static final int THREADS = Integer.getInteger("timebank.server.threads", 64);
+    private static final long SESSION_TTL_MS = Long.getLong("timebank.server.sessionTtlMs", 8 * 3600_000L);
+    private static final long SESSION_SWEEP_MS = 60_000L;
+    private static final int MAX_BODY = 64 * 1024;
+    private static final int DEFAULT_LEADERBOARD = 100;
+    private static final int DEFAULT_QUEUE_PAGE = 200;
+    private static final int MAX_DECISIONS = 5000;
+    private static final int DEFAULT_SEARCH = 20;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Object STREAMED = new Object(); // endpoint wrote its own response
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionSweep = new AtomicLong();
+
+    public TimeBankServer(InetSocketAddress address) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.executor = requestExecutor();
+        server.setExecutor(executor);
+
+        route("/api/login", "POST", null, false, this::login);
+        route("/api/logout", "POST", null, true, this::logout);
+        route("/api/student/activities", "POST", AccountRepository.Role.STUDENT, true, this::logStudentActivity);
+        route("/api/student/certificates", "PUT", AccountRepository.Role.STUDENT, true, this::uploadCertificate);
+        route("/api/certificates", "GET", null, true, this::downloadCertificate);
+        route("/api/mentor/activities", "POST", AccountRepository.Role.MENTOR, true, this::addMentorActivity);
+        route("/api/leaderboard", "GET", null, true, this::leaderboard);
+        route("/api/mentor/balance", "GET", AccountRepository.Role.MENTOR, true, this::balance);
+        route("/api/rewards", "GET", null, true, this::rewards);
+        route("/api/mentor/redemptions", "POST", AccountRepository.Role.MENTOR, true, this::redeem);
+        route("/api/mentor/report", "GET", AccountRepository.Role.MENTOR, true, this::report);
+        route("/api/mentor/summary", "GET", AccountRepository.Role.MENTOR, true, this::summary);
+        route("/api/mentor/queue", "GET", AccountRepository.Role.MENTOR, true, this::pendingQueue);
+        route("/api/mentor/queue/decisions", "POST", AccountRepository.Role.MENTOR, true, this::decide);
+        route("/api/mentors/search", "GET", null, true, this::searchMentors);
+        route("/api/mentor/availability", "POST", AccountRepository.Role.MENTOR, true, this::updateAvailability);
+        server.createContext("/", exchange -> {
+            send(exchange, 404, error("Not found"));
+            exchange.close();
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        TimeBankServer server = new TimeBankServer(new InetSocketAddress(HOST, PORT));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "timebank-server-shutdown"));
+        server.start();
+        System.out.println("TimeBank server listening on " + HOST + ":" + PORT);
+    }
+
+    public void start() {
+        Storage.current(); // open the backend (recovering an embedded store) before taking requests
+        ActivityJournal.active(); // write-behind mode: replay anything left from the last run
+        MentorService.buildIndexesInBackground();
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** A virtual-thread-per-task executor where available (looked up reflectively so this compiles on 17). */
+    static ExecutorService requestExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger threadNo = new AtomicInteger();
+            return Executors.newFixedThreadPool(THREADS, r -> {
+                Thread t = new Thread(r, "timebank-http-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // --- Endpoints ---
+
+    private Object login(Request req) throws Exception {
+        String role = req.string("role");
+        AccountRepository.Role r;
+        if ("student".equalsIgnoreCase(role)) r = AccountRepository.Role.STUDENT;
+        else if ("mentor".equalsIgnoreCase(role)) r = AccountRepository.Role.MENTOR;
+        else throw new ApiException(400, "role must be 'student' or 'mentor'");
+
+        AuthService.Login login = AuthService.shared().authenticate(r, req.string("email"), req.password("password"));
+        if (login == null) throw new ApiException(401, "Invalid credentials or user type.");
+
+        sweepSessions();
+        byte[] raw = new byte[32];
+        RANDOM.nextBytes(raw);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        sessions.put(token, new Session(login));
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("token", token);
+        out.put("name", login.name);
+        out.put("role", role.toLowerCase());
+        return out;
+    }
+
+    /** Drops expired sessions, at most once a minute; called on every login and authenticated request. */
+    private void sweepSessions() {
+        long now = System.currentTimeMillis();
+        long due = nextSessionSweep.get();
+        if (now < due || !nextSessionSweep.compareAndSet(due, now + SESSION_SWEEP_MS)) return;
+        sessions.values().removeIf(s -> s.expiresAt < now);
+    }
+
+    private Object logout(Request req) {
+        sessions.remove(req.token);
+        return new LinkedHashMap<>();
+    }
+
+    private Object logStudentActivity(Request req) throws Exception {
+        // Students cannot approve their own activities; older clients may still send "Pending"
+        String status = req.optString("status", ApprovalQueue.PENDING);
+        if (!ApprovalQueue.PENDING.equals(status)) {
+            throw new ApiException(400, "status is set by mentor review; new activities are always " + ApprovalQueue.PENDING);
+        }
+        Object certificate = req.body.get("certificate");
+        String certificatePath;
+        if (certificate == null || certificate instanceof Boolean) {
+            certificatePath = Boolean.TRUE.equals(certificate) ? "Yes" : "No"; // clients from before uploads
+        } else if (certificate instanceof String && CertificateStore.isReference((String) certificate)
+                && CertificateStore.shared().exists((String) certificate)) {
+            certificatePath = (String) certificate;
+        } else {
+            throw new ApiException(400, "certificate must be true, false or a reference from /api/student/certificates");
+        }
+        StudentActivity saved = ActivityService.logStudentActivity(new StudentActivity(0, req.session.login.email,
+                req.string("name"), req.string("type"), req.date("date"), status,
+                certificatePath, req.optString("remarks", "")));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("id", saved.id);
+        out.put("status", saved.status);
+        return out;
+    }
+
+    /** Streams the request body into the certificate store; identical files share one copy. */
+    private Object uploadCertificate(Request req) throws Exception {
+        String length = req.exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && length.matches("\\d{1,18}") && Long.parseLong(length) > CertificateStore.MAX_BYTES) {
+            throw new ApiException(413, "Certificates are limited to " + (CertificateStore.MAX_BYTES >> 20) + " MB.");
+        }
+        String reference;
+        try (InputStream in = req.exchange.getRequestBody()) {
+            reference = CertificateStore.shared().put(in);
+        } catch (CertificateStore.TooLargeException ex) {
+            throw new ApiException(413, ex.getMessage());
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("certificate", reference);
+        return out;
+    }
+
+    /** A stored certificate; the digest in the reference is what grants access to it. */
+    private Object downloadCertificate(Request req) throws Exception {
+        String reference = req.query.get("ref");
+        if (!CertificateStore.isReference(reference)) throw new ApiException(400, "ref must be a sha256: certificate reference");
+        CertificateStore store = CertificateStore.shared();
+        if (!store.exists(reference)) throw new ApiException(404, "No such certificate");
+        req.exchange.getResponseHeaders().set("Content-Type", store.contentType(reference));
+        req.exchange.getResponseHeaders().set("Cache-Control", "private, max-age=31536000, immutable"); // content-addressed
+        req.exchange.sendResponseHeaders(200, store.size(reference));
+        try (OutputStream body = req.exchange.getResponseBody()) {
+            store.transferTo(reference, Channels.newChannel(body));
+        }
+        return STREAMED;
+    }
+
+    private Object addMentorActivity(Request req) throws Exception {
+        long hours = req.number("hours");
+        if (hours <= 0 || hours > Integer.MAX_VALUE / MentorActivity.POINTS_PER_HOUR) {
+            throw new ApiException(400, "hours must be a positive whole number");
+        }
+        MentorActivity saved = ActivityService.addMentorActivity(MentorActivity.create(req.session.login.email,
+                req.string("name"), req.string("type"), req.date("date"), (int) hours), req.session.login.name);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("id", saved.id);
+        out.put("points", saved.points);
+        return out;
+    }
+
+    private Object leaderboard(Request req) throws Exception {
+        int limit = (int) Math.min(1000, Math.max(1, req.queryNumber("limit", DEFAULT_LEADERBOARD)));
+        WindowedLeaderboard.Window window = leaderboardWindow(req.query.get("window"));
+        WindowedLeaderboard boards = WindowedLeaderboard.shared();
+        boards.ensureSeeded(window);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int rank = 1;
+        for (LeaderboardEngine.Entry e : boards.top(window, limit)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("rank", rank++);
+            row.put("name", e.name);
+            row.put("hours", e.hours);
+            row.put("points", e.points);
+            rows.add(row);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("window", window.name().toLowerCase());
+        out.put("entries", rows);
+        out.put("totalMentors", boards.size(window));
+        if (req.session.login.role == AccountRepository.Role.MENTOR) {
+            out.put("myRank", boards.rankOf(window, req.session.login.email));
+        }
+        return out;
+    }
+
+    private static WindowedLeaderboard.Window leaderboardWindow(String name) throws ApiException {
+        if (name == null || name.equals("all")) return WindowedLeaderboard.Window.ALL_TIME;
+        switch (name) {
+            case "week": return WindowedLeaderboard.Window.WEEK;
+            case "month": return WindowedLeaderboard.Window.MONTH;
+            case "term": return WindowedLeaderboard.Window.TERM;
+            default: throw new ApiException(400, "window must be week, month, term or all");
+        }
+    }
+
+    private Object balance(Request req) throws Exception {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("points", Storage.current().balance(req.session.login.email));
+        return out;
+    }
+
+    private Object rewards(Request req) throws Exception {
+        RewardCatalog.Snapshot catalog = RewardCatalog.shared().current();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Reward r : catalog.rewards) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", r.id);
+            row.put("name", r.name);
+            row.put("cost", r.cost);
+            rows.add(row);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("catalogVersion", catalog.version);
+        out.put("rewards", rows);
+        return out;
+    }
+
+    private Object redeem(Request req) throws Exception {
+        RewardCatalog.Snapshot catalog = RewardCatalog.shared().current();
+        Reward reward = catalog.get((int) req.number("rewardId"));
+        if (reward == null) throw new ApiException(404, "No such reward");
+        long version = req.body.containsKey("catalogVersion") ? req.number("catalogVersion") : catalog.version;
+
+        RewardRedemption.Result result = RewardRedemption.redeem(req.session.login.email, reward, version);
+        if (result.status == RewardRedemption.Status.CATALOG_CHANGED) RewardCatalog.shared().invalidate();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("status", result.status.name());
+        out.put("balance", result.balance);
+        return out;
+    }
+
+    private Object report(Request req) throws Exception {
+        LocalDate from = req.queryDate("from");
+        LocalDate to = req.queryDate("to");
+        if (!from.isBefore(to)) throw new ApiException(400, "from must be before to");
+
+        String accept = req.exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = accept != null && accept.contains("gzip");
+        req.exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+        req.exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"report_" + from + "_" + to + ".csv\"");
+        if (gzip) req.exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        req.exchange.sendResponseHeaders(200, 0); // chunked: rows are streamed as they are read
+
+        OutputStream body = req.exchange.getResponseBody();
+        if (gzip) body = new GZIPOutputStream(body, 8192);
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            ReportExporter.write(req.session.login.email, from, to, out, null);
+        } catch (SQLException | IOException | RuntimeException ex) {
+            // Not closed: a clean close would end the chunked body and pass a short CSV off as complete
+            throw new StreamAbortedException(ex);
+        }
+        out.close();
+        return STREAMED;
+    }
+
+    private Object summary(Request req) throws Exception {
+        LocalDate from = req.queryDate("from");
+        LocalDate to = req.queryDate("to");
+        if (!from.isBefore(to)) throw new ApiException(400, "from must be before to");
+
+        ActivityRollups.Totals totals = ReportExporter.summarize(req.session.login.email, from, to);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("activities", totals.activities);
+        out.put("hours", totals.hours);
+        out.put("points", totals.points);
+        return out;
+    }
+
+    private Object searchMentors(Request req) throws Exception {
+        String q = req.query.getOrDefault("q", "");
+        DayOfWeek day = req.query.containsKey("day") ? searchDay(req.query.get("day")) : null;
+        if (q.trim().isEmpty() && day == null) throw new ApiException(400, "q or day is required");
+        String match = req.query.getOrDefault("match", "all");
+        if (!match.equals("all") && !match.equals("any")) throw new ApiException(400, "match must be all or any");
+        int limit = (int) Math.min(200, Math.max(1, req.queryNumber("limit", DEFAULT_SEARCH)));
+        LocalTime from = day == null ? null : req.queryTime("from");
+        LocalTime to = day == null ? null : req.queryTime("to");
+        boolean whole = !"false".equals(req.query.get("whole"));
+
+        AvailabilityIndex free = AvailabilityIndex.shared();
+        if (day != null) free.ensureBuilt();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (q.trim().isEmpty()) {
+            for (AccountRepository.MentorProfile p : free.freeDuring(day, from, to, whole, limit)) rows.add(mentorRow(p));
+        } else {
+            SkillIndex index = SkillIndex.shared();
+            index.ensureBuilt();
+            for (SkillIndex.Match m : index.search(q, match.equals("all"), limit,
+                    day == null ? null : p -> free.isFree(p.email, day, from, to, whole))) {
+                Map<String, Object> row = mentorRow(m.mentor);
+                row.put("matched", m.matchedWords);
+                rows.add(row);
+            }
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("mentors", rows);
+        return out;
+    }
+
+    private static Map<String, Object> mentorRow(AccountRepository.MentorProfile p) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("name", p.name);
+        row.put("email", p.email);
+        row.put("skills", p.skills);
+        row.put("availability", p.availability);
+        return row;
+    }
+
+    private static DayOfWeek searchDay(String name) throws ApiException {
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if (name.length() >= 3 && d.name().toLowerCase().startsWith(name.toLowerCase())) return d;
+        }
+        throw new ApiException(400, "day must be mon, tue, wed, thu, fri, sat or sun");
+    }
+
+    private Object updateAvailability(Request req) throws Exception {
+        String availability = req.optString("availability", "").trim();
+        if (availability.length() > MentorService.MAX_AVAILABILITY) {
+            throw new ApiException(400, "availability is limited to " + MentorService.MAX_AVAILABILITY + " characters");
+        }
+        if (!MentorService.updateAvailability(req.session.login.email, availability)) {
+            throw new ApiException(404, "mentor not found");
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("availability", availability);
+        out.put("understood", Availability.describe(Availability.parse(availability)));
+        return out;
+    }
+
+    private Object pendingQueue(Request req) throws Exception {
+        int limit = (int) Math.min(1000, Math.max(1, req.queryNumber("limit", DEFAULT_QUEUE_PAGE)));
+        StudentActivityRepository.Cursor after = null;
+        if (req.query.containsKey("afterDate") || req.query.containsKey("afterId")) {
+            after = new StudentActivityRepository.Cursor(req.queryDate("afterDate"), req.queryNumber("afterId", 0));
+        }
+        Storage storage = Storage.current();
+        List<StudentActivity> page = storage.pendingStudentActivities(after, limit);
+
+        List<Map<String, Object>> rows = new ArrayList<>(page.size());
+        for (StudentActivity a : page) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", a.id);
+            row.put("date", a.date.toString());
+            row.put("student", a.studentEmail);
+            row.put("name", a.name);
+            row.put("type", a.type);
+            row.put("certificate", a.certificate);
+            row.put("remarks", a.remarks);
+            rows.add(row);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("pending", storage.studentActivityStatusCounts().getOrDefault(ApprovalQueue.PENDING, 0L));
+        out.put("entries", rows);
+        if (page.size() == limit) {
+            StudentActivity last = page.get(page.size() - 1);
+            Map<String, Object> next = new LinkedHashMap<>();
+            next.put("afterDate", last.date.toString());
+            next.put("afterId", last.id);
+            out.put("next", next);
+        }
+        return out;
+    }
+
+    private Object decide(Request req) throws Exception {
+        Object ids = req.body.get("ids");
+        if (!(ids instanceof List) || ((List<?>) ids).isEmpty()) throw new ApiException(400, "ids must be a non-empty array");
+        if (((List<?>) ids).size() > MAX_DECISIONS) throw new ApiException(400, "at most " + MAX_DECISIONS + " ids per request");
+        List<Long> logIds = new ArrayList<>();
+        for (Object id : (List<?>) ids) {
+            if (!(id instanceof Long)) throw new ApiException(400, "ids must be whole numbers");
+            logIds.add((Long) id);
+        }
+        String decision = req.string("decision");
+        String status;
+        if (decision.equals("approve")) status = ApprovalQueue.APPROVED;
+        else if (decision.equals("reject")) status = ApprovalQueue.REJECTED;
+        else throw new ApiException(400, "decision must be approve or reject");
+
+        Storage storage = Storage.current();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("changed", ActivityService.decideStudentActivities(logIds, status));
+        out.put("pending", storage.studentActivityStatusCounts().getOrDefault(ApprovalQueue.PENDING, 0L));
+        return out;
+    }
+
+    // --- Plumbing ---
+
+    private interface Endpoint {
+        Object handle(Request req) throws Exception;
+    }
+
+    /** An error with the HTTP status to report it with. */
+    /** A streamed response failed after its 200 was sent; the connection is dropped instead of the body ended. */
+    private static final class StreamAbortedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StreamAbortedException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private static final class ApiException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class Session {
+        final AuthService.Login login;
+        volatile long expiresAt;
+
+        Session(AuthService.Login login) {
+            this.login = login;
+            touch();
+        }
+
+        void touch() {
+            expiresAt = System.currentTimeMillis() + SESSION_TTL_MS;
+        }
+    }
+
+    /** One parsed request: query string, JSON body (for POST) and the caller's session. */
+    private static final class Request {
+        final HttpExchange exchange;
+        final Map<String, String> query;
+        final Map<String, Object> body;
+        String token;
+        Session session;
+
+        Request(HttpExchange exchange, Map<String, String> query, Map<String, Object> body) {
+            this.exchange = exchange;
+            this.query = query;
+            this.body = body;
+        }
+
+        String string(String field) throws ApiException {
+            Object v = body.get(field);
+            if (!(v instanceof String) || ((String) v).trim().isEmpty()) throw new ApiException(400, field + " is required");
+            return ((String) v).trim();
+        }
+
+        /** A password exactly as sent: unlike string(), surrounding spaces are part of it. */
+        char[] password(String field) throws ApiException {
+            Object v = body.get(field);
+            if (!(v instanceof String) || ((String) v).isEmpty()) throw new ApiException(400, field + " is required");
+            return ((String) v).toCharArray();
+        }
+
+        String optString(String field, String fallback) throws ApiException {
+            Object v = body.get(field);
+            if (v == null) return fallback;
+            if (!(v instanceof String)) throw new ApiException(400, field + " must be a string");
+            return (String) v;
+        }
+
+        long number(String field) throws ApiException {
+            Object v = body.get(field);
+            if (!(v instanceof Long)) throw new ApiException(400, field + " must be a whole number");
+            return (Long) v;
+        }
+
+        LocalDate date(String field) throws ApiException {
+            return parseDate(field, string(field));
+        }
+
+        long queryNumber(String name, long fallback) throws ApiException {
+            String v = query.get(name);
+            if (v == null) return fallback;
+            try {
+                return Long.parseLong(v);
+            } catch (NumberFormatException ex) {
+                throw new ApiException(400, name + " must be a whole number");
+            }
+        }
+
+        LocalTime queryTime(String name) throws ApiException {
+            String v = query.get(name);
+            if (v == null) throw new ApiException(400, name + " is required");
+            try {
+                return LocalTime.parse(v);
+            } catch (java.time.format.DateTimeParseException ex) {
+                throw new ApiException(400, name + " must be a time in HH:MM format");
+            }
+        }
+
+        LocalDate queryDate(String name) throws ApiException {
+            String v = query.get(name);
+            if (v == null) throw new ApiException(400, name + " is required");
+            return parseDate(name, v);
+        }
+
+        private static LocalDate parseDate(String name, String value) throws ApiException {
+            try {
+                return java.sql.Date.valueOf(value).toLocalDate();
+            } catch (IllegalArgumentException ex) {
+                throw new ApiException(400, name + " must be a date in YYYY-MM-DD format");
+            }
+        }
+    }
+
+    private void route(String path, String method, AccountRepository.Role role, boolean authenticated, Endpoint endpoint) {
+        server.createContext(path, exchange -> {
+            boolean aborted = false;
+            try {
+                if (!exchange.getRequestURI().getPath().equals(path)) throw new ApiException(404, "Not found");
+                if (!method.equals(exchange.getRequestMethod())) throw new ApiException(405, "Use " + method);
+
+                Request req = new Request(exchange, parseQuery(exchange.getRequestURI().getRawQuery()),
+                        "POST".equals(method) ? readBody(exchange) : new HashMap<>());
+                if (authenticated) {
+                    sweepSessions();
+                    String auth = exchange.getRequestHeaders().getFirst("Authorization");
+                    req.token = auth != null && auth.startsWith("Bearer ") ? auth.substring(7).trim() : null;
+                    req.session = req.token == null ? null : sessions.get(req.token);
+                    if (req.session == null || req.session.expiresAt < System.currentTimeMillis()) {
+                        if (req.token != null) sessions.remove(req.token);
+                        throw new ApiException(401, "Log in first.");
+                    }
+                    if (role != null && req.session.login.role != role) throw new ApiException(403, "Not available for this account type.");
+                    req.session.touch();
+                }
+
+                Object result = endpoint.handle(req);
+                if (result != STREAMED) send(exchange, 200, result);
+            } catch (StreamAbortedException ex) {
+                ex.getCause().printStackTrace();
+                aborted = true;
+                throw ex; // HttpServer closes the connection without finishing the response
+            } catch (ApiException ex) {
+                send(exchange, ex.status, error(ex.getMessage()));
+            } catch (AuthService.BusyException | RejectedExecutionException ex) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, error(ex.getMessage()));
+            } catch (IllegalArgumentException ex) {
+                send(exchange, 400, error(ex.getMessage()));
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+                send(exchange, 500, error("Database error"));
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                send(exchange, 500, error("Internal error"));
+            } finally {
+                if (!aborted) exchange.close();
+            }
+        });
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("error", message);
+        return out;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) {
+        try {
+            byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (IOException ex) {
+            // Client went away, or a streamed response failed after its headers were sent
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException, ApiException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] chunk = new byte[8192];
+            for (int n; (n = in.read(chunk)) > 0; ) {
+                if (buf.size() + n > MAX_BODY) throw new ApiException(413, "Request body too large");
+                buf.write(chunk, 0, n);
+            }
+        }
+        String text = new String(buf.toByteArray(), StandardCharsets.UTF_8);
+        return text.trim().isEmpty() ? new HashMap<>() : Json.parseObject(text);
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,246 @@
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Mentor rankings over rolling windows (last 7 days, last 30 days, the term) next to the
+ * all-time LeaderboardEngine.
+ *
+ * Keeps a ring of day buckets, timebank.leaderboard.termDays long (default 120), each holding
+ * hours and points per mentor for one day. A window's ranking sums its most recent buckets; it
+ * is computed on first request and cached until an activity is recorded or the day changes.
+ * When the date moves on, the buckets that fell out of the ring are cleared and reused.
+ *
+ * Seeded from the daily activity rollups for the ring's days only, so a restart reads at most
+ * one row per mentor and day, then kept current by recordActivity(). Like LeaderboardEngine, a
+ * seed holds ActivityService's leaderboard gate, and activities saved by other clients, and
+ * future-dated ones once their day comes, are picked up by the periodic re-seed
+ * (timebank.leaderboard.resyncMs).
+ */
+public class WindowedLeaderboard {
+
+    private static final int TERM_DAYS = Integer.getInteger("timebank.leaderboard.termDays", 120);
+    private static final long RESYNC_MS = Long.getLong("timebank.leaderboard.resyncMs", 300_000L);
+
+    private static final WindowedLeaderboard SHARED = new WindowedLeaderboard();
+
+    /**
+     * A ranking period ending today. {@link #ALL_TIME} is served by LeaderboardEngine.
+     */
+    public enum Window {
+        WEEK("Last 7 days", 7),
+        MONTH("Last 30 days", 30),
+        TERM("This term", TERM_DAYS),
+        ALL_TIME("All time", 0);
+
+        public final String label;
+        final int days;
+
+        Window(String label, int days) {
+            this.label = label;
+            this.days = Math.min(days, TERM_DAYS);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** One day's per-mentor hours and points. */
+    private static final class Bucket {
+        long day = Long.MIN_VALUE; // epoch day; MIN_VALUE while unused
+        final Map<String, long[]> byMentor = new HashMap<>();
+    }
+
+    /** A computed ranking of one window. */
+    private static final class Ranking {
+        final List<LeaderboardEngine.Entry> entries; // rank order
+        final Map<String, Integer> rankByEmail;
+
+        Ranking(List<LeaderboardEngine.Entry> entries) {
+            this.entries = entries;
+            this.rankByEmail = new HashMap<>(entries.size() * 2);
+            for (int i = 0; i < entries.size(); i++) rankByEmail.put(entries.get(i).email, i + 1);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Bucket[] ring = new Bucket[TERM_DAYS];
+    private final Map<String, String> names = new HashMap<>();
+    private final Map<Window, Ranking> rankings = new EnumMap<>(Window.class);
+    private long today = Long.MIN_VALUE;
+    private long seededAt = 0;
+    private boolean seeded = false;
+
+    public static WindowedLeaderboard shared() {
+        return SHARED;
+    }
+
+    private WindowedLeaderboard() {
+        for (int i = 0; i < ring.length; i++) ring[i] = new Bucket();
+    }
+
+    /**
+     * Seeds the window (or the all-time engine) if it has never been seeded or the last seed is
+     * older than the resync interval. Blocking; call from a loader thread.
+     */
+    public void ensureSeeded(Window window) throws SQLException {
+        if (window == Window.ALL_TIME) {
+            LeaderboardEngine.shared().ensureSeeded();
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (seeded && System.currentTimeMillis() - seededAt < RESYNC_MS) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        reseed();
+    }
+
+    /** Rebuilds the ring from the daily rollups of its days. In-process activity writes wait until it is done. */
+    public void reseed() throws SQLException {
+        Lock gate = ActivityService.leaderboardSeed();
+        gate.lock();
+        try {
+            LocalDate now = LocalDate.now();
+            load(now, Storage.current().recentDailyTotals(now.minusDays(TERM_DAYS - 1)));
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    private void load(LocalDate now, ActivityRollups.Recent recent) {
+        lock.writeLock().lock();
+        try {
+            for (Bucket b : ring) {
+                b.day = Long.MIN_VALUE;
+                b.byMentor.clear();
+            }
+            today = now.toEpochDay();
+            for (ActivityRollups.Day d : recent.days) {
+                names.put(d.email, d.name);
+                add(d.day.toEpochDay(), d.email, d.hours, d.points);
+            }
+            rankings.clear();
+            seeded = true;
+            seededAt = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies one committed MentorActivities insert; the caller holds ActivityService's leaderboard
+     * gate from before the insert, so no seed has read it. Ignored until the first seed, which will include it.
+     */
+    public void recordActivity(MentorActivity saved, String name) {
+        lock.writeLock().lock();
+        try {
+            if (!seeded) return;
+            rollTo(LocalDate.now().toEpochDay());
+            names.putIfAbsent(saved.mentorEmail, name);
+            if (add(saved.date.toEpochDay(), saved.mentorEmail, saved.hours, saved.points)) rankings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds to the day's bucket if the day is in the ring. Caller holds the write lock. */
+    private boolean add(long day, String email, long hours, long points) {
+        if (day > today || day <= today - TERM_DAYS) return false;
+        Bucket b = ring[(int) Math.floorMod(day, (long) TERM_DAYS)];
+        if (b.day != day) {
+            b.day = day;
+            b.byMentor.clear();
+        }
+        long[] t = b.byMentor.computeIfAbsent(email, k -> new long[2]);
+        t[0] += hours;
+        t[1] += points;
+        return true;
+    }
+
+    /** Moves the ring to the current date, dropping the days that fell out. */
+    private void rollTo(long now) {
+        if (now <= today) return;
+        for (Bucket b : ring) {
+            if (b.day != Long.MIN_VALUE && b.day <= now - TERM_DAYS) {
+                b.day = Long.MIN_VALUE;
+                b.byMentor.clear();
+            }
+        }
+        today = now;
+        rankings.clear();
+    }
+
+    /** The window's ranking, computing it if needed. */
+    private Ranking ranking(Window window) {
+        long now = LocalDate.now().toEpochDay();
+        lock.readLock().lock();
+        try {
+            Ranking r = rankings.get(window);
+            if (r != null && now == today) return r;
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            rollTo(now);
+            Ranking r = rankings.get(window);
+            if (r == null) {
+                r = compute(window);
+                rankings.put(window, r);
+            }
+            return r;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Ranking compute(Window window) {
+        Map<String, long[]> sums = new HashMap<>();
+        for (Bucket b : ring) {
+            if (b.day == Long.MIN_VALUE || b.day <= today - window.days) continue;
+            for (Map.Entry<String, long[]> e : b.byMentor.entrySet()) {
+                long[] s = sums.computeIfAbsent(e.getKey(), k -> new long[2]);
+                s[0] += e.getValue()[0];
+                s[1] += e.getValue()[1];
+            }
+        }
+        List<LeaderboardEngine.Entry> entries = new ArrayList<>(sums.size());
+        for (Map.Entry<String, long[]> e : sums.entrySet()) {
+            entries.add(new LeaderboardEngine.Entry(e.getKey(), names.getOrDefault(e.getKey(), e.getKey()),
+                    e.getValue()[0], e.getValue()[1]));
+        }
+        // Same order as LeaderboardEngine: more points first, then email
+        entries.sort((a, b) -> a.points != b.points ? Long.compare(b.points, a.points) : a.email.compareTo(b.email));
+        return new Ranking(entries);
+    }
+
+    /** The first {@code k} mentors of the window in rank order. */
+    public List<LeaderboardEngine.Entry> top(Window window, int k) {
+        if (window == Window.ALL_TIME) return LeaderboardEngine.shared().top(k);
+        List<LeaderboardEngine.Entry> entries = ranking(window).entries;
+        return new ArrayList<>(entries.subList(0, Math.min(k, entries.size())));
+    }
+
+    /** 1-based rank, or -1 if the mentor has no activities in the window. */
+    public int rankOf(Window window, String email) {
+        if (window == Window.ALL_TIME) return LeaderboardEngine.shared().rankOf(email);
+        Integer rank = ranking(window).rankByEmail.get(email);
+        return rank == null ? -1 : rank;
+    }
+
+    /** Number of ranked mentors in the window. */
+    public int size(Window window) {
+        if (window == Window.ALL_TIME) return LeaderboardEngine.shared().size();
+        return ranking(window).entries.size();
+    }
+}
@@ -0,0 +1,71 @@
+-- Baseline: the six original tables as created by schema.sql.
+-- IF NOT EXISTS so an existing TimeBankDB is adopted as-is without touching its data.
+
+CREATE TABLE IF NOT EXISTS Mentors (
+    mentor_id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(100) UNIQUE NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    skills VARCHAR(255),
+    availability VARCHAR(100),
+    contact_no VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS Students (
+    student_id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(100) UNIQUE NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    department VARCHAR(50),
+    year VARCHAR(20),
+    contact_no VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS MentorActivities (
+    activity_id INT AUTO_INCREMENT PRIMARY KEY,
+    mentor_email VARCHAR(100) NOT NULL,
+    activity_name VARCHAR(255) NOT NULL,
+    activity_type VARCHAR(100),
+    activity_date DATE NOT NULL,
+    hours INT NOT NULL,
+    points INT NOT NULL,
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email)
+);
+
+CREATE TABLE IF NOT EXISTS StudentsActivity (
+    log_id INT AUTO_INCREMENT PRIMARY KEY,
+    student_email VARCHAR(100) NOT NULL,
+    activity_name VARCHAR(255) NOT NULL,
+    activity_type VARCHAR(100),
+    log_date DATE NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    certificate_path VARCHAR(255),
+    remarks TEXT,
+    FOREIGN KEY (student_email) REFERENCES Students(email)
+);
+
+CREATE TABLE IF NOT EXISTS Rewards (
+    reward_id INT AUTO_INCREMENT PRIMARY KEY,
+    reward_name VARCHAR(100) NOT NULL,
+    points_cost INT NOT NULL
+);
+
+-- Sample rewards, only for a brand-new catalog
+INSERT INTO Rewards (reward_name, points_cost)
+SELECT seed.reward_name, seed.points_cost FROM (
+    SELECT 'Coffee Coupon' AS reward_name, 50 AS points_cost
+    UNION ALL SELECT 'E-book Subscription', 100
+    UNION ALL SELECT 'Mentorship Session', 200
+    UNION ALL SELECT 'Certificate of Excellence', 500
+) AS seed
+WHERE NOT EXISTS (SELECT 1 FROM Rewards);
+
+CREATE TABLE IF NOT EXISTS Redemptions (
+    redemption_id INT AUTO_INCREMENT PRIMARY KEY,
+    mentor_email VARCHAR(100) NOT NULL,
+    reward_id INT NOT NULL,
+    points_spent INT NOT NULL,
+    redemption_date DATETIME DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email),
+    FOREIGN KEY (reward_id) REFERENCES Rewards(reward_id)
+);
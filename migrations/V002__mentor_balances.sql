@@ -0,0 +1,18 @@
+-- Maintained per-mentor point totals (see MentorBalances.java)
+
+CREATE TABLE IF NOT EXISTS MentorBalances (
+    mentor_email VARCHAR(100) PRIMARY KEY,
+    points_earned INT NOT NULL DEFAULT 0,
+    points_spent INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email)
+);
+
+-- Backfill from the ledgers; also corrects rows written before the backfill ran
+INSERT INTO MentorBalances (mentor_email, points_earned, points_spent)
+SELECT * FROM (
+    SELECT m.email AS mentor_email,
+           (SELECT COALESCE(SUM(points), 0) FROM MentorActivities WHERE mentor_email = m.email) AS earned,
+           (SELECT COALESCE(SUM(points_spent), 0) FROM Redemptions WHERE mentor_email = m.email) AS spent
+    FROM Mentors m
+) AS src
+ON DUPLICATE KEY UPDATE points_earned = src.earned, points_spent = src.spent;
@@ -0,0 +1,17 @@
+-- Secondary indexes for the dashboard queries.
+-- InnoDB appends the primary key to every secondary index, so (student_email, log_date)
+-- also orders ties by log_id.
+
+-- Per-mentor aggregates (leaderboard, balance seed, reconciliation) become index-only scans,
+-- and date-range reports seek on (mentor_email, activity_date).
+CREATE INDEX idx_ma_mentor_date_hours_points
+    ON MentorActivities (mentor_email, activity_date, hours, points);
+
+-- Student performance view: equality on email, ordered by date.
+CREATE INDEX idx_sa_student_date ON StudentsActivity (student_email, log_date);
+
+-- SUM(points_spent) per mentor without touching the rows.
+CREATE INDEX idx_red_mentor_spent ON Redemptions (mentor_email, points_spent);
+
+-- Reward id lookup by name during redemption.
+CREATE INDEX idx_rewards_name ON Rewards (reward_name);
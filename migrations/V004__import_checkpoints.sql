@@ -0,0 +1,13 @@
+-- Resume points for bulk imports (see StudentActivityImporter.java).
+-- One row per input file, keyed by the SHA-256 of its contents; advanced in the same
+-- transaction as each committed chunk of rows.
+
+CREATE TABLE IF NOT EXISTS ImportCheckpoints (
+    import_key CHAR(64) PRIMARY KEY,
+    source_name VARCHAR(255) NOT NULL,
+    records_done BIGINT NOT NULL DEFAULT 0,
+    rows_imported BIGINT NOT NULL DEFAULT 0,
+    rows_rejected BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
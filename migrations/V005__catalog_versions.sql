@@ -0,0 +1,19 @@
+-- Version stamps for cached catalogs (see RewardCatalog.java).
+-- Any change to Rewards bumps its stamp, so clients holding a cached copy can tell
+-- with one primary-key read whether it is still current.
+
+CREATE TABLE IF NOT EXISTS CatalogVersions (
+    catalog VARCHAR(50) PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO CatalogVersions (catalog, version) VALUES ('Rewards', 1);
+
+CREATE TRIGGER trg_rewards_version_ins AFTER INSERT ON Rewards FOR EACH ROW
+    UPDATE CatalogVersions SET version = version + 1 WHERE catalog = 'Rewards';
+
+CREATE TRIGGER trg_rewards_version_upd AFTER UPDATE ON Rewards FOR EACH ROW
+    UPDATE CatalogVersions SET version = version + 1 WHERE catalog = 'Rewards';
+
+CREATE TRIGGER trg_rewards_version_del AFTER DELETE ON Rewards FOR EACH ROW
+    UPDATE CatalogVersions SET version = version + 1 WHERE catalog = 'Rewards';
@@ -0,0 +1,9 @@
+-- Progress of the write-behind activity journal (see ActivityJournal.java).
+-- One row per journal file, keyed by the random epoch in its header; applied_seq is advanced
+-- in the same transaction as each batch of journaled activities written to the database.
+
+CREATE TABLE IF NOT EXISTS JournalCheckpoints (
+    journal_key VARCHAR(64) PRIMARY KEY,
+    applied_seq BIGINT NOT NULL,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
@@ -0,0 +1,40 @@
+-- Per-mentor activity aggregates by day and by month (see ActivityRollups.java).
+-- Maintained in the same transaction as each MentorActivities insert; period totals and the
+-- leaderboard read these instead of re-aggregating the raw rows.
+
+CREATE TABLE IF NOT EXISTS MentorDailyRollups (
+    mentor_email VARCHAR(100) NOT NULL,
+    day DATE NOT NULL,
+    activities INT NOT NULL DEFAULT 0,
+    hours INT NOT NULL DEFAULT 0,
+    points INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (mentor_email, day),
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email)
+);
+
+CREATE TABLE IF NOT EXISTS MentorMonthlyRollups (
+    mentor_email VARCHAR(100) NOT NULL,
+    month DATE NOT NULL, -- first day of the month
+    activities INT NOT NULL DEFAULT 0,
+    hours INT NOT NULL DEFAULT 0,
+    points INT NOT NULL DEFAULT 0,
+    last_activity_id INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (mentor_email, month),
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email)
+);
+
+-- Backfill from the raw rows; also corrects rows written before the backfill ran
+INSERT INTO MentorDailyRollups (mentor_email, day, activities, hours, points)
+SELECT * FROM (
+    SELECT mentor_email, activity_date, COUNT(*) AS n, SUM(hours) AS h, SUM(points) AS p
+    FROM MentorActivities GROUP BY mentor_email, activity_date
+) AS src
+ON DUPLICATE KEY UPDATE activities = src.n, hours = src.h, points = src.p;
+
+INSERT INTO MentorMonthlyRollups (mentor_email, month, activities, hours, points, last_activity_id)
+SELECT * FROM (
+    SELECT mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01') AS m, COUNT(*) AS n, SUM(hours) AS h,
+           SUM(points) AS p, MAX(activity_id) AS last_id
+    FROM MentorActivities GROUP BY mentor_email, DATE_FORMAT(activity_date, '%Y-%m-01')
+) AS src
+ON DUPLICATE KEY UPDATE activities = src.n, hours = src.h, points = src.p, last_activity_id = src.last_id;
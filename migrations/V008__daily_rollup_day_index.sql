@@ -0,0 +1,3 @@
+-- WindowedLeaderboard seeds from every mentor's daily rollups since a given day; the primary key
+-- leads with mentor_email, so that range needs its own index.
+CREATE INDEX idx_daily_rollups_day ON MentorDailyRollups (day);
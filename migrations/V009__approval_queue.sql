@@ -0,0 +1,20 @@
+-- Mentor approval queue for student activities (see ApprovalQueue.java).
+
+-- Pending rows oldest first: equality on status, ordered by log_date and the implicit log_id.
+CREATE INDEX idx_sa_status_date ON StudentsActivity (status, log_date);
+
+-- Row counts per status, spread over a few slots so concurrent writers rarely wait on the same
+-- row; a status's count is the sum of its slots.
+CREATE TABLE IF NOT EXISTS StudentActivityCounts (
+    status VARCHAR(50) NOT NULL,
+    slot TINYINT NOT NULL,
+    row_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (status, slot)
+);
+
+-- Backfill into slot 0; if the application was writing meanwhile, follow with java ApprovalQueue --repair
+INSERT INTO StudentActivityCounts (status, slot, row_count)
+SELECT * FROM (
+    SELECT status, 0 AS slot, COUNT(*) AS n FROM StudentsActivity GROUP BY status
+) AS src
+ON DUPLICATE KEY UPDATE row_count = src.n;
@@ -0,0 +1,3 @@
+-- The catalog is read whole (RewardCatalog, keyed by reward_id) and redemption works by reward_id,
+-- so nothing reads Rewards by name; the index only cost writes.
+DROP INDEX idx_rewards_name ON Rewards;
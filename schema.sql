@@ -1,3 +1,6 @@
+-- Fresh install script. Existing databases are upgraded in place with SchemaMigrator
+-- (migrations/V*.sql), which also adopts a database created from this file.
+
 -- Drop database if it exists and create a new one
 DROP DATABASE IF EXISTS TimeBankDB;
 CREATE DATABASE TimeBankDB;
@@ -45,7 +48,7 @@ CREATE TABLE StudentsActivity (
     activity_type VARCHAR(100),
     log_date DATE NOT NULL,
     status VARCHAR(50) NOT NULL, -- e.g., Pending, Completed, Rejected
-    certificate_path VARCHAR(255), -- Path to the certificate file (or just YES/NO for simplicity)
+    certificate_path VARCHAR(255), -- 'sha256:<digest>' of the file in CertificateStore; older rows hold Yes/No
     remarks TEXT,
     FOREIGN KEY (student_email) REFERENCES Students(email)
 );
@@ -74,3 +77,88 @@ CREATE TABLE Redemptions (
     FOREIGN KEY (mentor_email) REFERENCES Mentors(email),
     FOREIGN KEY (reward_id) REFERENCES Rewards(reward_id)
 );
+
+-- 7. MentorBalances Table (running totals maintained alongside MentorActivities/Redemptions inserts)
+CREATE TABLE MentorBalances (
+    mentor_email VARCHAR(100) PRIMARY KEY,
+    points_earned INT NOT NULL DEFAULT 0,
+    points_spent INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email)
+);
+
+-- 8. ImportCheckpoints Table (resume points of StudentActivityImporter runs)
+CREATE TABLE ImportCheckpoints (
+    import_key CHAR(64) PRIMARY KEY, -- SHA-256 of the input file
+    source_name VARCHAR(255) NOT NULL,
+    records_done BIGINT NOT NULL DEFAULT 0,
+    rows_imported BIGINT NOT NULL DEFAULT 0,
+    rows_rejected BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- 9. CatalogVersions Table (bumped by triggers whenever a cached catalog changes; see RewardCatalog.java)
+CREATE TABLE CatalogVersions (
+    catalog VARCHAR(50) PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO CatalogVersions (catalog, version) VALUES ('Rewards', 1);
+
+CREATE TRIGGER trg_rewards_version_ins AFTER INSERT ON Rewards FOR EACH ROW
+    UPDATE CatalogVersions SET version = version + 1 WHERE catalog = 'Rewards';
+CREATE TRIGGER trg_rewards_version_upd AFTER UPDATE ON Rewards FOR EACH ROW
+    UPDATE CatalogVersions SET version = version + 1 WHERE catalog = 'Rewards';
+CREATE TRIGGER trg_rewards_version_del AFTER DELETE ON Rewards FOR EACH ROW
+    UPDATE CatalogVersions SET version = version + 1 WHERE catalog = 'Rewards';
+
+-- 10. JournalCheckpoints Table (how far the write-behind activity journal has been written; see ActivityJournal.java)
+CREATE TABLE JournalCheckpoints (
+    journal_key VARCHAR(64) PRIMARY KEY, -- 'activity:' + epoch of the journal file
+    applied_seq BIGINT NOT NULL,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- 11. MentorDailyRollups Table (per-mentor activity totals by day, maintained alongside MentorActivities inserts; see ActivityRollups.java)
+CREATE TABLE MentorDailyRollups (
+    mentor_email VARCHAR(100) NOT NULL,
+    day DATE NOT NULL,
+    activities INT NOT NULL DEFAULT 0,
+    hours INT NOT NULL DEFAULT 0,
+    points INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (mentor_email, day),
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email)
+);
+
+-- 12. MentorMonthlyRollups Table (the same by month; also feeds the leaderboard)
+CREATE TABLE MentorMonthlyRollups (
+    mentor_email VARCHAR(100) NOT NULL,
+    month DATE NOT NULL, -- first day of the month
+    activities INT NOT NULL DEFAULT 0,
+    hours INT NOT NULL DEFAULT 0,
+    points INT NOT NULL DEFAULT 0,
+    last_activity_id INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (mentor_email, month),
+    FOREIGN KEY (mentor_email) REFERENCES Mentors(email)
+);
+
+-- 13. StudentActivityCounts Table (rows per status, in a few slots each, maintained alongside StudentsActivity writes; see ApprovalQueue.java)
+CREATE TABLE StudentActivityCounts (
+    status VARCHAR(50) NOT NULL,
+    slot TINYINT NOT NULL,
+    row_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (status, slot)
+);
+
+-- 14. StudentActivityTotals Table (activities per student, maintained alongside StudentsActivity inserts; see StudentActivityRepository.java)
+CREATE TABLE StudentActivityTotals (
+    student_email VARCHAR(100) NOT NULL PRIMARY KEY,
+    row_count BIGINT NOT NULL DEFAULT 0
+);
+
+-- Secondary indexes for the dashboard queries (kept in sync with migrations/V003__hot_query_indexes.sql, V008, V009 and V011)
+CREATE INDEX idx_ma_mentor_date_hours_points ON MentorActivities (mentor_email, activity_date, hours, points);
+CREATE INDEX idx_sa_student_date ON StudentsActivity (student_email, log_date);
+CREATE INDEX idx_red_mentor_spent ON Redemptions (mentor_email, points_spent);
+CREATE INDEX idx_daily_rollups_day ON MentorDailyRollups (day);
+CREATE INDEX idx_sa_status_date ON StudentsActivity (status, log_date);